@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.w3c.dom.Document;
+
+/**
+ * The HTML documents used by the benchmarks: the snippets of the test suite and synthetic large documents.
+ * <p>
+ * The snippets are read from {@code ../src/test/resources/snippets}, which may be overridden with the system property
+ * {@code inscriptis.snippets}.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+class BenchmarkDocuments {
+
+	private static final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod "
+		+ "tempor incididunt ut labore et dolore magna aliqua.";
+
+	/**
+	 * @param name the name of the corpus: {@code snippets}, {@code article}, {@code table} or {@code lists}.
+	 * @return the HTML documents of the given corpus.
+	 */
+	static List<String> getCorpus(String name) {
+
+		List<String> documents = new ArrayList<>();
+		switch (name) {
+			case "snippets":
+				documents.addAll(getSnippets());
+				break;
+			case "article":
+				documents.add(getArticle(2000));
+				break;
+			case "table":
+				documents.add(getTable(500, 8));
+				break;
+			case "lists":
+				documents.add(getNestedLists(4, 8));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown corpus: " + name);
+		}
+
+		return documents;
+	}
+
+	/**
+	 * @param paragraphs the number of paragraphs.
+	 * @return an article with headings, paragraphs, links and emphasized text.
+	 */
+	static String getArticle(int paragraphs) {
+
+		StringBuilder html = new StringBuilder("<html><body>");
+		for (int i = 0; i < paragraphs; i++) {
+			if (i % 10 == 0) {
+				html.append("<h2>Section ").append(i / 10).append("</h2>");
+			}
+
+			html.append("<p style=\"margin-top: 1em\">")
+				.append(LOREM_IPSUM)
+				.append(" <a href=\"/page/").append(i).append("\">link</a> <b>bold</b> <i>italic</i> ")
+				.append(LOREM_IPSUM)
+				.append("</p>");
+		}
+
+		return html.append("</body></html>").toString();
+	}
+
+	/**
+	 * @param depth the number of nested lists.
+	 * @param items the number of items per list.
+	 * @return nested unordered and ordered lists.
+	 */
+	static String getNestedLists(int depth, int items) {
+
+		StringBuilder html = new StringBuilder("<html><body>");
+		appendList(html, depth, items);
+		return html.append("</body></html>").toString();
+	}
+
+	/**
+	 * @return the HTML snippets of the test suite.
+	 */
+	static List<String> getSnippets() {
+
+		Path path = Paths.get(System.getProperty("inscriptis.snippets", "../src/test/resources/snippets"));
+		try (Stream<Path> stream = Files.walk(path)) {
+			List<String> snippets = new ArrayList<>();
+			for (Path htmlFile : stream.filter(file -> file.toString().endsWith(".html")).sorted().collect(Collectors.toList())) {
+				snippets.add(new String(Files.readAllBytes(htmlFile), StandardCharsets.UTF_8));
+			}
+
+			return snippets;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read the snippets in " + path.toAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * @param rows the number of rows.
+	 * @param columns the number of columns.
+	 * @return a table with the given number of rows and columns.
+	 */
+	static String getTable(int rows, int columns) {
+
+		StringBuilder html = new StringBuilder("<html><body><table>");
+		for (int row = 0; row < rows; row++) {
+			html.append("<tr>");
+			for (int column = 0; column < columns; column++) {
+				html.append("<td>Cell ").append(row).append('/').append(column).append("</td>");
+			}
+			html.append("</tr>");
+		}
+
+		return html.append("</table></body></html>").toString();
+	}
+
+	/**
+	 * @param html the HTML content.
+	 * @return the W3C document of the given HTML content.
+	 */
+	static Document parse(String html) {
+		return W3CDom.convert(Jsoup.parse(html));
+	}
+
+	private static void appendList(StringBuilder html, int depth, int items) {
+
+		String tag = depth % 2 == 0 ? "ul" : "ol";
+		html.append('<').append(tag).append('>');
+		for (int i = 0; i < items; i++) {
+			html.append("<li>Item ").append(i);
+			if (depth > 1 && i == items / 2) {
+				appendList(html, depth - 1, items);
+			}
+			html.append("</li>");
+		}
+		html.append("</").append(tag).append('>');
+	}
+}
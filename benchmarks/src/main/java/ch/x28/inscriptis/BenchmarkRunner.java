@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports the allocation rate in addition to the throughput. The
+ * standard JMH command line options are supported.
+ * <p>
+ * <b>Usage</b>
+ *
+ * <pre>
+ * <code>
+ * java -jar target/benchmarks.jar [JMH options] [regexp of the benchmarks to run]
+ * java -jar target/benchmarks.jar -p corpus=table ConversionBenchmark
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(commandLineOptions).addProfiler(GCProfiler.class);
+
+		if (commandLineOptions.getIncludes().isEmpty()) {
+			options.include("ch\\.x28\\.inscriptis\\..*Benchmark");
+		}
+
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the end-to-end conversion of W3C documents to text. Parsing the HTML is not part of the measurement.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+	@Param({ "snippets", "article", "table", "lists" })
+	public String corpus;
+
+	@Param({ "STRICT", "RELAXED" })
+	public String css;
+
+	private List<Document> documents;
+	private ParserConfig config;
+
+	@Benchmark
+	public void convert(Blackhole blackhole) {
+
+		for (Document document : documents) {
+			blackhole.consume(new Inscriptis(document, config).getText());
+		}
+	}
+
+	@Setup
+	public void setup() {
+
+		documents = BenchmarkDocuments.getCorpus(corpus).stream()
+			.map(BenchmarkDocuments::parse)
+			.collect(Collectors.toList());
+
+		config = new ParserConfig(css.equals("STRICT") ? CssProfile.STRICT : CssProfile.RELAXED);
+		config.setDisplayImages(true);
+		config.setDisplayLinks(true);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures collecting the content of a {@link Line} and rendering it with {@link Line#getText()}.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineBenchmark {
+
+	/**
+	 * The number of text nodes added to the line.
+	 */
+	@Param({ "1", "10", "100" })
+	public int fragments;
+
+	/**
+	 * Whether the line contains preformatted text.
+	 */
+	@Param({ "false", "true" })
+	public boolean pre;
+
+	private String[] contents;
+
+	@Benchmark
+	public String getText() {
+
+		Line line = new Line();
+		line.setMarginBefore(1);
+		line.setPadding(4);
+		line.setListBullet("* ");
+
+		for (String content : contents) {
+			line.addContent(content);
+		}
+
+		return line.getText();
+	}
+
+	@Setup
+	public void setup() {
+
+		contents = new String[fragments];
+		for (int i = 0; i < fragments; i++) {
+			contents[i] = pre && i % 2 == 1
+				? "\0  preformatted\n    text " + i + "\0"
+				: " some   text\n with whitespace " + i + " ";
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.function.IntFunction;
+
+/**
+ * Generators for documents whose shape stresses a single aspect of the conversion. Every generator creates a document
+ * whose HTML content grows linearly with the given size parameter.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+enum PathologicalDocuments {
+
+	/**
+	 * Nested {@code div} and {@code span} elements.
+	 */
+	DEEP_NESTING(500, true, PathologicalDocuments::getDeepNesting),
+	/**
+	 * A table with a single row and many columns.
+	 */
+	WIDE_TABLE(250, true, size -> BenchmarkDocuments.getTable(1, size)),
+	/**
+	 * A table with many rows.
+	 */
+	LONG_TABLE(250, true, size -> BenchmarkDocuments.getTable(size, 4)),
+	/**
+	 * Tables nested in the first cell of their enclosing table. Every level pads the lines of all nested levels to its
+	 * row height, so the text grows quadratically with the depth.
+	 */
+	NESTED_TABLES(25, false, PathologicalDocuments::getNestedTables),
+	/**
+	 * A single preformatted block with many lines and inline elements.
+	 */
+	HUGE_PRE(1000, true, PathologicalDocuments::getHugePre),
+	/**
+	 * A single paragraph with many inline elements.
+	 */
+	LONG_PARAGRAPH(1000, true, PathologicalDocuments::getLongParagraph),
+	/**
+	 * A list with many items.
+	 */
+	MANY_LIST_ITEMS(1000, true, PathologicalDocuments::getManyListItems),
+	/**
+	 * Many elements with style attributes.
+	 */
+	STYLE_HEAVY(500, true, PathologicalDocuments::getStyleHeavy);
+
+	private final int baseSize;
+	private final boolean linear;
+	private final IntFunction<String> generator;
+
+	private PathologicalDocuments(int baseSize, boolean linear, IntFunction<String> generator) {
+		this.baseSize = baseSize;
+		this.linear = linear;
+		this.generator = generator;
+	}
+
+	private static String getDeepNesting(int depth) {
+
+		StringBuilder html = new StringBuilder("<html><body>");
+		for (int i = 0; i < depth; i++) {
+			html.append(i % 2 == 0 ? "<div>" : "<span>").append("level ").append(i);
+		}
+		for (int i = depth - 1; i >= 0; i--) {
+			html.append(i % 2 == 0 ? "</div>" : "</span>");
+		}
+
+		return html.append("</body></html>").toString();
+	}
+
+	private static String getHugePre(int lines) {
+
+		StringBuilder html = new StringBuilder("<html><body><pre>");
+		for (int i = 0; i < lines; i++) {
+			html.append("  line <b>").append(i).append("</b>  with   spaces\n");
+		}
+
+		return html.append("</pre></body></html>").toString();
+	}
+
+	private static String getLongParagraph(int elements) {
+
+		StringBuilder html = new StringBuilder("<html><body><p>");
+		for (int i = 0; i < elements; i++) {
+			html.append("word <i>").append(i).append("</i> ");
+		}
+
+		return html.append("</p></body></html>").toString();
+	}
+
+	private static String getManyListItems(int items) {
+
+		StringBuilder html = new StringBuilder("<html><body><ol>");
+		for (int i = 0; i < items; i++) {
+			html.append("<li>Item ").append(i).append("</li>");
+		}
+
+		return html.append("</ol></body></html>").toString();
+	}
+
+	private static String getNestedTables(int depth) {
+
+		StringBuilder html = new StringBuilder("<html><body>");
+		for (int i = 0; i < depth; i++) {
+			html.append("<table><tr><td>");
+		}
+		html.append("innermost");
+		for (int i = 0; i < depth; i++) {
+			html.append("</td><td>cell ").append(i).append("</td></tr></table>");
+		}
+
+		return html.append("</body></html>").toString();
+	}
+
+	private static String getStyleHeavy(int elements) {
+
+		StringBuilder html = new StringBuilder("<html><body>");
+		for (int i = 0; i < elements; i++) {
+			html.append("<div style=\"margin-top: ").append(i % 3).append("em; padding-left: ").append(i % 4)
+				.append("em; color: red; display: ").append(i % 5 == 0 ? "inline" : "block").append("\">styled ")
+				.append(i).append("</div>");
+		}
+
+		return html.append("</body></html>").toString();
+	}
+
+	/**
+	 * @return the size parameter of the smallest document of a size sweep.
+	 */
+	int getBaseSize() {
+		return baseSize;
+	}
+
+	/**
+	 * @return whether the conversion time is expected to grow linearly with the size parameter.
+	 */
+	boolean isLinear() {
+		return linear;
+	}
+
+	/**
+	 * @param size the size parameter of the generator.
+	 * @return the generated HTML content.
+	 */
+	String generate(int size) {
+		return generator.apply(size);
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.w3c.dom.Document;
+
+/**
+ * Measures how the conversion time and the allocated memory grow with the size of the {@link PathologicalDocuments}.
+ * <p>
+ * For every generator the documents of a size sweep are converted, and the growth is estimated as the slope of
+ * {@code log(time)} over {@code log(size)}: a slope of 1 means linear growth, a slope of 2 quadratic growth.
+ * <p>
+ * <b>Usage</b>
+ *
+ * <pre>
+ * <code>
+ * java -cp target/benchmarks.jar ch.x28.inscriptis.ScalingHarness
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class ScalingHarness {
+
+	/**
+	 * The result of a size sweep.
+	 */
+	static class Scaling {
+
+		private final PathologicalDocuments generator;
+		private final int[] sizes;
+		private final double[] nanos;
+		private final long[] allocatedBytes;
+
+		Scaling(PathologicalDocuments generator, int[] sizes, double[] nanos, long[] allocatedBytes) {
+			this.generator = generator;
+			this.sizes = sizes;
+			this.nanos = nanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		/**
+		 * @return the slope of the logarithm of the allocated memory over the logarithm of the size.
+		 */
+		double getAllocationSlope() {
+			return getSlope(Arrays.stream(allocatedBytes).asDoubleStream().toArray());
+		}
+
+		/**
+		 * @return the slope of the logarithm of the conversion time over the logarithm of the size.
+		 */
+		double getTimeSlope() {
+			return getSlope(nanos);
+		}
+
+		/**
+		 * @return whether neither the conversion time nor the allocated memory grow faster than linearly.
+		 */
+		boolean isLinear() {
+			return getTimeSlope() <= MAX_LINEAR_SLOPE && getAllocationSlope() <= MAX_LINEAR_SLOPE;
+		}
+
+		/**
+		 * Computes the least squares slope of the measured values over the sizes in a log-log plot.
+		 */
+		private double getSlope(double[] values) {
+
+			int n = sizes.length;
+			double meanX = 0;
+			double meanY = 0;
+			for (int i = 0; i < n; i++) {
+				meanX += Math.log(sizes[i]) / n;
+				meanY += Math.log(Math.max(1, values[i])) / n;
+			}
+
+			double covariance = 0;
+			double variance = 0;
+			for (int i = 0; i < n; i++) {
+				double dx = Math.log(sizes[i]) - meanX;
+				covariance += dx * (Math.log(Math.max(1, values[i])) - meanY);
+				variance += dx * dx;
+			}
+
+			return covariance / variance;
+		}
+
+		@Override
+		public String toString() {
+
+			StringBuilder result = new StringBuilder(String.format(Locale.ROOT, "%-16s time slope %.2f, allocation slope %.2f%n",
+				generator, getTimeSlope(), getAllocationSlope()));
+
+			for (int i = 0; i < sizes.length; i++) {
+				result.append(String.format(Locale.ROOT, "  %8d %12.3f ms %14d bytes%n", sizes[i], nanos[i] / 1e6, allocatedBytes[i]));
+			}
+
+			return result.toString();
+		}
+	}
+
+	/**
+	 * The maximum slope that is still considered linear growth, allowing for measurement noise.
+	 */
+	static final double MAX_LINEAR_SLOPE = 1.5;
+
+	private static final int REPETITIONS = 10;
+
+	public static void main(String[] args) {
+
+		boolean superlinear = false;
+		for (PathologicalDocuments generator : PathologicalDocuments.values()) {
+			Scaling scaling = measure(generator, 4);
+			System.out.print(scaling);
+
+			if (generator.isLinear() && !scaling.isLinear()) {
+				System.out.println("  superlinear growth");
+				superlinear = true;
+			}
+		}
+
+		if (superlinear) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Converts the documents of a size sweep, doubling the size for every step. The conversion time is the minimum of
+	 * several repetitions after a warm-up, which is least affected by garbage collection and JIT compilation.
+	 *
+	 * @param generator the document generator.
+	 * @param steps the number of sizes.
+	 * @return the measured conversion times and allocations.
+	 */
+	static Scaling measure(PathologicalDocuments generator, int steps) {
+
+		int baseSize = generator.getBaseSize();
+
+		int[] sizes = new int[steps];
+		double[] nanos = new double[steps];
+		long[] allocatedBytes = new long[steps];
+
+		// the relaxed profile indents nested divs, which makes the text itself grow quadratically with the depth
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+
+		// warm up with the largest document
+		Document largest = BenchmarkDocuments.parse(generator.generate(baseSize << (steps - 1)));
+		for (int i = 0; i < REPETITIONS; i++) {
+			new Inscriptis(largest, config).getText();
+		}
+
+		for (int step = 0; step < steps; step++) {
+			sizes[step] = baseSize << step;
+			Document document = BenchmarkDocuments.parse(generator.generate(sizes[step]));
+
+			nanos[step] = Double.MAX_VALUE;
+			for (int i = 0; i < REPETITIONS; i++) {
+				long allocated = getAllocatedBytes();
+				long start = System.nanoTime();
+				new Inscriptis(document, config).getText();
+				nanos[step] = Math.min(nanos[step], System.nanoTime() - start);
+				allocatedBytes[step] = getAllocatedBytes() - allocated;
+			}
+		}
+
+		return new Scaling(generator, sizes, nanos, allocatedBytes);
+	}
+
+	/**
+	 * @return the memory allocated by the current thread or {@code 0} if it cannot be measured.
+	 */
+	private static long getAllocatedBytes() {
+
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+
+		return 0;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.x28.inscriptis.HtmlProperties.HorizontalAlignment;
+
+/**
+ * Measures the layout of a {@link Table} with {@link Table#getText()}.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int rows;
+
+	@Param({ "4", "16" })
+	public int columns;
+
+	@Benchmark
+	public String getText() {
+
+		// cells are modified by the layout, hence the table is created for every invocation
+		Table table = new Table();
+		for (int row = 0; row < rows; row++) {
+			table.addRow();
+			for (int column = 0; column < columns; column++) {
+				List<String> canvas = new ArrayList<>(Arrays.asList("Cell " + row + "/" + column, "second\nand third line"));
+				table.addCell(canvas, column % 2 == 0 ? HorizontalAlignment.LEFT : HorizontalAlignment.RIGHT);
+			}
+		}
+
+		return table.getText();
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+
+/**
+ * Detects the character encoding of an HTML document from its first bytes: a byte order mark, a {@code <meta>}
+ * declaration within the first 1024 bytes or, if neither is present, a fallback.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+class CharsetSniffer {
+
+	/**
+	 * The number of bytes searched for a {@code <meta>} declaration.
+	 */
+	static final int PRESCAN_LENGTH = 1024;
+
+	private final Charset charset;
+	private final int bomLength;
+
+	/**
+	 * Detects the encoding of the given bytes, which are not consumed.
+	 *
+	 * @param head the first bytes of the document, at least {@link #PRESCAN_LENGTH} bytes unless the document is
+	 *            shorter.
+	 * @param fallback the encoding used if none is declared.
+	 */
+	CharsetSniffer(ByteBuffer head, Charset fallback) {
+
+		int position = head.position();
+		int remaining = head.remaining();
+
+		int b0 = remaining > 0 ? head.get(position) & 0xFF : -1;
+		int b1 = remaining > 1 ? head.get(position + 1) & 0xFF : -1;
+		int b2 = remaining > 2 ? head.get(position + 2) & 0xFF : -1;
+
+		if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+			charset = StandardCharsets.UTF_8;
+			bomLength = 3;
+		} else if (b0 == 0xFE && b1 == 0xFF) {
+			charset = StandardCharsets.UTF_16BE;
+			bomLength = 2;
+		} else if (b0 == 0xFF && b1 == 0xFE) {
+			charset = StandardCharsets.UTF_16LE;
+			bomLength = 2;
+		} else {
+			Charset declared = prescan(head, Math.min(remaining, PRESCAN_LENGTH));
+			charset = declared != null ? declared : fallback;
+			bomLength = 0;
+		}
+	}
+
+	/**
+	 * @return the charset or {@code null}, if the name is not supported.
+	 */
+	static Charset forName(String name) {
+
+		String label = name.trim().toLowerCase(Locale.ROOT);
+		switch (label) {
+			// the labels of windows-1252 in the encoding standard
+			case "ascii":
+			case "us-ascii":
+			case "iso-8859-1":
+			case "iso8859-1":
+			case "latin1":
+			case "l1":
+				label = "windows-1252";
+				break;
+			// documents declaring UTF-16 without a byte order mark are decoded as UTF-8
+			case "utf-16":
+			case "utf-16be":
+			case "utf-16le":
+				return StandardCharsets.UTF_8;
+			default:
+				break;
+		}
+
+		try {
+			return Charset.forName(label);
+		} catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the value of the {@code charset} declaration in the given tag or {@code null}.
+	 */
+	private static String getDeclaredCharset(String tag) {
+
+		int index = tag.indexOf("charset");
+		while (index >= 0) {
+			int position = index + "charset".length();
+			while (position < tag.length() && Character.isWhitespace(tag.charAt(position))) {
+				position++;
+			}
+
+			if (position < tag.length() && tag.charAt(position) == '=') {
+				position++;
+				while (position < tag.length() && (Character.isWhitespace(tag.charAt(position)) || tag.charAt(position) == '"' || tag.charAt(position) == '\'')) {
+					position++;
+				}
+
+				int end = position;
+				while (end < tag.length() && "\"'; \t\r\n/>".indexOf(tag.charAt(end)) < 0) {
+					end++;
+				}
+
+				if (end > position) {
+					return tag.substring(position, end);
+				}
+			}
+
+			index = tag.indexOf("charset", position);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Searches the {@code <meta>} tags outside of comments for a {@code charset} or {@code content} declaration.
+	 */
+	private static Charset prescan(ByteBuffer head, int length) {
+
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = Character.toLowerCase((char) (head.get(head.position() + i) & 0xFF));
+		}
+		String text = new String(chars);
+
+		int position = 0;
+		while (position < text.length()) {
+			int tag = text.indexOf('<', position);
+			if (tag < 0) {
+				break;
+			}
+
+			if (text.startsWith("<!--", tag)) {
+				int end = text.indexOf("-->", tag + 4);
+				position = end < 0 ? text.length() : end + 3;
+				continue;
+			}
+
+			int end = text.indexOf('>', tag);
+			if (end < 0) {
+				break;
+			}
+
+			if (text.startsWith("<meta", tag) && tag + 5 < text.length() && !Character.isLetterOrDigit(text.charAt(tag + 5))) {
+				String name = getDeclaredCharset(text.substring(tag, end));
+				Charset charset = name != null ? forName(name) : null;
+				if (charset != null) {
+					return charset;
+				}
+			}
+
+			position = end + 1;
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the number of bytes of the byte order mark, which are skipped when decoding.
+	 */
+	int getBomLength() {
+		return bomLength;
+	}
+
+	/**
+	 * @return the detected encoding.
+	 */
+	Charset getCharset() {
+		return charset;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * Fast 64-bit hashes used for content-addressed caching. The hashes are stable across JVMs, so that they may be
+ * persisted.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+class ContentHash {
+
+	private static final long SEED = 0x6A09E667F3BCC908L;
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private static final long SECONDARY_SEED = 0xBB67AE8584CAA73BL;
+	private static final long SECONDARY_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+	/**
+	 * @param hash the hash to combine.
+	 * @param value the value to add to the hash.
+	 * @return the combined hash.
+	 */
+	public static long combine(long hash, long value) {
+		return mix((hash ^ value) * MULTIPLIER);
+	}
+
+	/**
+	 * @param hash the hash to combine.
+	 * @param str the string to add to the hash; {@code null} is distinguished from the empty string.
+	 * @return the combined hash.
+	 */
+	public static long combine(long hash, String str) {
+		return combine(hash, str == null ? -1 : hash(str));
+	}
+
+	/**
+	 * @param hash the hash to combine.
+	 * @param str the string to add to the hash by its {@link #secondaryHash(CharSequence)}; {@code null} is
+	 *        distinguished from the empty string.
+	 * @return the combined hash.
+	 */
+	public static long combineSecondary(long hash, String str) {
+		return combine(hash, str == null ? -1 : secondaryHash(str));
+	}
+
+	/**
+	 * @param str the characters to hash.
+	 * @return the 64-bit hash of the given characters.
+	 */
+	public static long hash(CharSequence str) {
+		return hash(str, SEED, MULTIPLIER);
+	}
+
+	/**
+	 * Returns a hash independent of {@link #hash(CharSequence)}, so that two different strings with the same hash are
+	 * still distinguished by the secondary hash.
+	 *
+	 * @param str the characters to hash.
+	 * @return the secondary 64-bit hash of the given characters.
+	 */
+	public static long secondaryHash(CharSequence str) {
+		return hash(str, SECONDARY_SEED, SECONDARY_MULTIPLIER);
+	}
+
+	private static long hash(CharSequence str, long seed, long multiplier) {
+
+		int length = str.length();
+		long hash = seed ^ (length * multiplier);
+
+		// combine four characters at a time
+		int i = 0;
+		for (; i + 4 <= length; i += 4) {
+			long block = str.charAt(i) |
+				(long) str.charAt(i + 1) << 16 |
+				(long) str.charAt(i + 2) << 32 |
+				(long) str.charAt(i + 3) << 48;
+
+			hash = Long.rotateLeft(hash ^ block * multiplier, 29) * multiplier;
+		}
+
+		for (; i < length; i++) {
+			hash = Long.rotateLeft(hash ^ str.charAt(i) * multiplier, 29) * multiplier;
+		}
+
+		return mix(hash);
+	}
+
+	/**
+	 * Finalizes a hash, so that every input bit affects every output bit (MurmurHash3 fmix64).
+	 */
+	private static long mix(long hash) {
+
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+
+		return hash;
+	}
+}
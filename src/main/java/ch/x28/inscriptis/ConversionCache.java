@@ -0,0 +1,314 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.w3c.dom.Document;
+
+/**
+ * A content-addressed cache for text representations. Documents are identified by two independent hashes and the
+ * length of their HTML content and a fingerprint of the {@link ParserConfig}, including its {@link CssProfile}, so
+ * that byte-identical documents are neither parsed nor converted again, while a collision of one hash does not return
+ * the text of another document.
+ * <p>
+ * The cache is bounded by the memory used for the cached texts. Entries are evicted in least recently used order, but
+ * a new entry only replaces entries that have been requested less frequently (TinyLFU admission), so that a stream of
+ * unique documents does not flush frequently requested ones. The cache is thread-safe.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * ConversionCache cache = new ConversionCache(64 * 1024 * 1024);
+ * String text = cache.getText(html, config, content -&gt; W3CDom.convert(Jsoup.parse(content)));
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class ConversionCache {
+
+	/**
+	 * The estimated memory used by an entry in addition to the text.
+	 */
+	private static final int ENTRY_OVERHEAD = 96;
+
+	/**
+	 * The average entry size assumed for dimensioning the frequency sketch.
+	 */
+	private static final int AVERAGE_ENTRY_SIZE = 8 * 1024;
+
+	private static class Key {
+
+		private final long hash;
+		private final long secondaryHash;
+		private final int length;
+		private final long fingerprint;
+
+		Key(long hash, long secondaryHash, int length, long fingerprint) {
+			this.hash = hash;
+			this.secondaryHash = secondaryHash;
+			this.length = length;
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key) obj;
+			return hash == other.hash && secondaryHash == other.secondaryHash && length == other.length &&
+				fingerprint == other.fingerprint;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(ContentHash.combine(hash, fingerprint));
+		}
+
+		long getSketchHash() {
+			return ContentHash.combine(hash, fingerprint);
+		}
+	}
+
+	/**
+	 * Estimates how often keys have been requested recently with a count-min sketch of saturating 4-bit counters. All
+	 * counters are halved periodically, so that the estimate reflects recent requests.
+	 */
+	private static class FrequencySketch {
+
+		private static final int DEPTH = 4;
+		private static final int MAX_COUNT = 15;
+
+		private final byte[] counters;
+		private final int mask;
+		private final int resetPeriod;
+		private int additions;
+
+		FrequencySketch(int width) {
+			counters = new byte[width * DEPTH];
+			mask = width - 1;
+			resetPeriod = 10 * width;
+		}
+
+		int frequency(long hash) {
+
+			int frequency = MAX_COUNT;
+			for (int row = 0; row < DEPTH; row++) {
+				frequency = Math.min(frequency, counters[index(hash, row)]);
+			}
+
+			return frequency;
+		}
+
+		void increment(long hash) {
+
+			for (int row = 0; row < DEPTH; row++) {
+				int index = index(hash, row);
+				if (counters[index] < MAX_COUNT) {
+					counters[index]++;
+				}
+			}
+
+			if (++additions >= resetPeriod) {
+				for (int i = 0; i < counters.length; i++) {
+					counters[i] >>= 1;
+				}
+				additions /= 2;
+			}
+		}
+
+		private int index(long hash, int row) {
+
+			int rowHash = (int) (ContentHash.combine(hash, row) >>> 32);
+			return row * (mask + 1) + (rowHash & mask);
+		}
+	}
+
+	private final long maximumWeight;
+	private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final FrequencySketch sketch;
+
+	private long weight;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	private long bytesSaved;
+
+	/**
+	 * Creates a cache that uses up to the given amount of memory for cached texts.
+	 *
+	 * @param maximumWeight the maximum memory in bytes used by the cached texts.
+	 */
+	public ConversionCache(long maximumWeight) {
+
+		if (maximumWeight <= 0) {
+			throw new IllegalArgumentException("maximumWeight must be positive: " + maximumWeight);
+		}
+
+		this.maximumWeight = maximumWeight;
+
+		long expectedEntries = Math.max(256, Math.min(1 << 22, maximumWeight / AVERAGE_ENTRY_SIZE));
+		sketch = new FrequencySketch(Integer.highestOneBit((int) expectedEntries - 1) << 1);
+	}
+
+	private static int getWeight(String text) {
+		return ENTRY_OVERHEAD + 2 * text.length();
+	}
+
+	/**
+	 * @return the total size of the HTML content in bytes (two per character) that has neither been parsed nor
+	 *         converted, because its text representation has been cached.
+	 */
+	public synchronized long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	/**
+	 * @return the number of cache entries.
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of entries that have been evicted.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the number of requests that have been served from the cache.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the ratio of requests served from the cache or {@code 0} if there has not been any request yet.
+	 */
+	public synchronized double getHitRate() {
+
+		long requestCount = hitCount + missCount;
+		return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+	}
+
+	/**
+	 * @return the number of requests that required a conversion.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the text representation of the given HTML content, either from the cache or by parsing and converting
+	 * it. Concurrent requests for the same uncached content may convert it more than once.
+	 *
+	 * @param html the HTML content.
+	 * @param config the ParserConfig configuration object used for the conversion.
+	 * @param parser the function used to parse the HTML content to a W3C document.
+	 * @return the text representation of the HTML content.
+	 */
+	public String getText(String html, ParserConfig config, Function<String, Document> parser) {
+
+		Key key = new Key(ContentHash.hash(html), ContentHash.secondaryHash(html), html.length(), config.getFingerprint());
+
+		synchronized (this) {
+			sketch.increment(key.getSketchHash());
+
+			String text = entries.get(key);
+			if (text != null) {
+				hitCount++;
+				bytesSaved += 2L * html.length();
+				return text;
+			}
+
+			missCount++;
+		}
+
+		Inscriptis inscriptis = new Inscriptis(parser.apply(html), config);
+		String text = inscriptis.getText();
+
+		// a text truncated by the time budget depends on the load of the machine
+		if (inscriptis.getExceededLimit() != ConversionLimit.TIME) {
+			synchronized (this) {
+				put(key, text);
+			}
+		}
+
+		return text;
+	}
+
+	/**
+	 * @return the memory in bytes currently used by the cached texts.
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Removes all entries. The statistics are retained.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		weight = 0;
+	}
+
+	private void put(Key key, String text) {
+
+		int entryWeight = getWeight(text);
+		if (entryWeight > maximumWeight || entries.containsKey(key)) {
+			return;
+		}
+
+		// determine the least recently used entries that need to be evicted
+		List<Key> victims = new ArrayList<>();
+		long freedWeight = 0;
+		int candidateFrequency = sketch.frequency(key.getSketchHash());
+
+		Iterator<Map.Entry<Key, String>> iterator = entries.entrySet().iterator();
+		while (weight - freedWeight + entryWeight > maximumWeight) {
+			Map.Entry<Key, String> victim = iterator.next();
+
+			// only admit the new entry if it has been requested more frequently than the entries it replaces
+			if (sketch.frequency(victim.getKey().getSketchHash()) > candidateFrequency) {
+				return;
+			}
+
+			victims.add(victim.getKey());
+			freedWeight += getWeight(victim.getValue());
+		}
+
+		for (Key victim : victims) {
+			entries.remove(victim);
+		}
+
+		evictionCount += victims.size();
+		weight += entryWeight - freedWeight;
+		entries.put(key, text);
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * The limits of a conversion that can be configured by {@link ParserConfig}.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public enum ConversionLimit {
+
+	/**
+	 * The nesting depth of elements; deeper elements are skipped.
+	 */
+	DEPTH,
+	/**
+	 * The number of visited nodes; the conversion stops once it is exceeded.
+	 */
+	NODES,
+	/**
+	 * The number of output characters; the text is truncated.
+	 */
+	OUTPUT_LENGTH,
+	/**
+	 * The number of cells of a table; further cells are skipped.
+	 */
+	TABLE_CELLS,
+	/**
+	 * The number of rows of a table; further rows are skipped.
+	 */
+	TABLE_ROWS,
+	/**
+	 * The wall-clock time of a conversion; the conversion stops once it is exceeded.
+	 */
+	TIME
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * Thrown if a conversion exceeds a {@link ConversionLimit} and {@link ParserConfig#isFailOnLimit()} is set.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class ConversionLimitException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @serial the exceeded limit.
+	 */
+	private final ConversionLimit limit;
+
+	/**
+	 * The text converted until the limit has been exceeded. It is not serialized, since it may be as large as the
+	 * limits allow.
+	 */
+	private final transient String partialText;
+
+	/**
+	 * @param limit the exceeded limit.
+	 * @param partialText the text converted until the limit has been exceeded.
+	 */
+	public ConversionLimitException(ConversionLimit limit, String partialText) {
+
+		super("Conversion limit exceeded: " + limit);
+
+		this.limit = limit;
+		this.partialText = partialText;
+	}
+
+	/**
+	 * @return the exceeded limit.
+	 */
+	public ConversionLimit getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return the text converted until the limit has been exceeded or {@code null}, if the exception has been
+	 *         deserialized.
+	 */
+	public String getPartialText() {
+		return partialText;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * Receives the {@link ConversionMetrics} of every converted document, e.g. to find documents that are expensive to
+ * convert.
+ * <p>
+ * The listener is called by the thread that converts the document, once the conversion has finished. It should return
+ * quickly, as it delays the conversion.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ * @see ParserConfig#setConversionListener(ConversionListener)
+ */
+@FunctionalInterface
+public interface ConversionListener {
+
+	/**
+	 * @param metrics the metrics of the converted document.
+	 */
+	void conversionFinished(ConversionMetrics metrics);
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * The metrics of the conversion of a single document, reported to a {@link ConversionListener}.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public final class ConversionMetrics {
+
+	/**
+	 * The counters updated by the conversion.
+	 */
+	static final class Counters {
+
+		int nodeCount;
+		long textLength;
+		int depth;
+		int maxDepth;
+		int tableCount;
+		int cellCount;
+		int rootLineCount;
+		int cellLineCount;
+		long outputLength;
+		int styleAttributeCount;
+		long tableLayoutNanos;
+
+		/**
+		 * Adds the counters of a conversion that continued from the current element. The lines it has written to the
+		 * root canvas are counted once they are appended to the root canvas of this conversion.
+		 *
+		 * @param counters the counters of the forked conversion.
+		 */
+		void add(Counters counters) {
+
+			nodeCount += counters.nodeCount;
+			textLength += counters.textLength;
+			maxDepth = Math.max(maxDepth, counters.maxDepth);
+			tableCount += counters.tableCount;
+			cellCount += counters.cellCount;
+			cellLineCount += counters.cellLineCount;
+			styleAttributeCount += counters.styleAttributeCount;
+			tableLayoutNanos += counters.tableLayoutNanos;
+		}
+
+		/**
+		 * Counts a line written to a canvas.
+		 *
+		 * @param line the line.
+		 * @param root whether the line has been written to the root canvas.
+		 */
+		void countLine(String line, boolean root) {
+
+			if (root) {
+				// the lines of the root canvas are separated by a line break
+				rootLineCount++;
+				outputLength += line.length() + 1;
+			} else {
+				cellLineCount++;
+			}
+		}
+	}
+
+	private final int nodeCount;
+	private final int maxDepth;
+	private final int tableCount;
+	private final int cellCount;
+	private final int lineCount;
+	private final long outputLength;
+	private final int styleAttributeCount;
+	private final long traversalNanos;
+	private final long tableLayoutNanos;
+
+	ConversionMetrics(Counters counters, long nanos) {
+
+		nodeCount = counters.nodeCount;
+		maxDepth = counters.maxDepth;
+		tableCount = counters.tableCount;
+		cellCount = counters.cellCount;
+		lineCount = counters.rootLineCount + counters.cellLineCount;
+		outputLength = Math.max(0, counters.outputLength - 1);
+		styleAttributeCount = counters.styleAttributeCount;
+		traversalNanos = nanos - counters.tableLayoutNanos;
+		tableLayoutNanos = counters.tableLayoutNanos;
+	}
+
+	/**
+	 * @return the number of table cells laid out.
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * @return the number of lines written, including the lines written to table cells.
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * @return the maximum depth of the elements visited.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return the number of document, element and text nodes visited; subtrees replayed from a {@link SubtreeCache}
+	 *         are not visited.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return the number of characters of the text representation, including trailing whitespace.
+	 */
+	public long getOutputLength() {
+		return outputLength;
+	}
+
+	/**
+	 * @return the number of style attributes parsed.
+	 */
+	public int getStyleAttributeCount() {
+		return styleAttributeCount;
+	}
+
+	/**
+	 * @return the number of tables laid out.
+	 */
+	public int getTableCount() {
+		return tableCount;
+	}
+
+	/**
+	 * @return the wall time in nanoseconds spent laying out tables.
+	 */
+	public long getTableLayoutNanos() {
+		return tableLayoutNanos;
+	}
+
+	/**
+	 * @return the wall time in nanoseconds spent traversing the document, excluding the table layout.
+	 */
+	public long getTraversalNanos() {
+		return traversalNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "ConversionMetrics [nodeCount=" + nodeCount + ", maxDepth=" + maxDepth + ", tableCount=" + tableCount
+			+ ", cellCount=" + cellCount + ", lineCount=" + lineCount + ", outputLength=" + outputLength
+			+ ", styleAttributeCount=" + styleAttributeCount + ", traversalNanos=" + traversalNanos
+			+ ", tableLayoutNanos=" + tableLayoutNanos + "]";
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * The immutable result of a conversion, which consists of the text representation and the exceeded
+ * {@link ConversionLimit}, if any. The result does not reference the converted document or the state of the
+ * conversion, so it is cheap to keep, e.g. in a cache.
+ * <p>
+ * The offsets of the lines are recorded while the text is written, so that any line or range of lines is accessed in
+ * constant time without splitting or copying the text, e.g. to display a page of a huge document. {@link #lineStart(int)}
+ * and {@link #lineEnd(int)} return the offsets without allocating, and a {@link LineView} is moved from page to page
+ * instead of allocating a view per page.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public final class ConversionResult {
+
+	private final String text;
+	private final ConversionLimit exceededLimit;
+	/**
+	 * The offsets of the first characters of the lines.
+	 */
+	private final int[] lineStarts;
+	private final SourceMap sourceMap;
+	private final DocumentMetadata metadata;
+
+	ConversionResult(String text, ConversionLimit exceededLimit, int[] lineStarts, SourceMap sourceMap, DocumentMetadata metadata) {
+		this.text = text;
+		this.exceededLimit = exceededLimit;
+		this.lineStarts = lineStarts;
+		this.sourceMap = sourceMap;
+		this.metadata = metadata;
+	}
+
+	private static void checkRange(int fromLine, int toLine, int lineCount) {
+
+		if (fromLine < 0 || toLine > lineCount || fromLine > toLine) {
+			throw new IndexOutOfBoundsException("lines " + fromLine + " to " + toLine + " of " + lineCount);
+		}
+	}
+
+	/**
+	 * Returns the first {@link ConversionLimit} exceeded by the conversion.
+	 *
+	 * @return the exceeded limit or {@code null}, if the whole document has been converted.
+	 */
+	public ConversionLimit getExceededLimit() {
+		return exceededLimit;
+	}
+
+	/**
+	 * Returns the title, headings and links of the document, whose ranges refer to this text.
+	 *
+	 * @return the metadata or {@code null}, unless enabled by {@link ParserConfig#setCollectMetadata(boolean)}.
+	 */
+	public DocumentMetadata getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Returns the map of the text to the source document, which references the text nodes of the converted document.
+	 *
+	 * @return the source map or {@code null}, unless enabled by {@link ParserConfig#setSourceMapping(boolean)}.
+	 */
+	public SourceMap getSourceMap() {
+		return sourceMap;
+	}
+
+	/**
+	 * @return the text representation of the HTML content.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Returns the given line without the line break.
+	 *
+	 * @param line the index of the line.
+	 * @return a new view of the line.
+	 * @throws IndexOutOfBoundsException if the line does not exist.
+	 */
+	public CharSequence line(int line) {
+		return range(line, line + 1);
+	}
+
+	/**
+	 * @return the number of lines of the text, which is 0 for an empty text.
+	 */
+	public int lineCount() {
+		return lineStarts.length;
+	}
+
+	/**
+	 * Returns the offset after the last character of the given line, i.e. of its line break or the end of the text.
+	 *
+	 * @param line the index of the line.
+	 * @return the end offset of the line.
+	 * @throws IndexOutOfBoundsException if the line does not exist.
+	 */
+	public int lineEnd(int line) {
+
+		checkRange(line, line + 1, lineStarts.length);
+		return line + 1 < lineStarts.length ? lineStarts[line + 1] - 1 : text.length();
+	}
+
+	/**
+	 * Returns the offset of the first character of the given line.
+	 *
+	 * @param line the index of the line.
+	 * @return the start offset of the line.
+	 * @throws IndexOutOfBoundsException if the line does not exist.
+	 */
+	public int lineStart(int line) {
+
+		checkRange(line, line + 1, lineStarts.length);
+		return lineStarts[line];
+	}
+
+	/**
+	 * Returns the given range of lines, which are separated by line breaks, without the line break of the last line.
+	 *
+	 * @param fromLine the index of the first line.
+	 * @param toLine the index after the last line.
+	 * @return a new view of the lines.
+	 * @throws IndexOutOfBoundsException if the range is not within the lines of the text.
+	 * @see LineView#moveTo(int, int)
+	 */
+	public CharSequence range(int fromLine, int toLine) {
+		return newLineView().moveTo(fromLine, toLine);
+	}
+
+	/**
+	 * Returns a view of the text, which is moved to a range of lines by {@link LineView#moveTo(int, int)}.
+	 *
+	 * @return a new, empty view.
+	 */
+	public LineView newLineView() {
+		return new LineView(this);
+	}
+
+	/**
+	 * @return the text representation of the HTML content.
+	 */
+	@Override
+	public String toString() {
+		return text;
+	}
+
+	/**
+	 * A view of a range of lines of a {@link ConversionResult}, which is moved from range to range without allocating,
+	 * e.g. while paging through a huge text. The view is not thread-safe.
+	 */
+	public static final class LineView implements CharSequence {
+
+		private final ConversionResult result;
+		private int start;
+		private int end;
+
+		private LineView(ConversionResult result) {
+			this.result = result;
+		}
+
+		@Override
+		public char charAt(int index) {
+
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("index " + index + " of " + (end - start));
+			}
+
+			return result.text.charAt(start + index);
+		}
+
+		/**
+		 * @return the offset of the view in the text after the last character.
+		 */
+		public int end() {
+			return end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		/**
+		 * Moves the view to the given range of lines, which are separated by line breaks, without the line break of the
+		 * last line.
+		 *
+		 * @param fromLine the index of the first line.
+		 * @param toLine the index after the last line.
+		 * @return this view.
+		 * @throws IndexOutOfBoundsException if the range is not within the lines of the text.
+		 */
+		public LineView moveTo(int fromLine, int toLine) {
+
+			checkRange(fromLine, toLine, result.lineStarts.length);
+			if (fromLine == toLine) {
+				start = 0;
+				end = 0;
+			} else {
+				start = result.lineStarts[fromLine];
+				end = result.lineEnd(toLine - 1);
+			}
+
+			return this;
+		}
+
+		/**
+		 * @return the offset of the view in the text.
+		 */
+		public int start() {
+			return start;
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+
+			if (from < 0 || to > end - start || from > to) {
+				throw new IndexOutOfBoundsException("range " + from + " to " + to + " of " + (end - start));
+			}
+
+			return result.text.subSequence(start + from, start + to);
+		}
+
+		@Override
+		public String toString() {
+			return result.text.substring(start, end);
+		}
+	}
+}
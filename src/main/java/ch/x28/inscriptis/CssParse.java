@@ -50,6 +50,7 @@ class CssParse {
 	 */
 	public static HtmlElement getStyleAttribute(String styleAttribute, HtmlElement htmlElement) {
 
+		Object event = FlightRecording.beginStyleParse();
 		HtmlElement customHtmlElement = htmlElement.clone();
 
 		for (String styleDirective : styleAttribute.toLowerCase().split(";")) {
@@ -65,32 +66,69 @@ class CssParse {
 			String key = keyValuePair[0].trim();
 			String value = keyValuePair[1].trim();
 
-			String fieldName = key.replace("-webkit-", "");
-
-			switch (fieldName) {
-				case "display":
-					attributeDisplay(value, customHtmlElement);
-					break;
-				case "margin-top":
-					attributeMarginTop(value, customHtmlElement);
-					break;
-				case "margin-bottom":
-					attributeMarginBottom(value, customHtmlElement);
-					break;
-				case "padding-left":
-					attributePaddingLeft(value, customHtmlElement);
-					break;
-				case "white-space":
-					attributeWhiteSpace(value, customHtmlElement);
-					break;
-				default:
-					break;
-			}
+			applyProperty(key, value, customHtmlElement);
 		}
 
+		FlightRecording.commitStyleParse(event, styleAttribute);
 		return customHtmlElement;
 	}
 
+	/**
+	 * Applies a style property to the given HTML element. Unsupported properties are ignored.
+	 *
+	 * @param key the lower case name of the property.
+	 * @param value the lower case value of the property.
+	 * @param htmlElement the HtmlElement to which the property is applied.
+	 */
+	static void applyProperty(String key, String value, HtmlElement htmlElement) {
+
+		switch (getPropertyName(key)) {
+			case "display":
+				attributeDisplay(value, htmlElement);
+				break;
+			case "margin-top":
+				attributeMarginTop(value, htmlElement);
+				break;
+			case "margin-bottom":
+				attributeMarginBottom(value, htmlElement);
+				break;
+			case "padding-left":
+				attributePaddingLeft(value, htmlElement);
+				break;
+			case "white-space":
+				attributeWhiteSpace(value, htmlElement);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * @param key the lower case name of a property.
+	 * @return the name of the property without vendor prefix.
+	 */
+	static String getPropertyName(String key) {
+		return key.replace("-webkit-", "");
+	}
+
+	/**
+	 * @param key the lower case name of a property.
+	 * @return whether the property is supported by {@link #applyProperty(String, String, HtmlElement)}.
+	 */
+	static boolean isSupportedProperty(String key) {
+
+		switch (getPropertyName(key)) {
+			case "display":
+			case "margin-top":
+			case "margin-bottom":
+			case "padding-left":
+			case "white-space":
+				return true;
+			default:
+				return false;
+		}
+	}
+
 	/**
 	 * Set the display value.
 	 */
@@ -17,6 +17,7 @@ package ch.x28.inscriptis;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import ch.x28.inscriptis.HtmlProperties.Display;
 import ch.x28.inscriptis.HtmlProperties.WhiteSpace;
@@ -92,15 +93,30 @@ public class CssProfile {
 	}
 
 	private Map<String, HtmlElement> settings;
+	private long fingerprint;
 
 	private CssProfile(Map<String, HtmlElement> settings) {
+
 		this.settings = settings;
+
+		fingerprint = 0;
+		for (Map.Entry<String, HtmlElement> entry : new TreeMap<>(settings).entrySet()) {
+			fingerprint = ContentHash.combine(fingerprint, entry.getKey());
+			fingerprint = ContentHash.combine(fingerprint, entry.getValue().getFingerprint());
+		}
 	}
 
 	public HtmlElement get(String tag) {
 		return settings.get(tag);
 	}
 
+	/**
+	 * @return a hash of all CSS definitions that is stable across JVMs.
+	 */
+	long getFingerprint() {
+		return fingerprint;
+	}
+
 	public HtmlElement getOrDefault(String tag, HtmlElement defaultElement) {
 
 		HtmlElement htmlElement = settings.get(tag);
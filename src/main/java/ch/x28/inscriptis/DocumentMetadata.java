@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.List;
+
+/**
+ * The metadata of a document collected during the conversion, if enabled by
+ * {@link ParserConfig#setCollectMetadata(boolean)}: the title, the outline of the headings and the links. Headings and
+ * links refer to their range in the text representation, unless they have not been rendered, e.g. since the text has
+ * been truncated.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public final class DocumentMetadata {
+
+	/**
+	 * A heading of the outline.
+	 */
+	public static final class Heading extends Range {
+
+		private final int level;
+
+		Heading(int level, String text, int textStart, int textEnd) {
+			super(text, textStart, textEnd);
+			this.level = level;
+		}
+
+		/**
+		 * @return the level of the heading from 1 (<code>h1</code>) to 6 (<code>h6</code>).
+		 */
+		public int getLevel() {
+			return level;
+		}
+	}
+
+	/**
+	 * A link with a <code>href</code> attribute.
+	 */
+	public static final class Link extends Range {
+
+		private final String href;
+
+		Link(String href, String text, int textStart, int textEnd) {
+			super(text, textStart, textEnd);
+			this.href = href;
+		}
+
+		/**
+		 * @return the value of the <code>href</code> attribute.
+		 */
+		public String getHref() {
+			return href;
+		}
+	}
+
+	/**
+	 * The content of an element and its range in the text representation.
+	 */
+	public abstract static class Range {
+
+		private final String text;
+		private final int textStart;
+		private final int textEnd;
+
+		Range(String text, int textStart, int textEnd) {
+			this.text = text;
+			this.textStart = textStart;
+			this.textEnd = textEnd;
+		}
+
+		/**
+		 * @return the text content of the element with collapsed whitespace.
+		 */
+		public String getText() {
+			return text;
+		}
+
+		/**
+		 * @return the offset after the last character of the element in the text representation or -1, if it has not
+		 *         been rendered.
+		 */
+		public int getTextEnd() {
+			return textEnd;
+		}
+
+		/**
+		 * @return the offset of the first character of the element in the text representation or -1, if it has not
+		 *         been rendered.
+		 */
+		public int getTextStart() {
+			return textStart;
+		}
+	}
+
+	private final String title;
+	private final List<Heading> headings;
+	private final List<Link> links;
+
+	DocumentMetadata(String title, List<Heading> headings, List<Link> links) {
+		this.title = title;
+		this.headings = headings;
+		this.links = links;
+	}
+
+	/**
+	 * @return the headings in document order.
+	 */
+	public List<Heading> getHeadings() {
+		return headings;
+	}
+
+	/**
+	 * @return the links in document order.
+	 */
+	public List<Link> getLinks() {
+		return links;
+	}
+
+	/**
+	 * @return the content of the first <code>title</code> element or {@code null}.
+	 */
+	public String getTitle() {
+		return title;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * Emits Java Flight Recorder events for conversions, table layouts and slow style parsing.
+ * <p>
+ * The Java 8 version of this class does not record anything. On Java 11 and later, the multi-release JAR provides a
+ * version that emits the events, provided that they are enabled in the recording. The events are begun before and
+ * committed after the recorded operation; begin methods return {@code null} if the event is disabled.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+class FlightRecording {
+
+	/**
+	 * @return the begun conversion event or {@code null}.
+	 */
+	static Object beginConversion() {
+		return null;
+	}
+
+	/**
+	 * @return the begun style parsing event or {@code null}.
+	 */
+	static Object beginStyleParse() {
+		return null;
+	}
+
+	/**
+	 * @return the begun table layout event or {@code null}.
+	 */
+	static Object beginTableLayout() {
+		return null;
+	}
+
+	/**
+	 * @param event the event returned by {@link #beginConversion()}.
+	 * @param counters the counters of the conversion.
+	 */
+	static void commitConversion(Object event, ConversionMetrics.Counters counters) {
+		// not recorded on Java 8
+	}
+
+	/**
+	 * @param event the event returned by {@link #beginStyleParse()}.
+	 * @param styleAttribute the parsed style attribute.
+	 */
+	static void commitStyleParse(Object event, String styleAttribute) {
+		// not recorded on Java 8
+	}
+
+	/**
+	 * @param event the event returned by {@link #beginTableLayout()}.
+	 * @param rows the number of rows.
+	 * @param columns the number of columns.
+	 * @param cells the number of cells.
+	 * @param textLength the length of the text representation of the table.
+	 */
+	static void commitTableLayout(Object event, int rows, int columns, int cells, int textLength) {
+		// not recorded on Java 8
+	}
+}
@@ -159,6 +159,24 @@ class HtmlElement {
 			limitWhitespaceAffixes);
 	}
 
+	/**
+	 * @return a hash of the CSS properties that is stable across JVMs.
+	 */
+	long getFingerprint() {
+
+		long hash = ContentHash.combine(0, tag);
+		hash = ContentHash.combine(hash, prefix);
+		hash = ContentHash.combine(hash, suffix);
+		hash = ContentHash.combine(hash, display == null ? 0 : display.getValue());
+		hash = ContentHash.combine(hash, whitespace == null ? 0 : whitespace.getValue());
+		hash = ContentHash.combine(hash, marginBefore);
+		hash = ContentHash.combine(hash, marginAfter);
+		hash = ContentHash.combine(hash, padding);
+		hash = ContentHash.combine(hash, limitWhitespaceAffixes ? 1 : 0);
+
+		return hash;
+	}
+
 	public Display getDisplay() {
 		return display;
 	}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes HTML character references. The named references cover the Latin-1 set and the most common typographic
+ * characters rather than the complete HTML5 table.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+class HtmlEntities {
+
+	private static final Map<String, String> ENTITIES = new HashMap<>();
+
+	static {
+		String[] latin1 = { "nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect", "uml", "copy", "ordf",
+			"laquo", "not", "shy", "reg", "macr", "deg", "plusmn", "sup2", "sup3", "acute", "micro", "para", "middot",
+			"cedil", "sup1", "ordm", "raquo", "frac14", "frac12", "frac34", "iquest", "Agrave", "Aacute", "Acirc",
+			"Atilde", "Auml", "Aring", "AElig", "Ccedil", "Egrave", "Eacute", "Ecirc", "Euml", "Igrave", "Iacute",
+			"Icirc", "Iuml", "ETH", "Ntilde", "Ograve", "Oacute", "Ocirc", "Otilde", "Ouml", "times", "Oslash",
+			"Ugrave", "Uacute", "Ucirc", "Uuml", "Yacute", "THORN", "szlig", "agrave", "aacute", "acirc", "atilde",
+			"auml", "aring", "aelig", "ccedil", "egrave", "eacute", "ecirc", "euml", "igrave", "iacute", "icirc",
+			"iuml", "eth", "ntilde", "ograve", "oacute", "ocirc", "otilde", "ouml", "divide", "oslash", "ugrave",
+			"uacute", "ucirc", "uuml", "yacute", "thorn", "yuml" };
+
+		for (int i = 0; i < latin1.length; i++) {
+			ENTITIES.put(latin1[i], String.valueOf((char) (0xA0 + i)));
+		}
+
+		Object[] other = {
+			"quot", 0x22, "amp", 0x26, "apos", 0x27, "lt", 0x3C, "gt", 0x3E,
+			"OElig", 0x152, "oelig", 0x153, "Scaron", 0x160, "scaron", 0x161, "Yuml", 0x178, "fnof", 0x192,
+			"circ", 0x2C6, "tilde", 0x2DC, "ensp", 0x2002, "emsp", 0x2003, "thinsp", 0x2009, "zwnj", 0x200C,
+			"zwj", 0x200D, "lrm", 0x200E, "rlm", 0x200F, "ndash", 0x2013, "mdash", 0x2014, "lsquo", 0x2018,
+			"rsquo", 0x2019, "sbquo", 0x201A, "ldquo", 0x201C, "rdquo", 0x201D, "bdquo", 0x201E, "dagger", 0x2020,
+			"Dagger", 0x2021, "bull", 0x2022, "hellip", 0x2026, "permil", 0x2030, "prime", 0x2032, "Prime", 0x2033,
+			"lsaquo", 0x2039, "rsaquo", 0x203A, "euro", 0x20AC, "trade", 0x2122, "larr", 0x2190, "uarr", 0x2191,
+			"rarr", 0x2192, "darr", 0x2193, "harr", 0x2194, "minus", 0x2212, "le", 0x2264, "ge", 0x2265,
+			"ne", 0x2260, "infin", 0x221E, "asymp", 0x2248, "hearts", 0x2665, "check", 0x2713 };
+
+		for (int i = 0; i < other.length; i += 2) {
+			ENTITIES.put((String) other[i], String.valueOf((char) (int) (Integer) other[i + 1]));
+		}
+	}
+
+	/**
+	 * Decodes the character references of the given text. Unknown references are retained.
+	 *
+	 * @param text the text.
+	 * @return the decoded text.
+	 */
+	static String decode(String text) {
+
+		int ampersand = text.indexOf('&');
+		if (ampersand < 0) {
+			return text;
+		}
+
+		StringBuilder result = new StringBuilder(text.length());
+		int position = 0;
+		while (ampersand >= 0) {
+			result.append(text, position, ampersand);
+			position = ampersand + 1;
+
+			int end = position;
+			while (end < text.length() && end - position < 32 && Character.isLetterOrDigit(text.charAt(end)) ||
+				end == position && end < text.length() && text.charAt(end) == '#') {
+				end++;
+			}
+
+			String name = text.substring(position, end);
+			String decoded = name.startsWith("#") ? decodeNumeric(name.substring(1)) : ENTITIES.get(name);
+			boolean semicolon = end < text.length() && text.charAt(end) == ';';
+
+			if (decoded != null && (semicolon || name.startsWith("#") || isLegacy(name))) {
+				result.append(decoded);
+				position = semicolon ? end + 1 : end;
+			} else {
+				result.append('&');
+			}
+
+			ampersand = text.indexOf('&', position);
+		}
+
+		result.append(text, position, text.length());
+		return result.toString();
+	}
+
+	/**
+	 * @return the character of a decimal ({@code 38}) or hexadecimal ({@code x26}) reference or {@code null}.
+	 */
+	private static String decodeNumeric(String reference) {
+
+		try {
+			int codePoint = reference.startsWith("x") || reference.startsWith("X")
+				? Integer.parseInt(reference.substring(1), 16)
+				: Integer.parseInt(reference);
+
+			if (codePoint == 0 || !Character.isValidCodePoint(codePoint)) {
+				return "\uFFFD";
+			}
+
+			return new String(Character.toChars(codePoint));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return whether the reference is also recognized without a trailing semicolon.
+	 */
+	private static boolean isLegacy(String name) {
+
+		switch (name) {
+			case "amp":
+			case "lt":
+			case "gt":
+			case "quot":
+			case "nbsp":
+			case "copy":
+			case "reg":
+				return true;
+			default:
+				return false;
+		}
+	}
+}
@@ -0,0 +1,1002 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * A lenient HTML parser that builds the W3C document converted by {@link Inscriptis}, so that no third party parser
+ * is required.
+ * <p>
+ * The parser consumes its input in chunks and never holds the whole document as a {@code String}. Bytes are decoded
+ * with the encoding declared by a byte order mark or a {@code <meta>} tag within the first 1024 bytes and UTF-8
+ * otherwise; files are memory-mapped. The tree construction follows the HTML specification for the cases relevant for
+ * the text representation: the {@code html}, {@code head} and {@code body} elements are implied, paragraphs, list
+ * items and table cells are closed implicitly and rows and sections are inserted into tables. Other recoveries, e.g.
+ * moving misplaced content in front of its table or reopening formatting elements, are not implemented.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * Document document = HtmlParser.parse(Paths.get("page.html"));
+ * String text = new Inscriptis(document).getText();
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public final class HtmlParser {
+
+	/**
+	 * The number of characters decoded and parsed at once.
+	 */
+	private static final int CHUNK_SIZE = 8192;
+
+	private static final DOMImplementation DOM_IMPLEMENTATION;
+
+	private static final Set<String> VOID_ELEMENTS = set("area", "base", "basefont", "bgsound", "br", "col", "embed",
+		"frame", "hr", "img", "input", "keygen", "link", "meta", "param", "source", "track", "wbr");
+	private static final Set<String> RAW_TEXT_ELEMENTS = set("iframe", "noembed", "noframes", "script", "style",
+		"textarea", "title", "xmp");
+	private static final Set<String> ESCAPABLE_RAW_TEXT_ELEMENTS = set("textarea", "title");
+	private static final Set<String> HEAD_ELEMENTS = set("base", "basefont", "bgsound", "link", "meta", "noframes",
+		"script", "style", "template", "title");
+	private static final Set<String> CLOSING_P_ELEMENTS = set("address", "article", "aside", "blockquote", "center",
+		"details", "dialog", "dir", "div", "dl", "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3",
+		"h4", "h5", "h6", "header", "hgroup", "hr", "li", "dd", "dt", "main", "menu", "nav", "ol", "p", "pre",
+		"section", "summary", "table", "ul");
+	private static final Set<String> HEADINGS = set("h1", "h2", "h3", "h4", "h5", "h6");
+	private static final Set<String> TABLE_ELEMENTS = set("table", "tbody", "tfoot", "thead", "tr");
+	private static final Set<String> TABLE_SECTIONS = set("tbody", "tfoot", "thead");
+	private static final Set<String> CELLS = set("td", "th");
+	/**
+	 * The elements that bound the search for an open element, e.g. a paragraph outside of a table cell is not closed by
+	 * an element within the cell.
+	 */
+	private static final Set<String> SCOPE_BOUNDARIES = set("applet", "caption", "html", "marquee", "object", "table",
+		"td", "th", "template");
+	private static final Set<String> LIST_ITEM_BOUNDARIES = set(SCOPE_BOUNDARIES, "ol", "ul");
+	private static final Set<String> DEFINITION_BOUNDARIES = set(SCOPE_BOUNDARIES, "dl");
+	private static final Set<String> TABLE_BOUNDARIES = set("html", "table");
+	private static final Set<String> DOCUMENT_BOUNDARIES = set("html");
+
+	static {
+		try {
+			DOM_IMPLEMENTATION = DocumentBuilderFactory.newInstance().newDocumentBuilder().getDOMImplementation();
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private final Document document;
+	private final List<Element> openElements = new ArrayList<>();
+	/**
+	 * The open elements for identity lookups by {@link #isOpen(Node)}.
+	 */
+	private final Set<Node> openNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean finished;
+	private Element html;
+	private Element head;
+	private Element body;
+
+	/**
+	 * The characters that have not been parsed yet.
+	 */
+	private final StringBuilder input = new StringBuilder();
+	/**
+	 * The position in {@link #input} from which an incomplete token is searched for its end.
+	 */
+	private int scanPosition;
+	/**
+	 * The text of the current text node, which is added to the document at the next tag.
+	 */
+	private final StringBuilder text = new StringBuilder();
+	/**
+	 * The element whose content is parsed as raw text, e.g. {@code script}, or {@code null}.
+	 */
+	private String rawTextElement;
+	/**
+	 * Whether a line break following the start tag of the current element is ignored, e.g. for {@code pre}.
+	 */
+	private boolean skipLineBreak;
+
+	/**
+	 * Creates a parser for a new document.
+	 */
+	HtmlParser() {
+		document = DOM_IMPLEMENTATION.createDocument(null, null, null);
+	}
+
+	/**
+	 * Parses the given HTML content.
+	 *
+	 * @param html the HTML content.
+	 * @return the W3C document.
+	 */
+	public static Document parse(CharSequence html) {
+
+		HtmlParser parser = new HtmlParser();
+		for (int start = 0; start < html.length(); start += CHUNK_SIZE) {
+			parser.feed(html.subSequence(start, Math.min(html.length(), start + CHUNK_SIZE)));
+		}
+
+		return parser.finish();
+	}
+
+	/**
+	 * Parses the given bytes, which are decoded with the declared encoding or UTF-8.
+	 *
+	 * @param bytes the HTML content; the bytes are consumed.
+	 * @return the W3C document.
+	 */
+	public static Document parse(ByteBuffer bytes) {
+		return parse(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the given bytes, which are decoded with the declared encoding or the fallback.
+	 *
+	 * @param bytes the HTML content; the bytes are consumed.
+	 * @param fallback the encoding used if the document does not declare one.
+	 * @return the W3C document.
+	 */
+	public static Document parse(ByteBuffer bytes, Charset fallback) {
+
+		CharsetSniffer sniffer = new CharsetSniffer(bytes, fallback);
+		bytes.position(bytes.position() + sniffer.getBomLength());
+
+		HtmlParser parser = new HtmlParser();
+		CharsetDecoder decoder = newDecoder(sniffer.getCharset());
+		CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+
+		decoder.decode(bytes, chars, true);
+		while (true) {
+			chars.flip();
+			parser.feed(chars);
+			chars.clear();
+
+			if (!bytes.hasRemaining()) {
+				break;
+			}
+			decoder.decode(bytes, chars, true);
+		}
+
+		decoder.flush(chars);
+		chars.flip();
+		parser.feed(chars);
+
+		return parser.finish();
+	}
+
+	/**
+	 * Parses the given stream, which is decoded with the declared encoding or UTF-8. The stream is not closed.
+	 *
+	 * @param in the HTML content.
+	 * @return the W3C document.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	public static Document parse(InputStream in) throws IOException {
+		return parse(in, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the given stream, which is decoded with the declared encoding or the fallback. The stream is not closed.
+	 *
+	 * @param in the HTML content.
+	 * @param fallback the encoding used if the document does not declare one.
+	 * @return the W3C document.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	public static Document parse(InputStream in, Charset fallback) throws IOException {
+
+		ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+
+		// read the bytes searched for the declared encoding
+		boolean eof = false;
+		while (!eof && bytes.position() < CharsetSniffer.PRESCAN_LENGTH) {
+			eof = read(in, bytes);
+		}
+
+		bytes.flip();
+		CharsetSniffer sniffer = new CharsetSniffer(bytes, fallback);
+		bytes.position(sniffer.getBomLength());
+
+		HtmlParser parser = new HtmlParser();
+		CharsetDecoder decoder = newDecoder(sniffer.getCharset());
+		CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+
+		while (true) {
+			decoder.decode(bytes, chars, eof);
+			chars.flip();
+			parser.feed(chars);
+			chars.clear();
+
+			if (eof && !bytes.hasRemaining()) {
+				break;
+			}
+
+			bytes.compact();
+			eof = read(in, bytes);
+			bytes.flip();
+		}
+
+		decoder.flush(chars);
+		chars.flip();
+		parser.feed(chars);
+
+		return parser.finish();
+	}
+
+	/**
+	 * Parses the given file, which is decoded with the declared encoding or UTF-8.
+	 *
+	 * @param path the HTML file.
+	 * @return the W3C document.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static Document parse(Path path) throws IOException {
+		return parse(path, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses the given file, which is decoded with the declared encoding or the fallback. The file is memory-mapped,
+	 * unless it exceeds 2 GB.
+	 *
+	 * @param path the HTML file.
+	 * @param fallback the encoding used if the document does not declare one.
+	 * @return the W3C document.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static Document parse(Path path, Charset fallback) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return parse(Channels.newInputStream(channel), fallback);
+			}
+
+			return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), fallback);
+		}
+	}
+
+	private static boolean isNameStart(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+	}
+
+	/**
+	 * @return whether the given name is a valid XML name, which is required by the W3C document.
+	 */
+	private static boolean isValidName(String name) {
+
+		if (name.isEmpty() || !(Character.isLetter(name.charAt(0)) || name.charAt(0) == '_')) {
+			return false;
+		}
+
+		for (int i = 1; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (!Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != '.' && c != ':') {
+				return false;
+			}
+		}
+
+		return name.indexOf(':') < 0 || name.indexOf(':') == name.lastIndexOf(':') && !name.endsWith(":");
+	}
+
+	private static CharsetDecoder newDecoder(Charset charset) {
+
+		return charset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Reads bytes from the stream into the remaining space of the buffer.
+	 *
+	 * @return whether the end of the stream has been reached.
+	 */
+	private static boolean read(InputStream in, ByteBuffer bytes) throws IOException {
+
+		int read = in.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+		if (read < 0) {
+			return true;
+		}
+
+		bytes.position(bytes.position() + read);
+		return false;
+	}
+
+	private static Set<String> set(Set<String> base, String... values) {
+
+		Set<String> set = new HashSet<>(base);
+		set.addAll(Arrays.asList(values));
+		return set;
+	}
+
+	private static Set<String> set(String... values) {
+		return new HashSet<>(Arrays.asList(values));
+	}
+
+	/**
+	 * Parses the next chunk of the HTML content. Tokens may span chunks.
+	 *
+	 * @param chunk the characters following the previous chunk.
+	 */
+	void feed(CharSequence chunk) {
+
+		input.append(chunk);
+		int position = tokenize(false);
+
+		// remove the parsed characters
+		input.delete(0, position);
+		scanPosition = Math.max(0, scanPosition - position);
+	}
+
+	/**
+	 * Parses the remaining content once all chunks have been fed.
+	 *
+	 * @return the W3C document.
+	 */
+	Document finish() {
+
+		tokenize(true);
+		input.setLength(0);
+		flushText();
+		ensureBody();
+
+		finished = true;
+		openElements.clear();
+		openNodes.clear();
+
+		return document;
+	}
+
+	/**
+	 * @return the document built so far.
+	 */
+	Document getDocument() {
+		return document;
+	}
+
+	/**
+	 * @return whether the {@code body} element has been created, i.e. the {@code head} element is complete.
+	 */
+	boolean hasBody() {
+		return body != null;
+	}
+
+	/**
+	 * Returns whether further children may be added to the given node, since it has not been closed yet.
+	 *
+	 * @param node a node of the document.
+	 * @return {@code true}, if the node is still open.
+	 */
+	boolean isOpen(Node node) {
+		return !finished && (node == document || node == head && body == null || openNodes.contains(node));
+	}
+
+	/**
+	 * Closes the open element with the given name and all elements opened after it, provided that the element is
+	 * found before one of the given boundaries.
+	 *
+	 * @return whether the element has been closed.
+	 */
+	private boolean close(String name, Set<String> boundaries) {
+
+		int index = find(name, boundaries);
+		if (index < 0) {
+			return false;
+		}
+
+		while (openElements.size() > index) {
+			pop();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Closes the elements that are implicitly closed by the start tag of the given element.
+	 */
+	private void closeImplied(String name) {
+
+		if (CLOSING_P_ELEMENTS.contains(name)) {
+			close("p", SCOPE_BOUNDARIES);
+		}
+
+		if (HEADINGS.contains(name) && HEADINGS.contains(current().getNodeName())) {
+			pop();
+		}
+
+		switch (name) {
+			case "li":
+				close("li", LIST_ITEM_BOUNDARIES);
+				break;
+			case "dd":
+			case "dt":
+				close("dd", DEFINITION_BOUNDARIES);
+				close("dt", DEFINITION_BOUNDARIES);
+				break;
+			case "option":
+				if (current().getNodeName().equals("option")) {
+					pop();
+				}
+				break;
+			case "a":
+				close("a", SCOPE_BOUNDARIES);
+				break;
+			default:
+				break;
+		}
+	}
+
+	private Element createElement(String name, List<String[]> attributes) {
+
+		Element element = document.createElement(name);
+		for (String[] attribute : attributes) {
+			if (isValidName(attribute[0]) && !element.hasAttribute(attribute[0])) {
+				element.setAttribute(attribute[0], HtmlEntities.decode(attribute[1]));
+			}
+		}
+
+		return element;
+	}
+
+	private Element current() {
+		return openElements.get(openElements.size() - 1);
+	}
+
+	/**
+	 * Handles an end tag.
+	 */
+	private void endTag(String name) {
+
+		flushText();
+
+		switch (name) {
+			case "html":
+			case "body":
+				// content following the body is added to the body
+				return;
+			case "head":
+				if (!openElements.isEmpty() && current() == head) {
+					pop();
+				}
+				return;
+			case "br":
+				startTag("br", new ArrayList<>());
+				return;
+			case "p":
+				// an end tag without an open paragraph inserts an empty paragraph
+				if (!close(name, SCOPE_BOUNDARIES) && body != null) {
+					startTag(name, new ArrayList<>());
+					pop();
+				}
+				return;
+			default:
+				break;
+		}
+
+		if (HEADINGS.contains(name)) {
+			// any heading is closed by the end tag of a heading
+			for (int i = openElements.size() - 1; i >= 0 && !SCOPE_BOUNDARIES.contains(openElements.get(i).getNodeName()); i--) {
+				if (HEADINGS.contains(openElements.get(i).getNodeName())) {
+					close(openElements.get(i).getNodeName(), SCOPE_BOUNDARIES);
+					break;
+				}
+			}
+		} else if (name.equals("table")) {
+			close(name, DOCUMENT_BOUNDARIES);
+		} else if (TABLE_SECTIONS.contains(name) || name.equals("tr") || CELLS.contains(name)) {
+			close(name, TABLE_BOUNDARIES);
+		} else {
+			close(name, SCOPE_BOUNDARIES);
+		}
+	}
+
+	private void ensureBody() {
+
+		if (body != null) {
+			return;
+		}
+
+		ensureHtml();
+		if (head == null) {
+			head = document.createElement("head");
+			html.appendChild(head);
+		}
+
+		while (openElements.size() > 1) {
+			pop();
+		}
+
+		body = document.createElement("body");
+		html.appendChild(body);
+		push(body);
+	}
+
+	private void ensureHtml() {
+
+		if (html == null) {
+			html = document.createElement("html");
+			document.appendChild(html);
+			push(html);
+		}
+	}
+
+	/**
+	 * @return the index of the open element with the given name or -1, if a boundary is found first.
+	 */
+	private int find(String name, Set<String> boundaries) {
+
+		for (int i = openElements.size() - 1; i >= 0; i--) {
+			String openName = openElements.get(i).getNodeName();
+			if (openName.equals(name)) {
+				return i;
+			}
+
+			if (boundaries.contains(openName)) {
+				return -1;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Adds the current text to the document.
+	 */
+	private void flushText() {
+
+		if (text.length() == 0) {
+			return;
+		}
+
+		String data = text.toString();
+		text.setLength(0);
+
+		if (body == null && (openElements.isEmpty() || current() == html || current() == head)) {
+			if (StringUtils.isBlank(data)) {
+				return;
+			}
+			ensureBody();
+		}
+
+		current().appendChild(document.createTextNode(HtmlEntities.decode(data)));
+	}
+
+	/**
+	 * @return the index of the end of the tag starting at the given position or -1, if the tag is incomplete.
+	 */
+	private int findTagEnd(int start) {
+
+		char quote = 0;
+		char previous = 0;
+		for (int i = start; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '>') {
+				return i;
+			} else if ((c == '"' || c == '\'') && previous == '=') {
+				quote = c;
+			}
+
+			if (!Character.isWhitespace(c)) {
+				previous = c;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @return the index of the given string starting the search at {@link #scanPosition} or -1, if the string is not
+	 *         found. The next search resumes where this search stopped.
+	 */
+	private int indexOf(String str, int from) {
+
+		int index = input.indexOf(str, Math.max(from, scanPosition));
+		scanPosition = index < 0 ? Math.max(from, input.length() - str.length() + 1) : 0;
+
+		return index;
+	}
+
+	/**
+	 * Parses the start tag between the given positions, e.g. {@code div class="a"}.
+	 */
+	private void parseStartTag(int start, int end) {
+
+		int position = start;
+		while (position < end && !Character.isWhitespace(input.charAt(position)) && input.charAt(position) != '/') {
+			position++;
+		}
+		String name = input.substring(start, position).toLowerCase(Locale.ROOT);
+
+		List<String[]> attributes = new ArrayList<>();
+		while (position < end) {
+			char c = input.charAt(position);
+			if (Character.isWhitespace(c) || c == '/') {
+				position++;
+				continue;
+			}
+
+			int nameStart = position;
+			while (position < end && !Character.isWhitespace(input.charAt(position)) && "=/".indexOf(input.charAt(position)) < 0 ||
+				position == nameStart && position < end && input.charAt(position) == '=') {
+				position++;
+			}
+			String attributeName = input.substring(nameStart, position).toLowerCase(Locale.ROOT);
+
+			while (position < end && Character.isWhitespace(input.charAt(position))) {
+				position++;
+			}
+
+			String value = "";
+			if (position < end && input.charAt(position) == '=') {
+				position++;
+				while (position < end && Character.isWhitespace(input.charAt(position))) {
+					position++;
+				}
+
+				if (position < end && (input.charAt(position) == '"' || input.charAt(position) == '\'')) {
+					char quote = input.charAt(position++);
+					int valueEnd = position;
+					while (valueEnd < end && input.charAt(valueEnd) != quote) {
+						valueEnd++;
+					}
+					value = input.substring(position, valueEnd);
+					position = valueEnd + 1;
+				} else {
+					int valueStart = position;
+					while (position < end && !Character.isWhitespace(input.charAt(position))) {
+						position++;
+					}
+					value = input.substring(valueStart, position);
+				}
+			}
+
+			attributes.add(new String[] { attributeName, value });
+		}
+
+		if (!isValidName(name)) {
+			// keep the tag as text, since it cannot be represented by the W3C document
+			text.append('<').append(input, start, end).append('>');
+			return;
+		}
+
+		startTag(name, attributes);
+	}
+
+	private void pop() {
+		openNodes.remove(openElements.remove(openElements.size() - 1));
+	}
+
+	private void push(Element element) {
+		openElements.add(element);
+		openNodes.add(element);
+	}
+
+	/**
+	 * Handles a start tag.
+	 */
+	private void startTag(String name, List<String[]> attributes) {
+
+		flushText();
+
+		switch (name) {
+			case "html":
+				ensureHtml();
+				return;
+			case "head":
+				ensureHtml();
+				if (head == null && body == null) {
+					head = createElement(name, attributes);
+					html.appendChild(head);
+					push(head);
+				}
+				return;
+			case "body":
+				if (body == null) {
+					ensureHtml();
+					if (head == null) {
+						head = document.createElement("head");
+						html.appendChild(head);
+					}
+
+					while (openElements.size() > 1) {
+						pop();
+					}
+
+					body = createElement(name, attributes);
+					html.appendChild(body);
+					push(body);
+				}
+				return;
+			default:
+				break;
+		}
+
+		if (body == null && HEAD_ELEMENTS.contains(name)) {
+			ensureHtml();
+			if (head == null) {
+				head = document.createElement("head");
+				html.appendChild(head);
+				push(head);
+			}
+
+			Element element = createElement(name, attributes);
+			head.appendChild(element);
+			if (!VOID_ELEMENTS.contains(name)) {
+				push(element);
+			}
+			if (RAW_TEXT_ELEMENTS.contains(name)) {
+				rawTextElement = name;
+			}
+			return;
+		}
+
+		ensureBody();
+
+		if (!startTableElement(name)) {
+			// table elements outside of a table are ignored
+			return;
+		}
+
+		closeImplied(name);
+
+		Element element = createElement(name, attributes);
+		current().appendChild(element);
+
+		if (!VOID_ELEMENTS.contains(name)) {
+			push(element);
+		}
+
+		if (RAW_TEXT_ELEMENTS.contains(name)) {
+			rawTextElement = name;
+		}
+
+		skipLineBreak = name.equals("pre") || name.equals("listing") || name.equals("textarea");
+	}
+
+	/**
+	 * Closes open rows and cells and inserts implied sections and rows before the given table element.
+	 *
+	 * @return {@code false}, if the given element is a table element outside of a table and ignored.
+	 */
+	private boolean startTableElement(String name) {
+
+		boolean section = TABLE_SECTIONS.contains(name);
+		boolean row = name.equals("tr");
+		boolean cell = CELLS.contains(name);
+		if (!section && !row && !cell) {
+			return true;
+		}
+
+		int table = find("table", DOCUMENT_BOUNDARIES);
+		if (table < 0) {
+			return false;
+		}
+
+		// close the open cells, rows and sections that are closed by the element
+		for (int i = openElements.size() - 1; i > table; i--) {
+			String openName = openElements.get(i).getNodeName();
+			if (CELLS.contains(openName) || row && openName.equals("tr") || section && (openName.equals("tr") || TABLE_SECTIONS.contains(openName))) {
+				while (openElements.size() > i) {
+					pop();
+				}
+			}
+		}
+
+		// close the content of the table that is not part of a cell
+		while (openElements.size() > table + 1 && !TABLE_ELEMENTS.contains(current().getNodeName())) {
+			pop();
+		}
+
+		if ((row || cell) && current().getNodeName().equals("table")) {
+			Element tbody = document.createElement("tbody");
+			current().appendChild(tbody);
+			push(tbody);
+		}
+
+		if (cell && !current().getNodeName().equals("tr")) {
+			Element tr = document.createElement("tr");
+			current().appendChild(tr);
+			push(tr);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parses the complete tokens of {@link #input}.
+	 *
+	 * @param last whether the input is complete.
+	 * @return the position of the first character that has not been parsed.
+	 */
+	private int tokenize(boolean last) {
+
+		int position = 0;
+		while (position < input.length()) {
+			if (skipLineBreak) {
+				if (input.charAt(position) == '\r' && position + 1 >= input.length() && !last) {
+					break;
+				}
+
+				if (input.charAt(position) == '\n') {
+					position++;
+				} else if (input.charAt(position) == '\r') {
+					position += position + 1 < input.length() && input.charAt(position + 1) == '\n' ? 2 : 1;
+				}
+
+				skipLineBreak = false;
+				continue;
+			}
+
+			if (rawTextElement != null) {
+				int end = position;
+				while ((end = indexOf("</", end)) >= 0) {
+					int nameEnd = end + 2 + rawTextElement.length();
+					if (nameEnd < input.length() && input.substring(end + 2, nameEnd).equalsIgnoreCase(rawTextElement) &&
+						" \t\n\r\f/>".indexOf(input.charAt(nameEnd)) >= 0) {
+						break;
+					}
+
+					if (nameEnd >= input.length() && !last) {
+						// the end tag may be incomplete
+						scanPosition = end;
+						end = -1;
+						break;
+					}
+
+					end += 2;
+				}
+
+				if (end < 0) {
+					if (!last) {
+						break;
+					}
+					end = input.length();
+				}
+
+				String content = input.substring(position, end);
+				if (!content.isEmpty()) {
+					current().appendChild(document.createTextNode(
+						ESCAPABLE_RAW_TEXT_ELEMENTS.contains(rawTextElement) ? HtmlEntities.decode(content) : content));
+				}
+
+				position = end;
+				rawTextElement = null;
+				continue;
+			}
+
+			char c = input.charAt(position);
+			if (c != '<') {
+				int end = indexOf("<", position);
+				if (end < 0) {
+					end = input.length();
+				}
+
+				text.append(input, position, end);
+				position = end;
+				continue;
+			}
+
+			if (position + 1 >= input.length() && !last) {
+				break;
+			}
+
+			char next = position + 1 < input.length() ? input.charAt(position + 1) : 0;
+			if (isNameStart(next)) {
+				int end = findTagEnd(position + 1);
+				if (end < 0) {
+					if (!last) {
+						break;
+					}
+					// an incomplete tag at the end of the document is dropped
+					position = input.length();
+					continue;
+				}
+
+				parseStartTag(position + 1, end);
+				position = end + 1;
+			} else if (next == '/') {
+				if (position + 2 >= input.length() && !last) {
+					break;
+				}
+
+				int end = findTagEnd(position + 2);
+				if (end < 0) {
+					if (!last) {
+						break;
+					}
+					position = input.length();
+					continue;
+				}
+
+				if (position + 2 < end && isNameStart(input.charAt(position + 2))) {
+					int nameEnd = position + 2;
+					while (nameEnd < end && !Character.isWhitespace(input.charAt(nameEnd)) && input.charAt(nameEnd) != '/') {
+						nameEnd++;
+					}
+					endTag(input.substring(position + 2, nameEnd).toLowerCase(Locale.ROOT));
+				}
+
+				position = end + 1;
+			} else if (next == '!' || next == '?') {
+				if (position + 4 > input.length() && !last) {
+					break;
+				}
+
+				int end;
+				int length;
+				if (position + 4 <= input.length() && input.substring(position, position + 4).equals("<!--")) {
+					end = indexOf("-->", position + 2);
+					length = 3;
+				} else {
+					// doctype, processing instructions and other bogus comments
+					end = indexOf(">", position + 2);
+					length = 1;
+				}
+
+				if (end < 0) {
+					if (!last) {
+						break;
+					}
+					end = input.length();
+					length = 0;
+				}
+
+				position = end + length;
+			} else {
+				text.append(c);
+				position++;
+			}
+		}
+
+		return position;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * The IncrementalConversion translates HTML content that arrives in chunks, e.g. from a network connection, to its
+ * text representation. Every chunk is parsed by the {@link HtmlParser} and converted as far as the parsed content
+ * permits, so the conversion overlaps with the transfer and the HTML content is never held as a whole. The state of
+ * the parser and of the conversion, e.g. open elements, the current line and open tables, is kept across chunks.
+ * <p>
+ * The result equals the conversion of the whole document. Parallel conversion and the {@link SubtreeCache} are not
+ * used, since they require complete subtrees, and embedded style sheets are only applied if they are declared within
+ * the {@code head} element. Once a preview has been written, further chunks are ignored.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * IncrementalConversion conversion = new IncrementalConversion();
+ * for (CharSequence chunk : &lt;chunks&gt;) {
+ *     conversion.feed(chunk);
+ * }
+ * String text = conversion.finish();
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public final class IncrementalConversion {
+
+	private HtmlParser parser = new HtmlParser();
+	private final Inscriptis inscriptis;
+	private boolean started;
+	private boolean finished;
+
+	/**
+	 * Creates a conversion by using the default {@link ParserConfig} with {@link CssProfile#RELAXED}.
+	 */
+	public IncrementalConversion() {
+		this(new ParserConfig());
+	}
+
+	/**
+	 * Creates a conversion by using the specified {@link ParserConfig}.
+	 *
+	 * @param config the ParserConfig configuration object
+	 */
+	public IncrementalConversion(ParserConfig config) {
+
+		inscriptis = new Inscriptis(config);
+		inscriptis.setOpenNodes(parser::isOpen);
+	}
+
+	/**
+	 * Parses and converts the next chunk of the HTML content. Tags, entities and text may span chunks.
+	 *
+	 * @param chunk the characters following the previous chunk.
+	 * @throws IllegalStateException if the conversion has already finished.
+	 */
+	public void feed(CharSequence chunk) {
+
+		if (finished) {
+			throw new IllegalStateException("conversion already finished");
+		}
+
+		if (inscriptis.isTraversalFinished()) {
+			return;
+		}
+
+		parser.feed(chunk);
+		convert();
+	}
+
+	/**
+	 * Converts the remaining content once all chunks have been fed.
+	 *
+	 * @return the text representation of the HTML content.
+	 * @throws ConversionLimitException if a limit has been exceeded and {@link ParserConfig#isFailOnLimit()} is set.
+	 */
+	public String finish() {
+
+		if (!finished) {
+			finished = true;
+
+			parser.finish();
+			convert();
+			parser = null;
+			inscriptis.finish();
+		}
+
+		return inscriptis.complete().getText();
+	}
+
+	/**
+	 * Returns the first {@link ConversionLimit} exceeded by the conversion so far.
+	 *
+	 * @return the exceeded limit or {@code null}.
+	 */
+	public ConversionLimit getExceededLimit() {
+		return inscriptis.getExceededLimit();
+	}
+
+	/**
+	 * @return the number of nodes converted so far.
+	 */
+	int getNodeCount() {
+		return inscriptis.getCounters().nodeCount;
+	}
+
+	/**
+	 * Converts the parsed content. The traversal starts once the {@code head} element is complete, so that its style
+	 * sheets are known.
+	 */
+	private void convert() {
+
+		if (!started) {
+			if (!parser.hasBody()) {
+				return;
+			}
+
+			started = true;
+			inscriptis.beginTraversal(parser.getDocument());
+		}
+
+		while (inscriptis.advance()) {
+			// convert the parsed nodes
+		}
+	}
+}
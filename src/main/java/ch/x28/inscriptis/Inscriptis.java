@@ -17,8 +17,10 @@ package ch.x28.inscriptis;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Stack;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.NamedNodeMap;
@@ -40,95 +42,959 @@ import ch.x28.inscriptis.HtmlProperties.WhiteSpace;
  * String text = inscriptis.getText();
  * </code>
  * </pre>
+ * <p>
+ * Once the document has been converted, only the text is retained. Use {@link #convert(Document, ParserConfig)} to
+ * obtain a {@link ConversionResult} without keeping the converter.
  *
  * @author Sascha Wolski
  * @author Matthias Hewelt
  */
 public class Inscriptis {
 
-	private static final String[] UL_COUNTER = { "* ", "+ ", "o ", "- " };
-	private static final HtmlElement DEFAULT_ELEMENT = new HtmlElement();
+	/**
+	 * The rendering state that is carried from one top-level block of the {@code body} element to the next.
+	 */
+	static final class State {
+
+		private final Line currentLine;
+		private final Line nextLine;
+		private final boolean rootCanvasWritten;
+		private final String lastCaption;
+		/**
+		 * Whether the last caption is known; forked conversions may start without knowing it.
+		 */
+		private final boolean captionKnown;
+		/**
+		 * The target of the last link, which is only used by the end tag of the link and hence not compared. A subtree
+		 * containing a link sets the target itself, any other subtree keeps the target of an enclosing link.
+		 */
+		private final String linkTarget;
+
+		State(Line currentLine, Line nextLine, boolean rootCanvasWritten, String lastCaption, boolean captionKnown, String linkTarget) {
+			this.currentLine = currentLine;
+			this.nextLine = nextLine;
+			this.rootCanvasWritten = rootCanvasWritten;
+			this.lastCaption = lastCaption;
+			this.captionKnown = captionKnown;
+			this.linkTarget = linkTarget;
+		}
+
+		private static long getFingerprint(long hash, Line line) {
+
+			hash = ContentHash.combine(hash, line.getMarginBefore());
+			hash = ContentHash.combine(hash, line.getMarginAfter());
+			hash = ContentHash.combine(hash, line.getPadding());
+			hash = ContentHash.combine(hash, line.getPrefix());
+			hash = ContentHash.combine(hash, line.getSuffix());
+			hash = ContentHash.combine(hash, line.getListBullet());
+			hash = ContentHash.combine(hash, StringUtils.isBlank(line.getContent()) ? "" : line.getContent());
+
+			return hash;
+		}
+
+		/**
+		 * Content that consists of whitespace only renders the same text as no content at all.
+		 */
+		private static boolean isEquivalent(Line line, Line other) {
+
+			boolean blank = StringUtils.isBlank(line.getContent());
+			boolean otherBlank = StringUtils.isBlank(other.getContent());
+
+			return line.getMarginBefore() == other.getMarginBefore() &&
+				line.getMarginAfter() == other.getMarginAfter() &&
+				line.getPadding() == other.getPadding() &&
+				line.getPrefix().equals(other.getPrefix()) &&
+				line.getSuffix().equals(other.getSuffix()) &&
+				line.getListBullet().equals(other.getListBullet()) &&
+				(blank ? otherBlank : line.getContent().equals(other.getContent()));
+		}
+
+		/**
+		 * @return the state expected after a block element has been written to the root canvas.
+		 */
+		State afterBlock() {
+
+			Line line = new Line();
+			line.setPadding(currentLine.getPadding());
+
+			return new State(line, new Line(), true, null, false, linkTarget);
+		}
+
+		/**
+		 * @return a hash of all properties compared by {@link #matches(State)}.
+		 */
+		long getFingerprint() {
+
+			long hash = ContentHash.combine(rootCanvasWritten ? 1 : 0, captionKnown ? lastCaption : null);
+			hash = getFingerprint(hash, currentLine);
+			hash = getFingerprint(hash, nextLine);
+
+			return hash;
+		}
+
+		/**
+		 * @return whether the last caption is known.
+		 */
+		boolean isCaptionKnown() {
+			return captionKnown;
+		}
+
+		/**
+		 * @param actual the state actually found before a conversion that started with this state.
+		 * @return whether a conversion started with this state renders the same text as one started with the actual
+		 *         state. Whether an unknown caption has been used is tracked by the forked conversion.
+		 */
+		boolean matches(State actual) {
+
+			return rootCanvasWritten == actual.rootCanvasWritten &&
+				isEquivalent(currentLine, actual.currentLine) &&
+				isEquivalent(nextLine, actual.nextLine) &&
+				(!captionKnown || Objects.equals(lastCaption, actual.lastCaption));
+		}
+
+		/**
+		 * @param previous the state before the conversion that resulted in this state.
+		 * @return this state with an unknown caption taken from the previous state.
+		 */
+		State resolve(State previous) {
+
+			if (captionKnown) {
+				return this;
+			}
+
+			return new State(currentLine, nextLine, rootCanvasWritten, previous.lastCaption, previous.captionKnown, linkTarget);
+		}
+	}
+
+	/**
+	 * A subtree whose rendered text is recorded for the {@link SubtreeCache}.
+	 */
+	private static class Recording {
+
+		private final Node node;
+		private final SubtreeCache.Key key;
+		private final State startState;
+		private final int firstLine;
+		private boolean linkContained;
+
+		Recording(Node node, SubtreeCache.Key key, State startState, int firstLine) {
+			this.node = node;
+			this.key = key;
+			this.startState = startState;
+			this.firstLine = firstLine;
+		}
+	}
+
+	private static final String[] UL_COUNTER = { "* ", "+ ", "o ", "- " };
+	private static final HtmlElement DEFAULT_ELEMENT = new HtmlElement();
+
+	private final ParserConfig config;
+
+	private final Stack<HtmlElement> currentTag;
+	private final Stack<Line> currentLine;
+	private final Stack<Line> nextLine;
+	/**
+	 * The canvases used for displaying text. cleanTextLines[0] refers to the root canvas; tables write into child
+	 * canvases that are created for every table line and merged with the root canvas at the end of a table.
+	 */
+	private Stack<List<String>> cleanTextLines;
+
+	private Stack<Table> currentTable;
+	private Stack<Object> liCounter;
+	private int liLevel = 0;
+	private String lastCaption;
+	private String linkTarget;
+	/**
+	 * Whether lines have already been taken from the root canvas by {@link #takeRootLines()}.
+	 */
+	private boolean rootCanvasTaken;
+	/**
+	 * The offsets of the lines of the root canvas, which are recorded while the lines are written, unless this
+	 * conversion has been forked by {@link #fork(State)}.
+	 */
+	private LineOffsets rootLineOffsets;
+	/**
+	 * The length of the lines of the root canvas joined by line breaks.
+	 */
+	private long rootLength;
+	/**
+	 * The length of the lines of the root canvas joined by line breaks without trailing whitespace.
+	 */
+	private long rootStrippedLength;
+	/**
+	 * Whether this conversion has been forked from another one by {@link #fork(State)}, or renders a target of
+	 * another conversion.
+	 */
+	private boolean forked;
+	/**
+	 * The conversions that render the traversal of this conversion with other display options, see
+	 * {@link #convert(Document, List)}.
+	 */
+	private final List<Inscriptis> targets = new ArrayList<>(0);
+	/**
+	 * Records the elements and text rendered by this conversion, if recorded by {@link #record(Document, ParserConfig)}.
+	 */
+	private LayoutModel.Builder layoutRecorder;
+	/**
+	 * Whether the last caption has not been written by this conversion and is unknown, since it has been forked.
+	 */
+	private boolean captionUnknown;
+	/**
+	 * Whether the rendered text depends on the unknown caption.
+	 */
+	private boolean captionDependent;
+
+	/**
+	 * The rules of the embedded style sheets, if enabled.
+	 */
+	private StyleSheet styleSheet;
+
+	/**
+	 * The hashes of the subtrees that are looked up in the {@link SubtreeCache}, if configured.
+	 */
+	private Map<Node, SubtreeCache.Key> subtreeHashes;
+	private final Stack<Recording> recordings = new Stack<>();
+	/**
+	 * The lines written to the root canvas while subtrees are recorded.
+	 */
+	private final List<String> recordedLines = new ArrayList<>();
+
+	/**
+	 * The counters reported to the {@link ConversionListener}, if configured.
+	 */
+	private final ConversionMetrics.Counters counters = new ConversionMetrics.Counters();
+	private final boolean timed;
+	private long startNanos;
+	private Object conversionEvent;
+	/**
+	 * Records the cost per tag, if the conversion is sampled by the configured {@link TagStatistics}.
+	 */
+	private TagStatistics.Recorder tagRecorder;
+
+	/**
+	 * Whether any {@link ConversionLimit} is configured.
+	 */
+	private final boolean limited;
+	/**
+	 * Records the source of the rendered characters, if enabled by {@link ParserConfig#isSourceMapping()}.
+	 */
+	private SourceMapping sourceMapping;
+	/**
+	 * Collects the metadata of the document, if enabled by {@link ParserConfig#isCollectMetadata()}.
+	 */
+	private MetadataCollector metadata;
+	/**
+	 * The value of {@link System#nanoTime()} at which the time budget is exceeded, if configured.
+	 */
+	private long deadline;
+	/**
+	 * The number of characters of text content written so far.
+	 */
+	private long outputLength;
+	/**
+	 * The number of characters and root canvas lines written so far, if a preview is configured.
+	 */
+	private long previewLength;
+	private int previewLines;
+	/**
+	 * The first limit exceeded by this conversion or {@code null}.
+	 */
+	private ConversionLimit exceededLimit;
+	/**
+	 * Whether the traversal has been stopped by a limit; the open elements are still closed.
+	 */
+	private boolean stopped;
+
+	/**
+	 * The root of the HTML tree that is currently traversed.
+	 */
+	private Node rootNode;
+	/**
+	 * The node to visit next or {@code null} once the traversal has finished.
+	 */
+	private Node nextNode;
+	/**
+	 * Whether {@link #nextNode} is entered (start tag and data) or left (end tag).
+	 */
+	private boolean entering;
+	/**
+	 * Identifies the nodes to which the parser may still add children, if the document is converted while it is
+	 * parsed; otherwise {@code null}.
+	 */
+	private Predicate<Node> openNodes;
+	/**
+	 * Whether the traversal waits for the first child or the next sibling of {@link #nextNode}, which has not been
+	 * parsed yet.
+	 */
+	private boolean awaitingChild;
+	private boolean awaitingSibling;
+
+	/**
+	 * The result of the completed conversion, once the working state has been released; otherwise {@code null}.
+	 */
+	private ConversionResult result;
+
+	/**
+	 * Translates the given W3C document to its corresponding text representation by using the default
+	 * {@link ParserConfig} with {@link CssProfile#RELAXED}.
+	 *
+	 * @param document the W3C document to convert
+	 */
+	public Inscriptis(Document document) {
+		this(document, new ParserConfig());
+	}
+
+	/**
+	 * Translates the given W3C document to its corresponding text representation by using the specified
+	 * {@link ParserConfig}.
+	 *
+	 * @param document the W3C document to convert
+	 * @param config an optional ParserConfig configuration object
+	 */
+	public Inscriptis(Document document, ParserConfig config) {
+
+		this(config);
+
+		beginTraversal(document);
+		while (advance()) {
+			// convert the whole document
+		}
+
+		finish();
+		complete();
+	}
+
+	/**
+	 * Prepares a conversion with the specified {@link ParserConfig}. The conversion is driven by
+	 * {@link #beginTraversal(Node)} and {@link #advance()}.
+	 *
+	 * @param config the ParserConfig configuration object
+	 */
+	Inscriptis(ParserConfig config) {
+
+		this.config = config;
+		timed = config.getConversionListener() != null;
+		limited = config.hasLimits();
+		// the ranges of the collected headings and links are located by the source mapping
+		sourceMapping = config.isSourceMapping() || config.isCollectMetadata() ? new SourceMapping() : null;
+		metadata = config.isCollectMetadata() ? new MetadataCollector() : null;
+
+		currentTag = new Stack<>();
+		currentLine = new Stack<>();
+		nextLine = new Stack<>();
+
+		currentTag.push(this.config.getCss().get("body"));
+		currentLine.push(new Line());
+		nextLine.push(new Line());
+
+		// The canvases used for displaying text
+		// cleanTextLines[0] refers to the root canvas; tables write into child
+		// canvases that are created for every table line and merged with the
+		// root canvas at the end of a table
+		cleanTextLines = new Stack<>();
+		cleanTextLines.push(new ArrayList<>(config.getSizeHints().getRootLines()));
+		rootLineOffsets = new LineOffsets(config.getSizeHints().getRootLines());
+
+		currentTable = new Stack<>();
+		liCounter = new Stack<>();
+		liLevel = 0;
+		lastCaption = null;
+
+		// Used if ParserConfig#displayLinks is enabled
+		linkTarget = "";
+	}
+
+	/**
+	 * Translates the given W3C document to its corresponding text representation by using the default
+	 * {@link ParserConfig} with {@link CssProfile#RELAXED}. The state of the conversion is not retained.
+	 *
+	 * @param document the W3C document to convert
+	 * @return the result of the conversion
+	 */
+	public static ConversionResult convert(Document document) {
+		return convert(document, new ParserConfig());
+	}
+
+	/**
+	 * Translates the given W3C document to its corresponding text representation by using the specified
+	 * {@link ParserConfig}. The state of the conversion is not retained.
+	 *
+	 * @param document the W3C document to convert
+	 * @param config an optional ParserConfig configuration object
+	 * @return the result of the conversion
+	 */
+	public static ConversionResult convert(Document document, ParserConfig config) {
+		return new Inscriptis(document, config).result;
+	}
+
+	/**
+	 * Translates the given W3C document to several text representations in a single traversal, e.g. the plain text
+	 * and a variant with link targets. The configurations may only differ in the display options, such as
+	 * {@link ParserConfig#setDisplayLinks(boolean)}, so that the traversal, the CSS and the style sheets are shared; only
+	 * the rendered lines are kept for every configuration. {@link ConversionLimit}s are not supported, and the
+	 * {@link ConversionListener} and {@link TagStatistics} of the first configuration only are notified.
+	 *
+	 * @param document the W3C document to convert
+	 * @param configs the ParserConfig configuration objects of the text representations
+	 * @return the results of the conversion in the order of the configurations
+	 * @throws IllegalArgumentException if the configurations do not share the CSS, style sheets and excluded
+	 *         selectors, or if a limit is configured.
+	 */
+	public static List<ConversionResult> convert(Document document, List<ParserConfig> configs) {
+
+		if (configs.isEmpty()) {
+			throw new IllegalArgumentException("no configuration");
+		}
+
+		ParserConfig first = configs.get(0);
+		for (ParserConfig config : configs) {
+			if (config.hasLimits()) {
+				throw new IllegalArgumentException("conversion limits are not supported for several targets");
+			}
+
+			if (!config.isTraversalShared(first)) {
+				throw new IllegalArgumentException("targets must share the CSS, style sheets and excluded selectors");
+			}
+		}
+
+		Inscriptis inscriptis = new Inscriptis(first);
+		for (ParserConfig config : configs.subList(1, configs.size())) {
+			Inscriptis target = new Inscriptis(config);
+			target.forked = true;
+			inscriptis.targets.add(target);
+		}
+
+		inscriptis.beginTraversal(document);
+		while (inscriptis.advance()) {
+			// convert the whole document
+		}
+
+		List<ConversionResult> results = new ArrayList<>(configs.size());
+		inscriptis.finish();
+		results.add(inscriptis.complete());
+		for (Inscriptis target : inscriptis.targets) {
+			target.finish();
+			results.add(target.complete());
+		}
+
+		return results;
+	}
+
+	/**
+	 * Records the layout model of the given W3C document.
+	 *
+	 * @param document the W3C document to convert
+	 * @param config the ParserConfig configuration object, which determines the CSS, style sheets and excluded elements
+	 * @return the layout model
+	 * @throws IllegalArgumentException if a limit is configured.
+	 * @see LayoutModel#record(Document, ParserConfig)
+	 */
+	static LayoutModel record(Document document, ParserConfig config) {
+
+		if (config.hasLimits()) {
+			throw new IllegalArgumentException("conversion limits are not supported for layout models");
+		}
+
+		Inscriptis inscriptis = new Inscriptis(config);
+		inscriptis.layoutRecorder = new LayoutModel.Builder(config.getTraversalFingerprint());
+
+		inscriptis.beginTraversal(document);
+		while (inscriptis.advance()) {
+			// convert the whole document
+		}
+
+		inscriptis.finish();
+		inscriptis.complete();
+
+		return inscriptis.layoutRecorder.build();
+	}
+
+	/**
+	 * Renders a recorded layout model without traversing the document again.
+	 *
+	 * @param model the layout model
+	 * @param config the ParserConfig configuration object
+	 * @return the result of the conversion
+	 * @throws IllegalArgumentException if the configuration does not share the CSS, style sheets and excluded selectors
+	 *         of the recording, if a limit is configured or if the source is mapped.
+	 * @see LayoutModel#render(ParserConfig)
+	 */
+	static ConversionResult render(LayoutModel model, ParserConfig config) {
+
+		if (config.getTraversalFingerprint() != model.getTraversalFingerprint()) {
+			throw new IllegalArgumentException("the layout model has been recorded with other CSS, style sheets or excluded selectors");
+		}
+
+		if (config.hasLimits() || config.isSourceMapping()) {
+			throw new IllegalArgumentException("conversion limits and source mapping are not supported for layout models");
+		}
+
+		Inscriptis inscriptis = new Inscriptis(config);
+		if (inscriptis.timed) {
+			inscriptis.startNanos = System.nanoTime();
+		}
+
+		model.replay(new LayoutModel.Handler() {
+
+			@Override
+			public void data(String text) {
+				inscriptis.handleData(text, null);
+			}
+
+			@Override
+			public void endElement(String tag) {
+				inscriptis.handleEndTag(tag);
+			}
+
+			@Override
+			public void startElement(String tag, HtmlElement element, String[] attributes) {
+				inscriptis.renderStartTag(tag, element, attributes);
+			}
+		});
+
+		inscriptis.finish();
+		return inscriptis.complete();
+	}
+
+	/**
+	 * Returns the result of the conversion.
+	 *
+	 * @return the text representation and the exceeded limit
+	 */
+	public ConversionResult getResult() {
+		return result != null ? result : createResult();
+	}
+
+	/**
+	 * Returns the text representation of the HTML content.
+	 *
+	 * @return the text representation of the HTML content
+	 */
+	public String getText() {
+
+		return getResult().getText();
+	}
+
+	/**
+	 * Returns the first {@link ConversionLimit} exceeded by the conversion. If a limit has been exceeded, the text
+	 * representation is truncated.
+	 *
+	 * @return the exceeded limit or {@code null}, if the whole document has been converted.
+	 */
+	public ConversionLimit getExceededLimit() {
+		return exceededLimit;
+	}
+
+	/**
+	 * Visits the next node of the HTML tree. The tree is traversed iteratively, so that the conversion can be paused
+	 * between any two nodes and deeply nested documents do not exhaust the call stack.
+	 *
+	 * @return {@code true}, if a node has been visited, or {@code false}, if the conversion has already finished or
+	 *         waits for a node that has not been parsed yet.
+	 */
+	boolean advance() {
+
+		if (nextNode == null || (awaitingChild || awaitingSibling) && !resume()) {
+			return false;
+		}
+
+		Node node = nextNode;
+		short nodeType = node.getNodeType();
+		boolean relevant = nodeType == Node.DOCUMENT_NODE ||
+			nodeType == Node.ELEMENT_NODE ||
+			nodeType == Node.TEXT_NODE;
+
+		if (entering && relevant && limited && !isWithinLimits(node, nodeType)) {
+			// skip the whole subtree
+			relevant = false;
+		} else if (entering && nodeType == Node.ELEMENT_NODE && config.getExclusionFilter() != null &&
+			config.getExclusionFilter().matches(node)) {
+			// skip the excluded subtree
+			relevant = false;
+		} else if (entering && nodeType == Node.ELEMENT_NODE && subtreeHashes != null && replaySubtree(node)) {
+			// the whole subtree has been replayed from the cache
+			relevant = false;
+		} else if (entering && relevant) {
+			counters.nodeCount++;
+
+			boolean convertedChildren = false;
+			boolean hidden = false;
+			if (nodeType == Node.ELEMENT_NODE) {
+				counters.maxDepth = Math.max(counters.maxDepth, ++counters.depth);
+				if (tagRecorder != null) {
+					tagRecorder.startElement(node.getNodeName(), node.getAttributes().getNamedItem("style") != null);
+				}
+
+				handleStartTag(node);
+
+				// the content of hidden elements is not rendered, hence it is not visited at all
+				hidden = currentTag.peek().getDisplay() == Display.NONE;
+
+				convertedChildren = !hidden &&
+					config.isParallel() &&
+					!forked &&
+					!limited &&
+					openNodes == null &&
+					sourceMapping == null &&
+					targets.isEmpty() &&
+					layoutRecorder == null &&
+					node.getNodeName().equals("body") &&
+					ParallelConversion.convertChildren(this, config.getCss(), node);
+			}
+
+			if (nodeType == Node.TEXT_NODE) {
+				String text = node.getNodeValue();
+				if (text != null && !text.isEmpty()) {
+					counters.textLength += text.length();
+					handleData(text, node);
+					for (Inscriptis target : targets) {
+						target.handleData(text, node);
+					}
+
+					if (layoutRecorder != null) {
+						layoutRecorder.data(text);
+					}
+				}
+			}
+
+			Node child = node.getFirstChild();
+			if (child != null && !convertedChildren && !hidden) {
+				nextNode = child;
+				return true;
+			}
+
+			if (openNodes != null && !convertedChildren && !hidden && openNodes.test(node)) {
+				awaitingChild = true;
+				return true;
+			}
+		}
+
+		// leave the node
+		if (relevant && nodeType == Node.ELEMENT_NODE) {
+			counters.depth--;
+			String tag = node.getNodeName();
+			handleEndTag(tag);
+			for (Inscriptis target : targets) {
+				target.handleEndTag(tag);
+			}
+
+			if (layoutRecorder != null) {
+				layoutRecorder.endElement(tag);
+			}
+
+			if (tagRecorder != null) {
+				tagRecorder.endElement();
+			}
+
+			if (!recordings.isEmpty() && recordings.peek().node == node) {
+				endRecording();
+			}
+		}
+
+		Node sibling = node.getNextSibling();
+		if (node == rootNode) {
+			nextNode = null;
+		} else if (sibling == null && !stopped && openNodes != null && openNodes.test(node.getParentNode())) {
+			awaitingSibling = true;
+		} else if (sibling != null && !stopped) {
+			nextNode = sibling;
+			entering = true;
+		} else {
+			nextNode = node.getParentNode();
+			entering = false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Appends the given lines to the root canvas.
+	 *
+	 * @param lines the lines to append.
+	 */
+	void appendRootLines(List<String> lines) {
+
+		List<String> rootCanvas = cleanTextLines.get(0);
+		for (String line : lines) {
+			rootCanvas.add(line);
+			counters.countLine(line, true);
+			recordRootLine(line, rootCanvas.size() == 1);
+		}
+
+		if (!recordings.isEmpty()) {
+			recordedLines.addAll(lines);
+		}
+	}
+
+	/**
+	 * @return the current rendering state, provided that no table or list is open; otherwise {@code null}.
+	 */
+	State captureState() {
+
+		if (cleanTextLines.size() != 1 || currentLine.size() != 1 || !currentTable.isEmpty() || liLevel != 0) {
+			return null;
+		}
+
+		boolean rootCanvasWritten = !cleanTextLines.get(0).isEmpty() || rootCanvasTaken;
+		return new State(
+			currentLine.peek().clone(),
+			nextLine.peek().clone(),
+			rootCanvasWritten,
+			lastCaption,
+			!captionUnknown,
+			linkTarget);
+	}
+
+	/**
+	 * Adds the cost per tag recorded by this conversion to the configured {@link TagStatistics}.
+	 */
+	void commitTagStatistics() {
+
+		if (tagRecorder != null) {
+			tagRecorder.commit();
+			tagRecorder = null;
+		}
+	}
+
+	/**
+	 * Removes the recorder of the cost per tag, so that the recorded costs are committed by the caller, if at all.
+	 *
+	 * @return the recorder or {@code null}, if this conversion is not sampled.
+	 */
+	TagStatistics.Recorder takeTagRecorder() {
+
+		TagStatistics.Recorder recorder = tagRecorder;
+		tagRecorder = null;
+		return recorder;
+	}
+
+	/**
+	 * Writes the remaining content once the traversal has finished.
+	 */
+	void finish() {
+
+		if (currentLine.peek() != null) {
+			writeLine(false);
+		}
+
+		if (limited && exceededLimit == null && rootStrippedLength > config.getMaxOutputLength()) {
+			// the layout added more characters than the text content
+			exceededLimit = ConversionLimit.OUTPUT_LENGTH;
+		}
+
+		if (!forked) {
+			config.getSizeHints().record(counters);
+			commitTagStatistics();
+			FlightRecording.commitConversion(conversionEvent, counters);
+			if (timed) {
+				config.getConversionListener().conversionFinished(new ConversionMetrics(counters, System.nanoTime() - startNanos));
+			}
+		}
+
+		if (exceededLimit != null && config.isFailOnLimit()) {
+			throw new ConversionLimitException(exceededLimit, getText());
+		}
+	}
+
+	/**
+	 * Creates the result of the finished conversion and releases the state of the conversion, so that only the text
+	 * is retained.
+	 *
+	 * @return the result of the conversion.
+	 */
+	ConversionResult complete() {
+
+		if (result == null) {
+			result = createResult();
+
+			currentTag.clear();
+			currentTag.trimToSize();
+			currentLine.clear();
+			currentLine.trimToSize();
+			nextLine.clear();
+			nextLine.trimToSize();
+			cleanTextLines = null;
+			currentTable = null;
+			liCounter = null;
+			styleSheet = null;
+			subtreeHashes = null;
+			rootNode = null;
+			openNodes = null;
+			sourceMapping = null;
+			metadata = null;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the counters reported to the {@link ConversionListener}.
+	 */
+	ConversionMetrics.Counters getCounters() {
+		return counters;
+	}
+
+	/**
+	 * @return whether the rendered text depends on the last caption, which has been unknown when forking.
+	 */
+	boolean isCaptionDependent() {
+		return captionDependent;
+	}
+
+	/**
+	 * @return whether the traversal has finished, e.g. since the preview has been written.
+	 */
+	boolean isTraversalFinished() {
+		return rootNode != null && nextNode == null;
+	}
+
+	/**
+	 * Creates a conversion that continues from the current element, e.g. to convert its children in another thread.
+	 *
+	 * @param state the rendering state to start with.
+	 * @return the forked conversion.
+	 */
+	Inscriptis fork(State state) {
+
+		Inscriptis fork = new Inscriptis(config);
+		fork.forked = true;
+		// the lines of a fork are recorded once they are appended to the root canvas of this conversion
+		fork.rootLineOffsets = null;
+		fork.subtreeHashes = subtreeHashes;
+		fork.styleSheet = styleSheet;
+		fork.counters.depth = counters.depth;
+		if (tagRecorder != null) {
+			fork.tagRecorder = config.getTagStatistics().fork(config.getCss());
+		}
+		fork.currentTag.clear();
+		fork.currentTag.addAll(currentTag);
+		fork.restoreState(state);
 
-	private final ParserConfig config;
+		return fork;
+	}
 
-	private final Stack<HtmlElement> currentTag;
-	private final Stack<Line> currentLine;
-	private final Stack<Line> nextLine;
 	/**
-	 * The canvases used for displaying text. cleanTextLines[0] refers to the root canvas; tables write into child
-	 * canvases that are created for every table line and merged with the root canvas at the end of a table.
+	 * Restores a rendering state previously obtained by {@link #captureState()}.
+	 *
+	 * @param state the rendering state.
 	 */
-	private Stack<List<String>> cleanTextLines;
+	void restoreState(State state) {
 
-	private Stack<Table> currentTable;
-	private Stack<Object> liCounter;
-	private int liLevel = 0;
-	private String lastCaption;
-	private String linkTarget;
+		currentLine.pop();
+		currentLine.push(state.currentLine.clone());
+		nextLine.pop();
+		nextLine.push(state.nextLine.clone());
+		rootCanvasTaken = state.rootCanvasWritten && cleanTextLines.get(0).isEmpty();
+		lastCaption = state.lastCaption;
+		captionUnknown = !state.captionKnown;
+		linkTarget = state.linkTarget;
+	}
 
 	/**
-	 * Translates the given W3C document to its corresponding text representation by using the default
-	 * {@link ParserConfig} with {@link CssProfile#RELAXED}.
+	 * Converts the document while it is parsed. The traversal waits for the children of the given open nodes instead
+	 * of leaving them, and {@link #advance()} returns {@code false} until they have been parsed.
 	 *
-	 * @param document the W3C document to convert
+	 * @param openNodes identifies the nodes to which the parser may still add children.
 	 */
-	public Inscriptis(Document document) {
-		this(document, new ParserConfig());
+	void setOpenNodes(Predicate<Node> openNodes) {
+		this.openNodes = openNodes;
 	}
 
 	/**
-	 * Translates the given W3C document to its corresponding text representation by using the specified
-	 * {@link ParserConfig}.
+	 * Starts the traversal of the given HTML tree. The nodes are visited by subsequent calls of {@link #advance()}.
 	 *
-	 * @param document the W3C document to convert
-	 * @param config an optional ParserConfig configuration object
+	 * @param node the root of the HTML tree
 	 */
-	public Inscriptis(Document document, ParserConfig config) {
+	void beginTraversal(Node node) {
 
-		this.config = config;
+		if (rootNode == null && !forked) {
+			if (config.getTagStatistics() != null) {
+				tagRecorder = config.getTagStatistics().sample(config.getCss());
+			}
 
-		currentTag = new Stack<>();
-		currentLine = new Stack<>();
-		nextLine = new Stack<>();
+			conversionEvent = FlightRecording.beginConversion();
+			if (timed) {
+				startNanos = System.nanoTime();
+			}
 
-		currentTag.push(this.config.getCss().get("body"));
-		currentLine.push(new Line());
-		nextLine.push(new Line());
+			if (config.getTimeBudget() != null) {
+				deadline = System.nanoTime() + config.getTimeBudget().toNanos();
+			}
 
-		// The canvases used for displaying text
-		// cleanTextLines[0] refers to the root canvas; tables write into child
-		// canvases that are created for every table line and merged with the
-		// root canvas at the end of a table
-		cleanTextLines = new Stack<>();
-		cleanTextLines.push(new ArrayList<>());
+			if (config.isEmbeddedStyleSheets()) {
+				styleSheet = parseStyleSheets(node);
+			}
+		}
 
-		currentTable = new Stack<>();
-		liCounter = new Stack<>();
-		liLevel = 0;
-		lastCaption = null;
+		if (config.getSubtreeCache() != null && subtreeHashes == null && !limited && openNodes == null && sourceMapping == null && targets.isEmpty() &&
+			layoutRecorder == null && (styleSheet == null || styleSheet.getRuleCount() == 0)) {
+			subtreeHashes = SubtreeCache.hashSubtrees(node, config);
+		}
 
-		// Used if ParserConfig#displayLinks is enabled
-		linkTarget = "";
+		rootNode = node;
+		nextNode = node;
+		entering = true;
+	}
+
+	/**
+	 * Removes the lines that have been written to the root canvas so far, so that they can be handed to a consumer
+	 * before the conversion has finished.
+	 *
+	 * @return the lines written to the root canvas since the last call.
+	 */
+	List<String> takeRootLines() {
 
-		parseHtmlTree(document);
+		List<String> rootCanvas = cleanTextLines.get(0);
+		List<String> lines = new ArrayList<>(rootCanvas);
 
-		if (currentLine.peek() != null) {
-			writeLine(false);
+		if (!lines.isEmpty()) {
+			rootCanvas.clear();
+			rootCanvasTaken = true;
+			rootLineOffsets = new LineOffsets(config.getSizeHints().getRootLines());
+			rootLength = 0;
+			rootStrippedLength = 0;
 		}
+
+		return lines;
 	}
 
 	/**
-	 * Returns the text representation of the HTML content.
+	 * @return the text, which is truncated to the configured limits, the offsets of its lines and its source map.
+	 */
+	private ConversionResult createResult() {
+
+		LineOffsets lineOffsets = rootLineOffsets;
+		SourceRuns sourceRuns = sourceMapping != null ? new SourceRuns() : null;
+		StringBuilder joined = joinLines(lineOffsets, sourceRuns);
+		joined.setLength(StringUtils.truncatedLength(joined, Math.min(getStrippedLength(joined), config.getMaxOutputLength())));
+
+		String text = config.isPreview() ? truncatePreview(joined) : joined.toString();
+		SourceMap sourceMap = sourceRuns != null ? sourceMapping.toSourceMap(sourceRuns, text.length()) : null;
+		DocumentMetadata documentMetadata = metadata != null ? metadata.toMetadata(sourceMap, sourceMapping.getNodeCount()) : null;
+
+		return new ConversionResult(
+			text,
+			exceededLimit,
+			lineOffsets.toArray(text.length()),
+			config.isSourceMapping() ? sourceMap : null,
+			documentMetadata);
+	}
+
+	/**
+	 * Records an exceeded limit.
 	 *
-	 * @return the text representation of the HTML content
+	 * @param limit the exceeded limit.
+	 * @param stop whether the traversal stops, otherwise only the current subtree is skipped.
 	 */
-	public String getText() {
+	private void exceedLimit(ConversionLimit limit, boolean stop) {
 
-		String text = cleanTextLines.stream()
-			.flatMap(lines -> lines.stream())
-			.collect(Collectors.joining("\n"));
+		if (exceededLimit == null) {
+			exceededLimit = limit;
+		}
 
-		return StringUtils.stripTrailing(text);
+		if (stop || config.isFailOnLimit()) {
+			stopped = true;
+		}
 	}
 
 	private void endA() {
@@ -144,6 +1010,25 @@ public class Inscriptis {
 		liCounter.pop();
 	}
 
+	/**
+	 * Stores the text rendered for the recorded subtree in the {@link SubtreeCache}.
+	 */
+	private void endRecording() {
+
+		Recording recording = recordings.pop();
+
+		State endState = captureState();
+		if (endState != null) {
+			List<String> lines = new ArrayList<>(recordedLines.subList(recording.firstLine, recordedLines.size()));
+			config.getSubtreeCache().put(recording.key, new SubtreeCache.Fragment(recording.startState, lines, endState,
+				recording.linkContained));
+		}
+
+		if (recordings.isEmpty()) {
+			recordedLines.clear();
+		}
+	}
+
 	private void endTable() {
 
 		if (!currentTable.isEmpty() && currentTable.peek().isTdOpen()) {
@@ -153,7 +1038,15 @@ public class Inscriptis {
 		writeLine(false);
 
 		Table table = currentTable.pop();
-		writeLineVerbatim(table.getText());
+
+		if (timed) {
+			long start = System.nanoTime();
+			String text = table.getText();
+			counters.tableLayoutNanos += System.nanoTime() - start;
+			writeLineVerbatim(text);
+		} else {
+			writeLineVerbatim(table.getText());
+		}
 	}
 
 	private void endTd() {
@@ -180,38 +1073,81 @@ public class Inscriptis {
 		return UL_COUNTER[index % UL_COUNTER.length];
 	}
 
+	/**
+	 * @return the length of the given text without trailing whitespace.
+	 */
+	private static int getStrippedLength(CharSequence text) {
+
+		int length = text.length();
+		while (length > 0 && Character.isWhitespace(text.charAt(length - 1))) {
+			length--;
+		}
+
+		return length;
+	}
+
 	/**
 	 * Handels text belonging to HTML tags.
 	 *
 	 * @param data the text to process.
+	 * @param node the text node containing the text.
 	 */
-	private void handleData(String data) {
+	private void handleData(String data, Node node) {
 
 		HtmlElement curTag = currentTag.peek();
 		if (curTag.getDisplay() == Display.NONE) {
 			return;
 		}
 
+		if (limited) {
+			long remaining = config.getMaxOutputLength() - outputLength;
+			if (data.length() > remaining) {
+				data = data.substring(0, StringUtils.truncatedLength(data, (int) Math.max(0, remaining)));
+				exceedLimit(ConversionLimit.OUTPUT_LENGTH, true);
+			}
+
+			outputLength += data.length();
+		}
+
+		if (tagRecorder != null) {
+			tagRecorder.addOutput(curTag.getPrefix().length() + data.length() + curTag.getSuffix().length());
+		}
+
+		int length = data.length();
+		if (metadata != null) {
+			metadata.data(data);
+		}
+
 		// protect pre areas
-		if (curTag.getWhitespace() == WhiteSpace.PRE) {
+		boolean pre = curTag.getWhitespace() == WhiteSpace.PRE;
+		if (pre) {
 			data = "\0" + data + "\0";
 		}
 
 		// add prefix, if present
+		int sourceStart = curTag.getPrefix().length() + (pre ? 1 : 0);
 		data = curTag.getPrefix() + data + curTag.getSuffix();
 
 		// determine whether to add this content to a table column or to a standard line
-		currentLine.peek().addContent(data);
+		if (sourceMapping != null) {
+			currentLine.peek().addContent(data, sourceStart, length, sourceMapping.addNode(node));
+		} else {
+			currentLine.peek().addContent(data);
+		}
 	}
 
 	/**
 	 * Handels HTML end tags.
 	 *
-	 * @param node the HTML end tag to process.
+	 * @param tag the name of the HTML end tag to process.
 	 */
-	private void handleEndTag(Node node) {
+	private void handleEndTag(String tag) {
 
 		HtmlElement curTag = currentTag.pop();
+		if (metadata != null) {
+			metadata.endElement(sourceMapping.getNodeCount());
+		}
+
 		nextLine.peek().setPadding(currentLine.peek().getPadding() - curTag.getPadding());
 		currentLine.peek().setMarginAfter(Math.max(currentLine.peek().getMarginAfter(), curTag.getMarginAfter()));
 
@@ -223,8 +1159,6 @@ public class Inscriptis {
 			}
 		}
 
-		String tag = node.getNodeName();
-
 		switch (tag) {
 			case "table":
 				endTable();
@@ -258,17 +1192,104 @@ public class Inscriptis {
 
 		Node attrStyle = attrs.getNamedItem("style");
 		if (attrStyle != null) {
+			counters.styleAttributeCount++;
+		}
+
+		if (styleSheet != null) {
+			curTag = styleSheet.apply(node, curTag, attrStyle != null ? attrStyle.getNodeValue() : null);
+		} else if (attrStyle != null) {
 			curTag = CssParse.getStyleAttribute(attrStyle.getNodeValue(), curTag);
 		}
 
+		String[] attributes = getAttributes(node, tag, attrs);
+		renderStartTag(tag, curTag, attributes);
+		for (Inscriptis target : targets) {
+			target.renderStartTag(tag, curTag, attributes);
+		}
+
+		if (layoutRecorder != null) {
+			layoutRecorder.startElement(tag, curTag, attributes);
+		}
+	}
+
+	/**
+	 * Returns the values of the attributes that are rendered depending on the display options.
+	 *
+	 * @param node the HTML tag.
+	 * @param tag the name of the HTML tag.
+	 * @param attrs the attributes of the HTML tag.
+	 * @return the <code>href</code> and <code>name</code> of links, the <code>alt</code> and <code>title</code> of
+	 *         images, the content of the title of the head, if it is collected, or {@code null} for other tags.
+	 */
+	private String[] getAttributes(Node node, String tag, NamedNodeMap attrs) {
+
+		switch (tag) {
+			case "head":
+				if (!isTitleCollected()) {
+					return null;
+				}
+
+				// the title is not visited, since the head is hidden
+				for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+					if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals("title")) {
+						return new String[] { child.getTextContent() };
+					}
+				}
+				return new String[] { null };
+			case "a":
+				return new String[] { getAttribute(attrs, "href"), getAttribute(attrs, "name") };
+			case "img":
+				return new String[] { getAttribute(attrs, "alt"), getAttribute(attrs, "title") };
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @return whether the title of the document is collected as metadata or recorded in a layout model, which may be
+	 *         rendered with metadata.
+	 */
+	private boolean isTitleCollected() {
+
+		if (metadata != null || layoutRecorder != null) {
+			return true;
+		}
+
+		for (Inscriptis target : targets) {
+			if (target.metadata != null) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static String getAttribute(NamedNodeMap attrs, String name) {
+
+		Node attribute = attrs.getNamedItem(name);
+		return attribute != null ? attribute.getNodeValue() : null;
+	}
+
+	/**
+	 * Renders an HTML start tag.
+	 *
+	 * @param tag the name of the HTML start tag to process.
+	 * @param curTag the element refined by the CSS and the style attributes.
+	 * @param attributes the attributes returned by {@link #getAttributes(Node, String, NamedNodeMap)}.
+	 */
+	private void renderStartTag(String tag, HtmlElement curTag, String[] attributes) {
+
 		currentTag.push(curTag);
+		if (metadata != null) {
+			metadata.startElement(tag, attributes, curTag.getDisplay() == Display.NONE, sourceMapping.getNodeCount());
+		}
 
 		nextLine.peek().setPadding(currentLine.peek().getPadding() + curTag.getPadding());
 
 		// flush text before display: block elements
 		if (curTag.getDisplay() == Display.BLOCK) {
 			if (!writeLine(false)) {
-				int marginBefore = cleanTextLines.get(0).isEmpty()
+				int marginBefore = cleanTextLines.get(0).isEmpty() && !rootCanvasTaken
 					? 0
 					: Math.max(currentLine.peek().getMarginBefore(), curTag.getMarginBefore());
 
@@ -304,15 +1325,110 @@ public class Inscriptis {
 				break;
 			case "a":
 				if (config.isDisplayAnchors() || config.isDisplayLinks()) {
-					startA(node.getAttributes());
+					startA(attributes[0], attributes[1]);
 				}
 				break;
 			case "img":
 				if (config.isDisplayImages()) {
-					startImg(node.getAttributes());
+					startImg(attributes[0], attributes[1]);
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Checks the configured limits before the given node is entered.
+	 *
+	 * @param node the node to enter.
+	 * @param nodeType the type of the node.
+	 * @return {@code true}, if the node may be converted, or {@code false}, if its subtree is skipped.
+	 */
+	private boolean isWithinLimits(Node node, short nodeType) {
+
+		if (previewLength >= config.getPreviewLength() || previewLines >= config.getPreviewLines()) {
+			// the preview is complete
+			stopped = true;
+			return false;
+		}
+
+		if (counters.nodeCount >= config.getMaxNodes()) {
+			exceedLimit(ConversionLimit.NODES, true);
+			return false;
+		}
+
+		// reading the clock is comparatively expensive, hence it is only read for every 256th node
+		if (config.getTimeBudget() != null && (counters.nodeCount & 0xFF) == 0 && System.nanoTime() - deadline > 0) {
+			exceedLimit(ConversionLimit.TIME, true);
+			return false;
+		}
+
+		if (nodeType != Node.ELEMENT_NODE) {
+			return true;
+		}
+
+		if (counters.depth >= config.getMaxDepth()) {
+			exceedLimit(ConversionLimit.DEPTH, false);
+			return false;
+		}
+
+		if (currentTable.isEmpty()) {
+			return true;
+		}
+
+		switch (node.getNodeName()) {
+			case "tr":
+				if (currentTable.peek().getRowCount() >= config.getMaxTableRows()) {
+					exceedLimit(ConversionLimit.TABLE_ROWS, false);
+					return false;
+				}
+				break;
+			case "th":
+			case "td":
+				if (currentTable.peek().getCellCount() >= config.getMaxTableCells()) {
+					exceedLimit(ConversionLimit.TABLE_CELLS, false);
+					return false;
 				}
 				break;
 		}
+
+		return true;
+	}
+
+	/**
+	 * Joins the lines of all canvases, separated by line breaks.
+	 *
+	 * @param lineOffsets records the offsets of the lines of the canvases that are still open, if not {@code null}; the
+	 *        offsets of the root canvas have been recorded while its lines were written.
+	 * @param sourceRuns records the source of the joined lines, if not {@code null}.
+	 * @return the joined lines.
+	 */
+	private StringBuilder joinLines(LineOffsets lineOffsets, SourceRuns sourceRuns) {
+
+		StringBuilder text = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, rootLength + 16));
+
+		boolean first = true;
+		for (List<String> lines : cleanTextLines) {
+			boolean open = lineOffsets != null && lines != cleanTextLines.get(0);
+			for (String line : lines) {
+				if (!first) {
+					text.append('\n');
+					if (open) {
+						lineOffsets.addLine(text.length());
+					}
+				}
+
+				if (open) {
+					lineOffsets.add(line, text.length());
+				}
+				if (sourceRuns != null) {
+					sourceRuns.addAll(sourceMapping.get(line), text.length());
+				}
+				text.append(line);
+				first = false;
+			}
+		}
+
+		return text;
 	}
 
 	private void newline() {
@@ -320,54 +1436,144 @@ public class Inscriptis {
 	}
 
 	/**
-	 * Parses the HTML tree.
+	 * Records the length, the stripped length and the line offsets of a line written to the root canvas.
 	 *
-	 * @param document the W3C document
+	 * @param line the written line.
+	 * @param first whether the line is the first line of the root canvas.
 	 */
-	private void parseHtmlTree(Node node) {
+	private void recordRootLine(String line, boolean first) {
 
-		if (node.getNodeType() != Node.DOCUMENT_NODE &&
-			node.getNodeType() != Node.ELEMENT_NODE &&
-			node.getNodeType() != Node.TEXT_NODE) {
-			return;
+		if (!first) {
+			rootLength++;
+			if (rootLineOffsets != null) {
+				rootLineOffsets.addLine((int) rootLength);
+			}
 		}
 
-		if (node.getNodeType() == Node.ELEMENT_NODE) {
-			handleStartTag(node);
+		if (rootLineOffsets != null) {
+			rootLineOffsets.add(line, (int) rootLength);
 		}
 
-		if (node.getNodeType() == Node.TEXT_NODE) {
-			String text = node.getNodeValue();
-			if (text != null && !text.isEmpty()) {
-				handleData(text);
+		int strippedLength = getStrippedLength(line);
+		if (strippedLength > 0) {
+			rootStrippedLength = rootLength + strippedLength;
+		}
+		rootLength += line.length();
+	}
+
+	/**
+	 * Replays the text rendered for the given subtree from the {@link SubtreeCache}. If the subtree is not cached, its
+	 * rendered text is recorded.
+	 *
+	 * @param node the root of the subtree.
+	 * @return {@code true}, if the subtree has been replayed, otherwise {@code false}.
+	 */
+	private boolean replaySubtree(Node node) {
+
+		SubtreeCache.Key subtree = subtreeHashes.get(node);
+		if (subtree == null) {
+			return false;
+		}
+
+		State state = captureState();
+		if (state == null || !state.isCaptionKnown()) {
+			return false;
+		}
+
+		SubtreeCache.Key key = subtree.combine(state.getFingerprint(), currentTag.peek().getFingerprint(), config.getFingerprint());
+
+		SubtreeCache.Fragment fragment = config.getSubtreeCache().get(key, state);
+		if (fragment != null) {
+			appendRootLines(fragment.getLines());
+			restoreState(fragment.getEndState());
+
+			// a subtree without links keeps the target of an enclosing link
+			if (fragment.isLinkContained()) {
+				for (Recording recording : recordings) {
+					recording.linkContained = true;
+				}
+			} else {
+				linkTarget = state.linkTarget;
 			}
+			return true;
 		}
 
-		NodeList children = node.getChildNodes();
-		for (int i = 0; i < children.getLength(); i++) {
-			parseHtmlTree(children.item(i));
+		recordings.push(new Recording(node, key, state, recordedLines.size()));
+		return false;
+	}
+
+	/**
+	 * @param node the root of the HTML tree.
+	 * @return the rules of all {@code style} elements of the document.
+	 */
+	private static StyleSheet parseStyleSheets(Node node) {
+
+		Document document = node.getNodeType() == Node.DOCUMENT_NODE ? (Document) node : node.getOwnerDocument();
+
+		StringBuilder css = new StringBuilder();
+		NodeList styles = document.getElementsByTagName("style");
+		for (int i = 0; i < styles.getLength(); i++) {
+			css.append(styles.item(i).getTextContent()).append('\n');
 		}
 
-		if (node.getNodeType() == Node.ELEMENT_NODE) {
-			handleEndTag(node);
+		return new StyleSheet(css.toString());
+	}
+
+	/**
+	 * Continues a traversal that waits for the first child or the next sibling of {@link #nextNode}.
+	 *
+	 * @return {@code false}, if the node has not been parsed yet.
+	 */
+	private boolean resume() {
+
+		Node node = nextNode;
+		if (awaitingChild) {
+			Node child = node.getFirstChild();
+			if (child != null) {
+				nextNode = child;
+			} else if (openNodes.test(node)) {
+				return false;
+			} else {
+				// leave the node, since it has no children
+				entering = false;
+			}
+
+			awaitingChild = false;
+		} else {
+			Node sibling = node.getNextSibling();
+			if (sibling != null) {
+				nextNode = sibling;
+				entering = true;
+			} else if (openNodes.test(node.getParentNode())) {
+				return false;
+			} else {
+				nextNode = node.getParentNode();
+				entering = false;
+			}
+
+			awaitingSibling = false;
 		}
+
+		return true;
 	}
 
-	private void startA(NamedNodeMap attributes) {
+	private void startA(String href, String name) {
+
+		for (Recording recording : recordings) {
+			recording.linkContained = true;
+		}
 
 		linkTarget = "";
 
 		if (config.isDisplayLinks()) {
-			Node hrefAttribute = attributes.getNamedItem("href");
-			linkTarget = hrefAttribute != null
-				? hrefAttribute.getNodeValue()
+			linkTarget = href != null
+				? href
 				: "";
 		}
 
 		if (config.isDisplayAnchors() && linkTarget.isEmpty()) {
-			Node nameAttribute = attributes.getNamedItem("name");
-			linkTarget = nameAttribute != null
-				? nameAttribute.getNodeValue()
+			linkTarget = name != null
+				? name
 				: "";
 		}
 
@@ -376,23 +1582,24 @@ public class Inscriptis {
 		}
 	}
 
-	private void startImg(NamedNodeMap attributes) {
+	private void startImg(String alt, String title) {
 
 		String imageText = "";
 
-		Node altNode = attributes.getNamedItem("alt");
-		if (altNode != null) {
-			imageText = altNode.getNodeValue();
-		} else {
-			Node titleNode = attributes.getNamedItem("title");
-			if (titleNode != null) {
-				imageText = titleNode.getNodeValue();
-			}
+		if (alt != null) {
+			imageText = alt;
+		} else if (title != null) {
+			imageText = title;
+		}
+
+		if (!imageText.isEmpty() && config.isDeduplicateCaptions() && captionUnknown) {
+			captionDependent = true;
 		}
 
 		if (!imageText.isEmpty() && !(config.isDeduplicateCaptions() && imageText.equals(lastCaption))) {
 			currentLine.peek().addContent(String.format("[%s]", imageText));
 			lastCaption = imageText;
+			captionUnknown = false;
 		}
 	}
 
@@ -422,7 +1629,8 @@ public class Inscriptis {
 	}
 
 	private void startTable() {
-		currentTable.push(new Table());
+		counters.tableCount++;
+		currentTable.push(new Table(sourceMapping));
 	}
 
 	private void startTd() {
@@ -439,7 +1647,8 @@ public class Inscriptis {
 		}
 
 		// open td tag
-		cleanTextLines.push(new ArrayList<>());
+		counters.cellCount++;
+		cleanTextLines.push(new ArrayList<>(config.getSizeHints().getCellLines()));
 		currentLine.push(new Line());
 		nextLine.push(new Line());
 		curTable.addCell(cleanTextLines.peek());
@@ -468,6 +1677,23 @@ public class Inscriptis {
 		liCounter.push(getBullet(liLevel - 1));
 	}
 
+	/**
+	 * @return the given text truncated to the configured preview length and lines.
+	 */
+	private String truncatePreview(CharSequence text) {
+
+		int end = StringUtils.truncatedLength(text, Math.min(text.length(), config.getPreviewLength()));
+
+		int lines = 1;
+		for (int i = 0; i < end; i++) {
+			if (text.charAt(i) == '\n' && lines++ == config.getPreviewLines()) {
+				end = i;
+			}
+		}
+
+		return StringUtils.stripTrailing(text.subSequence(0, end).toString());
+	}
+
 	/**
 	 * Writes the current line to the buffer, provided that there is any data to write.
 	 *
@@ -482,8 +1708,8 @@ public class Inscriptis {
 			return false;
 		}
 
-		String line = currentLine.peek().getText();
-		cleanTextLines.peek().add(line);
+		String line = currentLine.peek().getText(sourceMapping);
+		writeToCanvas(line);
 
 		currentLine.pop();
 		currentLine.push(nextLine.pop());
@@ -498,6 +1724,32 @@ public class Inscriptis {
 	 * @param text the text to write.
 	 */
 	private void writeLineVerbatim(String text) {
+		writeToCanvas(text);
+	}
+
+	/**
+	 * Adds the given text to the current canvas.
+	 *
+	 * @param text the text to add.
+	 */
+	private void writeToCanvas(String text) {
+
 		cleanTextLines.peek().add(text);
+		counters.countLine(text, cleanTextLines.size() == 1);
+		if (cleanTextLines.size() == 1) {
+			recordRootLine(text, cleanTextLines.peek().size() == 1);
+		}
+
+		if (limited) {
+			// the lines of table cells are counted as well, since they are part of the preview once the table ends
+			previewLength += text.length() + 1;
+			if (cleanTextLines.size() == 1) {
+				previewLines += StringUtils.countLines(text);
+			}
+		}
+
+		if (!recordings.isEmpty() && cleanTextLines.size() == 1) {
+			recordedLines.add(text);
+		}
 	}
 }
@@ -0,0 +1,464 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+
+import ch.x28.inscriptis.HtmlProperties.Display;
+import ch.x28.inscriptis.HtmlProperties.WhiteSpace;
+
+/**
+ * The layout of a document, which is rendered to text under different display options without traversing the document
+ * again, e.g. with and without link targets. The model consists of the elements refined by the CSS, style sheets and
+ * style attributes, the attributes rendered by the display options and the text; it is cheaper to cache than the HTML
+ * content, since it is serialized compactly and rendered without parsing and styling.
+ * <p>
+ * A model is rendered under any {@link ParserConfig} that uses the same CSS, style sheets and excluded selectors as the
+ * recording. {@link ConversionLimit}s and source mapping are not supported.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * LayoutModel model = LayoutModel.record(document, config);
+ * model.writeTo(outputStream);
+ * ...
+ * String text = LayoutModel.readFrom(inputStream).render(linksConfig).getText();
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public final class LayoutModel {
+
+	/**
+	 * Receives the recorded elements and text in document order.
+	 */
+	interface Handler {
+
+		void data(String text);
+
+		void endElement(String tag);
+
+		void startElement(String tag, HtmlElement element, String[] attributes);
+	}
+
+	/**
+	 * Records a layout model while a document is converted.
+	 */
+	static final class Builder implements Handler {
+
+		private final long traversalFingerprint;
+		private final List<String> strings = new ArrayList<>();
+		private final Map<String, Integer> stringIndexes = new HashMap<>();
+		private final List<HtmlElement> elements = new ArrayList<>();
+		private final Map<Long, Integer> elementIndexes = new HashMap<>();
+		private int[] events = new int[64];
+		private int size;
+
+		Builder(long traversalFingerprint) {
+			this.traversalFingerprint = traversalFingerprint;
+		}
+
+		private void add(int value) {
+
+			if (size == events.length) {
+				events = Arrays.copyOf(events, size * 2);
+			}
+
+			events[size++] = value;
+		}
+
+		private int addElement(HtmlElement element) {
+
+			Integer index = elementIndexes.get(element.getFingerprint());
+			if (index == null) {
+				index = elements.size();
+				elements.add(element);
+				elementIndexes.put(element.getFingerprint(), index);
+			}
+
+			return index;
+		}
+
+		private int addString(String string) {
+
+			if (string == null) {
+				return -1;
+			}
+
+			Integer index = stringIndexes.get(string);
+			if (index == null) {
+				index = strings.size();
+				strings.add(string);
+				stringIndexes.put(string, index);
+			}
+
+			return index;
+		}
+
+		LayoutModel build() {
+
+			return new LayoutModel(
+				traversalFingerprint,
+				Arrays.copyOf(events, size),
+				strings.toArray(new String[0]),
+				elements.toArray(new HtmlElement[0]));
+		}
+
+		@Override
+		public void data(String text) {
+			add(DATA);
+			add(addString(text));
+		}
+
+		@Override
+		public void endElement(String tag) {
+			add(END);
+			add(addString(tag));
+		}
+
+		@Override
+		public void startElement(String tag, HtmlElement element, String[] attributes) {
+
+			add(START);
+			add(addString(tag));
+			add(addElement(element));
+
+			if (attributes == null) {
+				add(-1);
+			} else {
+				add(attributes.length);
+				for (String attribute : attributes) {
+					add(addString(attribute));
+				}
+			}
+		}
+	}
+
+	private static final int MAGIC = 0x494C4D00; // "ILM"
+	private static final int VERSION = 1;
+
+	/**
+	 * The maximum capacity allocated in advance while reading, so that a corrupt count fails at the end of the stream
+	 * instead of allocating a huge array.
+	 */
+	private static final int MAX_INITIAL_CAPACITY = 8192;
+
+	/**
+	 * The event types, which are followed by the indexes of their strings and elements.
+	 */
+	private static final int START = 0;
+	private static final int DATA = 1;
+	private static final int END = 2;
+
+	private final long traversalFingerprint;
+	private final int[] events;
+	private final String[] strings;
+	private final HtmlElement[] elements;
+
+	private LayoutModel(long traversalFingerprint, int[] events, String[] strings, HtmlElement[] elements) {
+		this.traversalFingerprint = traversalFingerprint;
+		this.events = events;
+		this.strings = strings;
+		this.elements = elements;
+	}
+
+	/**
+	 * Checks that the events reference existing strings and elements, so that a corrupt model is rejected when it is
+	 * read rather than when it is rendered.
+	 */
+	private static void checkEvents(int[] events, int stringCount, int elementCount) throws IOException {
+
+		int i = 0;
+		while (i < events.length) {
+			switch (events[i]) {
+				case START:
+					checkLength(i + 4, events.length);
+					checkIndex(events[i + 1], stringCount);
+					checkIndex(events[i + 2], elementCount);
+					int attributeCount = events[i + 3];
+					i += 4;
+
+					checkLength((long) i + Math.max(0, attributeCount), events.length);
+					for (int j = 0; j < attributeCount; j++) {
+						int index = events[i++];
+						if (index >= 0) {
+							checkIndex(index, stringCount);
+						}
+					}
+					break;
+				case DATA:
+				case END:
+					checkLength(i + 2, events.length);
+					checkIndex(events[i + 1], stringCount);
+					i += 2;
+					break;
+				default:
+					throw new IOException("Corrupt layout model: unknown event " + events[i] + " at " + i);
+			}
+		}
+	}
+
+	private static void checkIndex(int index, int length) throws IOException {
+
+		if (index < 0 || index >= length) {
+			throw new IOException("Corrupt layout model: index " + index + " out of bounds for length " + length);
+		}
+	}
+
+	private static void checkLength(long required, int length) throws IOException {
+
+		if (required > length) {
+			throw new IOException("Corrupt layout model: truncated events");
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream data, int length) throws IOException {
+
+		byte[] bytes = new byte[Math.min(length, MAX_INITIAL_CAPACITY)];
+		data.readFully(bytes);
+
+		while (bytes.length < length) {
+			int position = bytes.length;
+			bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * position));
+			data.readFully(bytes, position, bytes.length - position);
+		}
+
+		return bytes;
+	}
+
+	private static int readCount(DataInputStream data) throws IOException {
+
+		int count = data.readInt();
+		if (count < 0) {
+			throw new IOException("Corrupt layout model: negative count " + count);
+		}
+
+		return count;
+	}
+
+	private static <T> T readEnum(DataInputStream data, T[] values) throws IOException {
+
+		int ordinal = data.readByte();
+		if (ordinal == -1) {
+			return null;
+		}
+
+		checkIndex(ordinal, values.length);
+		return values[ordinal];
+	}
+
+	/**
+	 * Reads a layout model written by {@link #writeTo(OutputStream)}.
+	 *
+	 * @param in the stream to read from, which is not closed.
+	 * @return the layout model.
+	 * @throws IOException if the stream cannot be read or does not contain a valid layout model.
+	 */
+	public static LayoutModel readFrom(InputStream in) throws IOException {
+
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+			throw new IOException("Not a layout model or unsupported version");
+		}
+
+		long traversalFingerprint = data.readLong();
+
+		int stringCount = readCount(data);
+		List<String> strings = new ArrayList<>(Math.min(stringCount, MAX_INITIAL_CAPACITY));
+		for (int i = 0; i < stringCount; i++) {
+			strings.add(new String(readBytes(data, readCount(data)), StandardCharsets.UTF_8));
+		}
+
+		int elementCount = readCount(data);
+		List<HtmlElement> elements = new ArrayList<>(Math.min(elementCount, MAX_INITIAL_CAPACITY));
+		for (int i = 0; i < elementCount; i++) {
+			String tag = strings.get(readIndex(data, stringCount));
+			String prefix = strings.get(readIndex(data, stringCount));
+			String suffix = strings.get(readIndex(data, stringCount));
+			Display display = readEnum(data, Display.values());
+			WhiteSpace whitespace = readEnum(data, WhiteSpace.values());
+
+			elements.add(new HtmlElement(
+				tag,
+				display,
+				whitespace,
+				prefix,
+				suffix,
+				data.readInt(),
+				data.readInt(),
+				data.readInt(),
+				data.readBoolean()));
+		}
+
+		int eventCount = readCount(data);
+		int[] events = new int[Math.min(eventCount, MAX_INITIAL_CAPACITY)];
+		for (int i = 0; i < eventCount; i++) {
+			if (i == events.length) {
+				events = Arrays.copyOf(events, (int) Math.min(eventCount, 2L * events.length));
+			}
+			events[i] = data.readInt();
+		}
+
+		checkEvents(events, stringCount, elementCount);
+
+		return new LayoutModel(traversalFingerprint, events, strings.toArray(new String[0]), elements.toArray(new HtmlElement[0]));
+	}
+
+	private static int readIndex(DataInputStream data, int length) throws IOException {
+
+		int index = data.readInt();
+		checkIndex(index, length);
+		return index;
+	}
+
+	/**
+	 * Records the layout model of the given W3C document.
+	 *
+	 * @param document the W3C document.
+	 * @param config the ParserConfig configuration object, which determines the CSS, style sheets and excluded elements.
+	 * @return the layout model.
+	 * @throws IllegalArgumentException if a {@link ConversionLimit} is configured.
+	 */
+	public static LayoutModel record(Document document, ParserConfig config) {
+		return Inscriptis.record(document, config);
+	}
+
+	long getTraversalFingerprint() {
+		return traversalFingerprint;
+	}
+
+	/**
+	 * Renders the layout model to text.
+	 *
+	 * @param config the ParserConfig configuration object, which may differ from the recording in the display options.
+	 * @return the result of the conversion.
+	 * @throws IllegalArgumentException if the configuration does not use the CSS, style sheets and excluded selectors of
+	 *         the recording, if a {@link ConversionLimit} is configured or if the source is mapped.
+	 */
+	public ConversionResult render(ParserConfig config) {
+		return Inscriptis.render(this, config);
+	}
+
+	/**
+	 * Passes the recorded elements and text to the given handler in document order.
+	 *
+	 * @param handler the handler.
+	 */
+	void replay(Handler handler) {
+
+		int i = 0;
+		while (i < events.length) {
+			switch (events[i]) {
+				case START:
+					String tag = strings[events[i + 1]];
+					HtmlElement element = elements[events[i + 2]];
+					int attributeCount = events[i + 3];
+					i += 4;
+
+					String[] attributes = null;
+					if (attributeCount >= 0) {
+						attributes = new String[attributeCount];
+						for (int j = 0; j < attributeCount; j++) {
+							int index = events[i++];
+							attributes[j] = index >= 0 ? strings[index] : null;
+						}
+					}
+
+					handler.startElement(tag, element, attributes);
+					break;
+				case DATA:
+					handler.data(strings[events[i + 1]]);
+					i += 2;
+					break;
+				case END:
+					handler.endElement(strings[events[i + 1]]);
+					i += 2;
+					break;
+				default:
+					throw new IllegalStateException("Corrupt layout model at " + i);
+			}
+		}
+	}
+
+	/**
+	 * Writes the layout model in a compact binary format.
+	 *
+	 * @param out the stream to write to, which is neither flushed nor closed.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeLong(traversalFingerprint);
+
+		// the attributes of the elements are written as strings as well
+		Map<String, Integer> stringIndexes = new HashMap<>();
+		List<String> allStrings = new ArrayList<>(Arrays.asList(strings));
+		for (int i = 0; i < strings.length; i++) {
+			stringIndexes.putIfAbsent(strings[i], i);
+		}
+		for (HtmlElement element : elements) {
+			for (String string : new String[] { element.getTag(), element.getPrefix(), element.getSuffix() }) {
+				if (!stringIndexes.containsKey(string)) {
+					stringIndexes.put(string, allStrings.size());
+					allStrings.add(string);
+				}
+			}
+		}
+
+		data.writeInt(allStrings.size());
+		for (String string : allStrings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+
+		data.writeInt(elements.length);
+		for (HtmlElement element : elements) {
+			data.writeInt(stringIndexes.get(element.getTag()));
+			data.writeInt(stringIndexes.get(element.getPrefix()));
+			data.writeInt(stringIndexes.get(element.getSuffix()));
+			data.writeByte(element.getDisplay() != null ? element.getDisplay().ordinal() : -1);
+			data.writeByte(element.getWhitespace() != null ? element.getWhitespace().ordinal() : -1);
+			data.writeInt(element.getMarginBefore());
+			data.writeInt(element.getMarginAfter());
+			data.writeInt(element.getPadding());
+			data.writeBoolean(element.isLimitWhitespaceAffixes());
+		}
+
+		data.writeInt(events.length);
+		for (int event : events) {
+			data.writeInt(event);
+		}
+	}
+}
@@ -33,16 +33,57 @@ class Line {
 	private int marginAfter = 0;
 	private String prefix = "";
 	private String suffix = "";
-	private String content = "";
+	private StringBuilder content = new StringBuilder();
 	private String listBullet = "";
 	private int padding = 0;
+	private SourceRuns sources;
 
 	public void addContent(String content) {
-		this.content += content;
+		this.content.append(content);
+	}
+
+	/**
+	 * Add content that has been copied in part from a text node of the source document.
+	 *
+	 * @param content the content to add.
+	 * @param sourceStart the offset of the copied part within the content.
+	 * @param sourceLength the length of the copied part.
+	 * @param node the index of the text node in the {@link SourceMapping}.
+	 */
+	public void addContent(String content, int sourceStart, int sourceLength, int node) {
+
+		if (sources == null) {
+			sources = new SourceRuns();
+		}
+
+		sources.add(this.content.length() + sourceStart, sourceLength, node, 0);
+		this.content.append(content);
+	}
+
+	/**
+	 * @return a copy of the current line.
+	 */
+	@Override
+	public Line clone() {
+
+		Line line = new Line();
+		line.marginBefore = marginBefore;
+		line.marginAfter = marginAfter;
+		line.prefix = prefix;
+		line.suffix = suffix;
+		line.content = new StringBuilder(content);
+		line.listBullet = listBullet;
+		line.padding = padding;
+		if (sources != null) {
+			line.sources = new SourceRuns();
+			line.sources.addAll(sources, 0);
+		}
+
+		return line;
 	}
 
 	public String getContent() {
-		return content;
+		return content.toString();
 	}
 
 	public String getListBullet() {
@@ -73,10 +114,22 @@ class Line {
 	 * @return the text representation of the current line.
 	 */
 	public String getText() {
+		return getText(null);
+	}
+
+	/**
+	 * Returns the text representation of the current line and attaches the runs of the content copied from the source
+	 * document to it.
+	 *
+	 * @param mapping the source mapping or {@code null}, if the source is not mapped.
+	 * @return the text representation of the current line.
+	 */
+	public String getText(SourceMapping mapping) {
 
 		List<String> text = new ArrayList<>();
 
-		if (!content.contains("\0")) {
+		String content = this.content.toString();
+		if (content.indexOf('\0') < 0) {
 			// standard text without any `WhiteSpace#PRE` formatted text.
 			text.addAll(Arrays.asList(content.trim().split("\\s+")));
 		} else {
@@ -106,12 +159,72 @@ class Line {
 			.append(StringUtils.repeat("\n", marginBefore))
 			.append(StringUtils.repeat(" ", Math.max(0, padding - listBullet.length())))
 			.append(listBullet)
-			.append(prefix)
-			.append(String.join(" ", text))
+			.append(prefix);
+
+		int start = result.length();
+		result.append(String.join(" ", text));
+		int end = result.length();
+
+		result
 			.append(suffix)
 			.append(StringUtils.repeat("\n", marginAfter));
 
-		return result.toString();
+		String lineText = result.toString();
+		if (mapping != null && sources != null) {
+			mapping.put(lineText, alignSources(lineText, start, end));
+		}
+
+		return lineText;
+	}
+
+	/**
+	 * Aligns the rendered content with the raw content to map the rendered characters to the source document. The
+	 * rendering only removes whitespace and the markers of `WhiteSpace#PRE` formatted text, and inserts single spaces
+	 * between words and the padding after line breaks of `WhiteSpace#PRE` formatted text.
+	 */
+	private SourceRuns alignSources(String text, int start, int end) {
+
+		SourceRuns runs = new SourceRuns();
+		boolean pre = content.indexOf("\0") >= 0;
+
+		int j = 0;
+		int source = 0;
+		int skip = 0;
+		for (int k = start; k < end; k++) {
+			if (skip > 0) {
+				skip--;
+				continue;
+			}
+
+			char c = text.charAt(k);
+			while (j < content.length() && content.charAt(j) != c && isRemovable(content.charAt(j))) {
+				j++;
+			}
+
+			if (j == content.length() || content.charAt(j) != c) {
+				// inserted between words
+				continue;
+			}
+
+			while (source < sources.size() && sources.getTextStart(source) + sources.getLength(source) <= j) {
+				source++;
+			}
+
+			if (source < sources.size() && sources.getTextStart(source) <= j) {
+				runs.add(k, 1, sources.getNode(source), sources.getNodeOffset(source) + j - sources.getTextStart(source));
+			}
+
+			j++;
+			if (c == '\n' && pre) {
+				skip = padding;
+			}
+		}
+
+		return runs;
+	}
+
+	private static boolean isRemovable(char c) {
+		return c == '\0' || Character.isWhitespace(c);
 	}
 
 	/**
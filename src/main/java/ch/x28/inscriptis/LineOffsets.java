@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.Arrays;
+
+/**
+ * Records the offsets at which the lines of a text start while the text is written.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+final class LineOffsets {
+
+	private int[] starts;
+	private int count;
+
+	/**
+	 * @param expectedLines the expected number of lines.
+	 */
+	LineOffsets(int expectedLines) {
+
+		starts = new int[Math.max(1, expectedLines)];
+		starts[count++] = 0;
+	}
+
+	/**
+	 * Records the line breaks of the given text, which has been written at the given offset.
+	 *
+	 * @param text the written text.
+	 * @param offset the offset of the text.
+	 */
+	void add(CharSequence text, int offset) {
+
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				addLine(offset + i + 1);
+			}
+		}
+	}
+
+	/**
+	 * Records a line starting at the given offset.
+	 *
+	 * @param start the offset of the first character of the line.
+	 */
+	void addLine(int start) {
+
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+		}
+
+		starts[count++] = start;
+	}
+
+	/**
+	 * Returns the offsets of the lines of the text truncated to the given length.
+	 *
+	 * @param length the length of the text.
+	 * @return the offsets of all lines starting within the text or at its end; empty for an empty text.
+	 */
+	int[] toArray(int length) {
+
+		if (length == 0) {
+			return new int[0];
+		}
+
+		int lines = count;
+		while (starts[lines - 1] > length) {
+			lines--;
+		}
+
+		return Arrays.copyOf(starts, lines);
+	}
+}
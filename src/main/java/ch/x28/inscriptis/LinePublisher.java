@@ -0,0 +1,374 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.w3c.dom.Document;
+
+/**
+ * The LinePublisher emits the lines of the root canvas while a W3C document is translated to its text representation.
+ * The conversion only advances as far as the demand signalled by the subscriber requires, so a slow subscriber
+ * throttles the conversion and the first lines of a large document are available early.
+ * <p>
+ * The nested {@link Subscriber} and {@link Subscription} interfaces mirror {@code java.util.concurrent.Flow}, which is
+ * not available on Java 8. Joining all published lines with {@code "\n"} yields the text returned by
+ * {@link Inscriptis#getText()}, including the truncation to the maximum output length and the preview.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * Document document = &lt;W3C document&gt;;
+ * LinePublisher publisher = new LinePublisher(document);
+ * publisher.subscribe(&lt;Subscriber&gt;);
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class LinePublisher {
+
+	/**
+	 * Receives the lines published by a {@link LinePublisher}.
+	 */
+	public interface Subscriber {
+
+		/**
+		 * Invoked after the subscriber has been subscribed. No lines are published until demand is signalled through
+		 * {@link Subscription#request(long)}.
+		 *
+		 * @param subscription the subscription used to signal demand or to cancel the conversion.
+		 */
+		void onSubscribe(Subscription subscription);
+
+		/**
+		 * Invoked for every line of the root canvas.
+		 *
+		 * @param line the rendered line, which may span multiple lines of text (e.g. tables or margins).
+		 */
+		void onNext(CharSequence line);
+
+		/**
+		 * Invoked if the conversion failed. No further methods are invoked afterwards.
+		 *
+		 * @param throwable the cause of the failure.
+		 */
+		void onError(Throwable throwable);
+
+		/**
+		 * Invoked after the last line has been published.
+		 */
+		void onComplete();
+	}
+
+	/**
+	 * Links a {@link Subscriber} to the conversion of a document.
+	 */
+	public interface Subscription {
+
+		/**
+		 * Requests the given number of additional lines.
+		 *
+		 * @param n the number of lines, must be positive.
+		 */
+		void request(long n);
+
+		/**
+		 * Stops the conversion. Already requested lines may still be published.
+		 */
+		void cancel();
+	}
+
+	private final Document document;
+	private final ParserConfig config;
+
+	/**
+	 * Creates a publisher for the given W3C document by using the default {@link ParserConfig} with
+	 * {@link CssProfile#RELAXED}.
+	 *
+	 * @param document the W3C document to convert
+	 */
+	public LinePublisher(Document document) {
+		this(document, new ParserConfig());
+	}
+
+	/**
+	 * Creates a publisher for the given W3C document by using the specified {@link ParserConfig}.
+	 *
+	 * @param document the W3C document to convert
+	 * @param config an optional ParserConfig configuration object
+	 */
+	public LinePublisher(Document document, ParserConfig config) {
+		this.document = document;
+		this.config = config;
+	}
+
+	/**
+	 * Subscribes the given subscriber. Every subscription converts the document on its own, in the thread that
+	 * signals the demand.
+	 *
+	 * @param subscriber the subscriber receiving the lines.
+	 */
+	public void subscribe(Subscriber subscriber) {
+
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber must not be null");
+		}
+
+		subscriber.onSubscribe(new LineSubscription(subscriber));
+	}
+
+	private class LineSubscription implements Subscription {
+
+		private final Subscriber subscriber;
+
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+
+		private Inscriptis inscriptis;
+		/**
+		 * Lines that are followed by content and hence can be published.
+		 */
+		private final Deque<String> ready = new ArrayDeque<>();
+		/**
+		 * The last line with content followed by blank lines; these are only published if further content follows,
+		 * since {@link Inscriptis#getText()} strips trailing whitespace.
+		 */
+		private final List<String> held = new ArrayList<>();
+		/**
+		 * Lines after the last line ending with content, which are only published if further content follows, since
+		 * the whitespace at the end of a truncated preview is stripped.
+		 */
+		private final List<String> trailing = new ArrayList<>();
+		private boolean converted;
+
+		/**
+		 * The length and number of lines of the text passed to {@link #offer(String)}, which are limited like the text
+		 * returned by {@link Inscriptis#getText()}.
+		 */
+		private int length;
+		private int lineCount;
+		private boolean truncated;
+
+		LineSubscription(Subscriber subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+
+		@Override
+		public void request(long n) {
+
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("The number of requested lines must be positive: " + n);
+			} else {
+				long current;
+				long next;
+				do {
+					current = requested.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!requested.compareAndSet(current, next));
+			}
+
+			drain();
+		}
+
+		/**
+		 * Publishes as many lines as requested. Only a single thread converts at a time; demand signalled while
+		 * publishing (e.g. by a reentrant call from {@link Subscriber#onNext(CharSequence)}) is served by that thread.
+		 */
+		private void drain() {
+
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+
+			int missed = 1;
+			do {
+				long emitted = 0;
+				long demand = requested.get();
+
+				while (!cancelled) {
+					if (invalidRequest != null) {
+						cancelled = true;
+						subscriber.onError(invalidRequest);
+						break;
+					}
+
+					if (emitted == demand) {
+						break;
+					}
+
+					String line;
+					try {
+						line = nextLine();
+					} catch (RuntimeException | Error e) {
+						cancelled = true;
+						subscriber.onError(e);
+						break;
+					}
+
+					if (line == null) {
+						cancelled = true;
+						subscriber.onComplete();
+						break;
+					}
+
+					subscriber.onNext(line);
+					emitted++;
+				}
+
+				if (emitted > 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+
+				if (cancelled) {
+					// release the conversion state while no other thread drains
+					inscriptis = null;
+					ready.clear();
+					held.clear();
+					trailing.clear();
+				}
+
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		/**
+		 * @return the next line to publish or {@code null} if all lines have been published.
+		 */
+		private String nextLine() {
+
+			if (inscriptis == null && !converted) {
+				inscriptis = new Inscriptis(config);
+				inscriptis.beginTraversal(document);
+			}
+
+			while (ready.isEmpty() && !converted) {
+				if (!inscriptis.advance()) {
+					inscriptis.finish();
+					converted = true;
+				}
+
+				for (String line : inscriptis.takeRootLines()) {
+					if (StringUtils.isBlank(line)) {
+						held.add(line);
+					} else {
+						for (String heldLine : held) {
+							offer(heldLine);
+						}
+						held.clear();
+						held.add(line);
+					}
+				}
+
+				if (converted) {
+					// publish the last line with content without the trailing whitespace
+					if (!held.isEmpty() && !StringUtils.isBlank(held.get(0))) {
+						offer(StringUtils.stripTrailing(held.get(0)));
+					}
+					ready.addAll(trailing);
+				}
+
+				if (converted || truncated) {
+					converted = true;
+					inscriptis = null;
+					held.clear();
+					trailing.clear();
+				}
+			}
+
+			return ready.poll();
+		}
+
+		/**
+		 * Adds the given line to the lines ready for publishing, truncated to the maximum output length and the
+		 * preview like the text returned by {@link Inscriptis#getText()}.
+		 */
+		private void offer(String line) {
+
+			if (truncated) {
+				return;
+			}
+
+			int maxLength = config.getMaxOutputLength();
+			int maxLines = Integer.MAX_VALUE;
+			if (config.isPreview()) {
+				maxLength = Math.min(maxLength, config.getPreviewLength());
+				maxLines = config.getPreviewLines();
+			}
+
+			// the line is preceded by a line break, unless it is the first line
+			int start = lineCount > 0 ? 1 : 0;
+			int end = Math.min(start + line.length(), maxLength - length);
+
+			// the line break before the line must not exceed the maximum number of lines either
+			int lines = lineCount + 1;
+			if (lineCount == maxLines) {
+				end = 0;
+			}
+			for (int i = 0; i < end - start; i++) {
+				if (line.charAt(i) == '\n' && lines++ == maxLines) {
+					end = start + i;
+				}
+			}
+
+			if (end > start) {
+				end = start + StringUtils.truncatedLength(line, end - start);
+			}
+
+			truncated = end < start + line.length();
+			length += Math.max(end, 0);
+			lineCount = lines;
+
+			String published = end >= start ? line.substring(0, end - start) : null;
+			if (!config.isPreview()) {
+				if (published != null) {
+					ready.add(published);
+				}
+			} else if (truncated) {
+				// a truncated preview is stripped of trailing whitespace
+				if (published != null) {
+					trailing.add(published);
+				}
+
+				String text = StringUtils.stripTrailing(String.join("\n", trailing));
+				if (!text.isEmpty()) {
+					ready.add(text);
+				}
+				trailing.clear();
+			} else {
+				trailing.add(published);
+				if (!published.isEmpty() && !Character.isWhitespace(published.charAt(published.length() - 1))) {
+					ready.addAll(trailing);
+					trailing.clear();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects the {@link DocumentMetadata} during a conversion. The text rendered for an element is located by the range
+ * of text nodes it contains, which are numbered by the {@link SourceMapping}.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+final class MetadataCollector {
+
+	/**
+	 * A heading or link, which is collected until its end tag.
+	 */
+	private static final class Entry {
+
+		private final int level;
+		private final String href;
+		private final StringBuilder text = new StringBuilder();
+		private final int nodeFrom;
+		private int nodeTo;
+
+		Entry(int level, String href, int nodeFrom) {
+			this.level = level;
+			this.href = href;
+			this.nodeFrom = nodeFrom;
+			this.nodeTo = nodeFrom;
+		}
+	}
+
+	private String title;
+	private final List<Entry> entries = new ArrayList<>();
+	/**
+	 * The entries of the open elements, {@code null} for elements that are not collected.
+	 */
+	private final List<Entry> openElements = new ArrayList<>();
+	/**
+	 * The open entries, which receive the text.
+	 */
+	private final List<Entry> openEntries = new ArrayList<>();
+
+	/**
+	 * Adds the text of a text node to the open headings and links.
+	 *
+	 * @param text the text.
+	 */
+	void data(String text) {
+
+		for (Entry entry : openEntries) {
+			entry.text.append(text);
+		}
+	}
+
+	/**
+	 * Closes the element opened last.
+	 *
+	 * @param nodeCount the number of text nodes rendered so far.
+	 */
+	void endElement(int nodeCount) {
+
+		Entry entry = openElements.remove(openElements.size() - 1);
+		if (entry != null) {
+			entry.nodeTo = nodeCount;
+			openEntries.remove(openEntries.size() - 1);
+		}
+	}
+
+	/**
+	 * Opens an element.
+	 *
+	 * @param tag the name of the element.
+	 * @param attributes the attributes of the element, see {@link Inscriptis}.
+	 * @param hidden whether the content of the element is not rendered.
+	 * @param nodeCount the number of text nodes rendered so far.
+	 */
+	void startElement(String tag, String[] attributes, boolean hidden, int nodeCount) {
+
+		Entry entry = null;
+		switch (tag) {
+			case "head":
+				if (title == null) {
+					title = attributes[0];
+				}
+				break;
+			case "h1":
+			case "h2":
+			case "h3":
+			case "h4":
+			case "h5":
+			case "h6":
+				if (!hidden) {
+					entry = new Entry(tag.charAt(1) - '0', null, nodeCount);
+				}
+				break;
+			case "a":
+				if (!hidden && attributes[0] != null) {
+					entry = new Entry(0, attributes[0], nodeCount);
+				}
+				break;
+		}
+
+		openElements.add(entry);
+		if (entry != null) {
+			entries.add(entry);
+			openEntries.add(entry);
+		}
+	}
+
+	/**
+	 * Creates the metadata with the ranges of the headings and links in the final text.
+	 *
+	 * @param sourceMap the source map of the final text.
+	 * @param nodeCount the number of text nodes rendered.
+	 * @return the metadata.
+	 */
+	DocumentMetadata toMetadata(SourceMap sourceMap, int nodeCount) {
+
+		// the range of every text node in the final text
+		int[] starts = new int[nodeCount];
+		int[] ends = new int[nodeCount];
+		Arrays.fill(starts, Integer.MAX_VALUE);
+		Arrays.fill(ends, -1);
+		for (int run = 0; run < sourceMap.size(); run++) {
+			int node = sourceMap.getNodeIndex(run);
+			starts[node] = Math.min(starts[node], sourceMap.getTextStart(run));
+			ends[node] = Math.max(ends[node], sourceMap.getTextEnd(run));
+		}
+
+		List<DocumentMetadata.Heading> headings = new ArrayList<>();
+		List<DocumentMetadata.Link> links = new ArrayList<>();
+		for (Entry entry : entries) {
+			int start = Integer.MAX_VALUE;
+			int end = -1;
+			for (int node = entry.nodeFrom; node < entry.nodeTo; node++) {
+				start = Math.min(start, starts[node]);
+				end = Math.max(end, ends[node]);
+			}
+
+			if (end < 0) {
+				start = -1;
+			}
+
+			String text = entry.text.toString().trim().replaceAll("\\s+", " ");
+			if (entry.href != null) {
+				links.add(new DocumentMetadata.Link(entry.href, text, start, end));
+			} else {
+				headings.add(new DocumentMetadata.Heading(entry.level, text, start, end));
+			}
+		}
+
+		return new DocumentMetadata(title, Collections.unmodifiableList(headings), Collections.unmodifiableList(links));
+	}
+}
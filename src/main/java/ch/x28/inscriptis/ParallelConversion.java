@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import ch.x28.inscriptis.HtmlProperties.Display;
+
+/**
+ * Converts the children of the {@code body} element in parallel.
+ * <p>
+ * The children are split into chunks after elements that are displayed as block. Every chunk is converted by a forked
+ * {@link Inscriptis} that assumes the rendering state found after a block has been written. The chunks are stitched
+ * together in document order; a chunk whose assumed state differs from the state actually left by its predecessor is
+ * converted again with the correct state, so that the result is identical to the sequential conversion.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+class ParallelConversion {
+
+	/**
+	 * The minimum number of children converted by a single task.
+	 */
+	private static final int MIN_CHUNK_SIZE = 8;
+
+	/**
+	 * The documents that are read concurrently. The DOM API does not guarantee concurrent reads; the documents of
+	 * Xerces, which is used by the JDK, only support them if they have been created without deferred node expansion,
+	 * like the documents of jsoup and the {@link HtmlParser}, and if the attribute maps of shared nodes exist.
+	 */
+	private static final Set<String> CONCURRENTLY_READABLE_DOCUMENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+		"com.sun.org.apache.xerces.internal.dom.CoreDocumentImpl",
+		"com.sun.org.apache.xerces.internal.dom.DocumentImpl",
+		"org.apache.xerces.dom.CoreDocumentImpl",
+		"org.apache.xerces.dom.DocumentImpl")));
+
+	/**
+	 * The text written to the root canvas by a chunk and the rendering states before and after the chunk.
+	 */
+	private static class Chunk {
+
+		private final int from;
+		private final int to;
+		private final Inscriptis.State startState;
+		private final Inscriptis.State endState;
+		private final List<String> lines;
+		private final boolean captionDependent;
+		private final ConversionMetrics.Counters counters;
+		/**
+		 * The cost per tag of the chunk, which is committed only if the chunk is used.
+		 */
+		private final TagStatistics.Recorder tagRecorder;
+
+		Chunk(int from, int to, Inscriptis.State startState, Inscriptis.State endState, List<String> lines, boolean captionDependent,
+			ConversionMetrics.Counters counters, TagStatistics.Recorder tagRecorder) {
+			this.from = from;
+			this.to = to;
+			this.startState = startState;
+			this.endState = endState;
+			this.lines = lines;
+			this.captionDependent = captionDependent;
+			this.counters = counters;
+			this.tagRecorder = tagRecorder;
+		}
+	}
+
+	private class ChunkTask extends RecursiveTask<List<Chunk>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		ChunkTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<Chunk> compute() {
+
+			int split = findBoundary(from, to);
+			if (split < 0) {
+				List<Chunk> chunks = new ArrayList<>(1);
+				chunks.add(convert(from, to, from == 0 ? initialState : assumedState));
+				return chunks;
+			}
+
+			ChunkTask left = new ChunkTask(from, split);
+			left.fork();
+			List<Chunk> right = new ChunkTask(split, to).compute();
+
+			List<Chunk> chunks = left.join();
+			chunks.addAll(right);
+			return chunks;
+		}
+	}
+
+	private final Inscriptis inscriptis;
+	private final CssProfile css;
+	private final List<Node> children;
+	private final Inscriptis.State initialState;
+	private final Inscriptis.State assumedState;
+
+	private ParallelConversion(Inscriptis inscriptis, CssProfile css, List<Node> children, Inscriptis.State initialState) {
+		this.inscriptis = inscriptis;
+		this.css = css;
+		this.children = children;
+		this.initialState = initialState;
+		this.assumedState = initialState.afterBlock();
+	}
+
+	/**
+	 * Converts the children of the given element in parallel, provided that the document supports concurrent reads,
+	 * the element has enough children and no table or list is open.
+	 *
+	 * @param inscriptis the conversion that has just handled the start tag of the given element.
+	 * @param css the CSS profile used for detecting block elements.
+	 * @param element the element whose children are converted.
+	 * @return {@code true}, if the children have been converted, otherwise {@code false}.
+	 */
+	static boolean convertChildren(Inscriptis inscriptis, CssProfile css, Node element) {
+
+		if (!isConcurrentlyReadable(element.getOwnerDocument())) {
+			return false;
+		}
+
+		List<Node> children = new ArrayList<>();
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+			children.add(child);
+		}
+
+		if (children.size() < 2 * MIN_CHUNK_SIZE) {
+			return false;
+		}
+
+		Inscriptis.State state = inscriptis.captureState();
+		if (state == null) {
+			return false;
+		}
+
+		// the attribute maps are created on first access, hence those of the ancestors read by all chunks are created
+		// before forking
+		for (Node ancestor = element; ancestor != null; ancestor = ancestor.getParentNode()) {
+			ancestor.getAttributes();
+		}
+
+		new ParallelConversion(inscriptis, css, children, state).convert();
+		return true;
+	}
+
+	/**
+	 * @param document the W3C document.
+	 * @return whether the nodes of the given document may be read concurrently.
+	 */
+	static boolean isConcurrentlyReadable(Document document) {
+		return document != null && CONCURRENTLY_READABLE_DOCUMENTS.contains(document.getClass().getName());
+	}
+
+	private void convert() {
+
+		List<Chunk> chunks = ForkJoinPool.commonPool().invoke(new ChunkTask(0, children.size()));
+
+		Inscriptis.State state = initialState;
+		for (Chunk chunk : chunks) {
+			if (chunk.captionDependent || !chunk.startState.matches(state)) {
+				// the speculation failed, convert the chunk with the actual state
+				chunk = convert(chunk.from, chunk.to, state);
+			}
+
+			inscriptis.appendRootLines(chunk.lines);
+			inscriptis.getCounters().add(chunk.counters);
+			if (chunk.tagRecorder != null) {
+				chunk.tagRecorder.commit();
+			}
+			state = chunk.endState.resolve(state);
+		}
+
+		inscriptis.restoreState(state);
+	}
+
+	private Chunk convert(int from, int to, Inscriptis.State startState) {
+
+		Inscriptis fork = inscriptis.fork(startState);
+		for (int i = from; i < to; i++) {
+			fork.beginTraversal(children.get(i));
+			while (fork.advance()) {
+				// convert the whole subtree
+			}
+		}
+
+		return new Chunk(from, to, startState, fork.captureState(), fork.takeRootLines(), fork.isCaptionDependent(),
+			fork.getCounters(), fork.takeTagRecorder());
+	}
+
+	/**
+	 * @return the index of the child closest to the middle of the given range that follows a block element, or
+	 *         {@code -1} if the range should not be split any further.
+	 */
+	private int findBoundary(int from, int to) {
+
+		if (to - from < 2 * MIN_CHUNK_SIZE) {
+			return -1;
+		}
+
+		int middle = (from + to) >>> 1;
+		for (int offset = 0; middle - offset >= from + MIN_CHUNK_SIZE || middle + offset <= to - MIN_CHUNK_SIZE; offset++) {
+			int candidate = middle + offset;
+			if (candidate <= to - MIN_CHUNK_SIZE && isBlock(children.get(candidate - 1))) {
+				return candidate;
+			}
+
+			candidate = middle - offset;
+			if (candidate >= from + MIN_CHUNK_SIZE && isBlock(children.get(candidate - 1))) {
+				return candidate;
+			}
+		}
+
+		return -1;
+	}
+
+	private boolean isBlock(Node node) {
+
+		if (node.getNodeType() != Node.ELEMENT_NODE) {
+			return false;
+		}
+
+		HtmlElement htmlElement = css.get(node.getNodeName());
+		return htmlElement != null && htmlElement.getDisplay() == Display.BLOCK;
+	}
+}
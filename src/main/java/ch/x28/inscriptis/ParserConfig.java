@@ -15,9 +15,17 @@
  */
 package ch.x28.inscriptis;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * The ParserConfig object encapsulates configuration options and custom CSS definitions used by inscriptis for
  * translating HTML to text.
+ * <p>
+ * A configuration learns the sizes of the texts it is used for, so reusing it for similar documents, e.g. of a single
+ * site, avoids resizing the internal buffers.
  *
  * @author Sascha Wolski
  * @author Matthias Hewelt
@@ -29,6 +37,24 @@ public class ParserConfig {
 	private boolean deduplicateCaptions = false;
 	private boolean displayLinks = false;
 	private boolean displayAnchors = false;
+	private boolean parallel = false;
+	private boolean embeddedStyleSheets = false;
+	private boolean sourceMapping = false;
+	private boolean collectMetadata = false;
+	private SubtreeCache subtreeCache = null;
+	private ConversionListener conversionListener = null;
+	private TagStatistics tagStatistics = null;
+	private SelectorFilter exclusionFilter = null;
+	private int maxDepth = Integer.MAX_VALUE;
+	private int maxNodes = Integer.MAX_VALUE;
+	private int maxOutputLength = Integer.MAX_VALUE;
+	private int maxTableCells = Integer.MAX_VALUE;
+	private int maxTableRows = Integer.MAX_VALUE;
+	private Duration timeBudget = null;
+	private boolean failOnLimit = false;
+	private int previewLength = Integer.MAX_VALUE;
+	private int previewLines = Integer.MAX_VALUE;
+	private final SizeHints sizeHints = new SizeHints();
 
 	/**
 	 * Creates a new parser configuration with {@link CssProfile#RELAXED}.
@@ -46,6 +72,13 @@ public class ParserConfig {
 		css = cssProfile;
 	}
 
+	/**
+	 * @return the configured {@link ConversionListener} or {@code null}.
+	 */
+	public ConversionListener getConversionListener() {
+		return conversionListener;
+	}
+
 	/**
 	 * Returns the configured {@link CssProfile}.
 	 * 
@@ -55,6 +88,167 @@ public class ParserConfig {
 		return css;
 	}
 
+	/**
+	 * @return the selectors of the elements excluded from the conversion.
+	 */
+	public List<String> getExcludedSelectors() {
+		return exclusionFilter != null ? exclusionFilter.getSelectors() : Collections.emptyList();
+	}
+
+	/**
+	 * @return the filter matching the excluded elements or {@code null}.
+	 */
+	SelectorFilter getExclusionFilter() {
+		return exclusionFilter;
+	}
+
+	/**
+	 * @return a hash of all options that affect the text representation, which is stable across JVMs.
+	 */
+	long getFingerprint() {
+
+		int options = (displayImages ? 1 : 0) |
+			(deduplicateCaptions ? 2 : 0) |
+			(displayLinks ? 4 : 0) |
+			(displayAnchors ? 8 : 0) |
+			(embeddedStyleSheets ? 16 : 0);
+
+		long hash = ContentHash.combine(css.getFingerprint(), options);
+		if (exclusionFilter != null) {
+			hash = ContentHash.combine(hash, exclusionFilter.getFingerprint());
+		}
+
+		if (hasLimits()) {
+			// the time budget is not included, since texts truncated by it are not cached
+			hash = ContentHash.combine(hash, maxDepth);
+			hash = ContentHash.combine(hash, maxNodes);
+			hash = ContentHash.combine(hash, maxOutputLength);
+			hash = ContentHash.combine(hash, maxTableCells);
+			hash = ContentHash.combine(hash, maxTableRows);
+			hash = ContentHash.combine(hash, previewLength);
+			hash = ContentHash.combine(hash, previewLines);
+		}
+
+		return hash;
+	}
+
+	/**
+	 * @return the maximum nesting depth of elements.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return the maximum number of nodes visited by a conversion.
+	 */
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * @return the maximum number of characters of the text representation.
+	 */
+	public int getMaxOutputLength() {
+		return maxOutputLength;
+	}
+
+	/**
+	 * @return the maximum number of cells per table.
+	 */
+	public int getMaxTableCells() {
+		return maxTableCells;
+	}
+
+	/**
+	 * @return the maximum number of rows per table.
+	 */
+	public int getMaxTableRows() {
+		return maxTableRows;
+	}
+
+	/**
+	 * @return the maximum number of characters of a preview.
+	 */
+	public int getPreviewLength() {
+		return previewLength;
+	}
+
+	/**
+	 * @return the maximum number of lines of a preview.
+	 */
+	public int getPreviewLines() {
+		return previewLines;
+	}
+
+	/**
+	 * @return the sizes learned from previous conversions.
+	 */
+	SizeHints getSizeHints() {
+		return sizeHints;
+	}
+
+	/**
+	 * Returns the {@link SubtreeCache} used for reusing the text rendered for subtrees shared by many documents.
+	 *
+	 * @return the configured {@link SubtreeCache} or {@code null}.
+	 */
+	public SubtreeCache getSubtreeCache() {
+		return subtreeCache;
+	}
+
+	/**
+	 * @return the configured {@link TagStatistics} or {@code null}.
+	 */
+	public TagStatistics getTagStatistics() {
+		return tagStatistics;
+	}
+
+	/**
+	 * @return a hash of the options that determine the elements visited and their CSS, which is stable across JVMs.
+	 */
+	long getTraversalFingerprint() {
+
+		long hash = ContentHash.combine(css.getFingerprint(), embeddedStyleSheets ? 1 : 0);
+		if (exclusionFilter != null) {
+			hash = ContentHash.combine(hash, exclusionFilter.getFingerprint());
+		}
+
+		return hash;
+	}
+
+	/**
+	 * @return the maximum wall-clock time of a conversion or {@code null}.
+	 */
+	public Duration getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * @return whether any {@link ConversionLimit} or a preview is configured.
+	 */
+	boolean hasLimits() {
+
+		return isPreview() ||
+			maxDepth != Integer.MAX_VALUE ||
+			maxNodes != Integer.MAX_VALUE ||
+			maxOutputLength != Integer.MAX_VALUE ||
+			maxTableCells != Integer.MAX_VALUE ||
+			maxTableRows != Integer.MAX_VALUE ||
+			timeBudget != null;
+	}
+
+	/**
+	 * Whether the given configuration traverses a document like this one, i.e. uses the same CSS, style sheets and
+	 * excluded selectors, so that both are rendered in a single traversal.
+	 *
+	 * @param other the other configuration.
+	 * @return {@code true}, if the configurations only differ in options that do not affect the traversal.
+	 */
+	boolean isTraversalShared(ParserConfig other) {
+		return getTraversalFingerprint() == other.getTraversalFingerprint();
+	}
+
 	/**
 	 * Whether to deduplicate captions such as image titles (many newspaper include images and video previews with
 	 * identifical titles).
@@ -74,6 +268,25 @@ public class ParserConfig {
 		return displayAnchors;
 	}
 
+	/**
+	 * Whether to apply the rules of the embedded style sheets ({@code <style>} elements) of a document.
+	 *
+	 * @return {@code true} to apply embedded style sheets, otherwise {@code false}.
+	 */
+	public boolean isEmbeddedStyleSheets() {
+		return embeddedStyleSheets;
+	}
+
+	/**
+	 * Whether to throw a {@link ConversionLimitException} with the partial text if a {@link ConversionLimit} is
+	 * exceeded.
+	 *
+	 * @return {@code true} to fail, or {@code false} to truncate the text.
+	 */
+	public boolean isFailOnLimit() {
+		return failOnLimit;
+	}
+
 	/**
 	 * Whether to include images <code>alt</code> or <code>title</code> attribute values as text. If an image has both
 	 * <code>alt</code> and <code>title</code> attribute the <code>alt</code> value will be used.
@@ -93,6 +306,50 @@ public class ParserConfig {
 		return displayLinks;
 	}
 
+	/**
+	 * @return whether only a preview of the text representation is converted.
+	 */
+	boolean isPreview() {
+		return previewLength != Integer.MAX_VALUE || previewLines != Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Whether to convert the top-level blocks of the {@code body} element in parallel.
+	 *
+	 * @return {@code true} to convert in parallel, otherwise {@code false}.
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Whether to collect the {@link DocumentMetadata} while the document is converted.
+	 *
+	 * @return {@code true} to collect the metadata, otherwise {@code false}.
+	 */
+	public boolean isCollectMetadata() {
+		return collectMetadata;
+	}
+
+	/**
+	 * Whether to record the {@link SourceMap} of the text.
+	 *
+	 * @return {@code true} to map the text to the source document, otherwise {@code false}.
+	 */
+	public boolean isSourceMapping() {
+		return sourceMapping;
+	}
+
+	/**
+	 * Sets the listener that receives the {@link ConversionMetrics} of every converted document. The conversion only
+	 * measures wall times if a listener is set.
+	 *
+	 * @param conversionListener the listener or {@code null} to disable the listener.
+	 */
+	public void setConversionListener(ConversionListener conversionListener) {
+		this.conversionListener = conversionListener;
+	}
+
 	/**
 	 * Whether to deduplicate captions such as image titles (many newspaper include images and video previews with
 	 * identifical titles).
@@ -112,6 +369,55 @@ public class ParserConfig {
 		this.displayAnchors = displayAnchors;
 	}
 
+	/**
+	 * Whether to convert the top-level blocks of the {@code body} element in parallel by using the common
+	 * {@link java.util.concurrent.ForkJoinPool}. The result is identical to the sequential conversion, but large
+	 * documents are converted faster on multi-core machines. The chunks are traversed concurrently, which the DOM API
+	 * does not guarantee to be safe; only documents of the JDK's or Apache's Xerces implementation created without
+	 * deferred node expansion, such as the documents of jsoup and the {@link HtmlParser}, are converted in parallel,
+	 * and they must not be modified by other threads during the conversion. Other documents and documents parsed by a
+	 * {@link javax.xml.parsers.DocumentBuilder} with deferred node expansion are converted sequentially, as are all
+	 * documents if a {@link ConversionLimit} is configured.
+	 *
+	 * @param parallel if true, large documents will be converted in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Whether to collect the {@link DocumentMetadata}, i.e. the title, the headings and the links, while the document
+	 * is converted. The ranges of the headings and links in the text are located like the {@link SourceMap}, hence
+	 * documents are converted sequentially and without the {@link SubtreeCache} if metadata is collected.
+	 *
+	 * @param collectMetadata if true, the result of the conversion contains the metadata.
+	 */
+	public void setCollectMetadata(boolean collectMetadata) {
+		this.collectMetadata = collectMetadata;
+	}
+
+	/**
+	 * Whether to record the {@link SourceMap} of the text, which maps its characters to the text nodes of the source
+	 * document. The map does not affect the text, hence it is not part of the cache key of converted texts. Documents
+	 * are converted sequentially and without the {@link SubtreeCache} if the source is mapped.
+	 *
+	 * @param sourceMapping if true, the result of the conversion contains a source map.
+	 */
+	public void setSourceMapping(boolean sourceMapping) {
+		this.sourceMapping = sourceMapping;
+	}
+
+	/**
+	 * Sets the {@link SubtreeCache} used for reusing the text rendered for subtrees shared by many documents, such as
+	 * the navigation, header and footer of the pages of a site. Subtrees are hashed before the conversion, which only
+	 * pays off if documents share large subtrees. The cache is not used if a {@link ConversionLimit} is configured.
+	 *
+	 * @param subtreeCache the cache to use or {@code null} to render every subtree.
+	 */
+	public void setSubtreeCache(SubtreeCache subtreeCache) {
+		this.subtreeCache = subtreeCache;
+	}
+
 	/**
 	 * Whether to include images <code>alt</code> or <code>title</code> attribute values as text. If an image has both
 	 * <code>alt</code> and <code>title</code> attribute the <code>alt</code> value will be used.
@@ -132,4 +438,139 @@ public class ParserConfig {
 		this.displayLinks = displayLinks;
 	}
 
+	/**
+	 * Whether to apply the rules of the embedded style sheets ({@code <style>} elements) of a document, e.g. to hide
+	 * elements by their class. Only the properties supported for {@code style} attributes and rules with tag, class,
+	 * id and descendant selectors are applied; {@code style} attributes take precedence. The {@link SubtreeCache} is
+	 * not used for documents with applicable rules, since they may depend on elements outside of a subtree.
+	 *
+	 * @param embeddedStyleSheets if true, embedded style sheets will be applied.
+	 */
+	public void setEmbeddedStyleSheets(boolean embeddedStyleSheets) {
+		this.embeddedStyleSheets = embeddedStyleSheets;
+	}
+
+	/**
+	 * Excludes the elements matching any of the given selectors from the conversion, e.g. cookie banners, navigations
+	 * and ads. Excluded elements are skipped together with their content before they are visited. The supported
+	 * selectors are a tag ({@code nav}), an id ({@code #cookie-banner}), a class ({@code .ad}) and a role
+	 * ({@code [role=banner]}).
+	 *
+	 * @param selectors the selectors or an empty collection to convert all elements.
+	 * @throws IllegalArgumentException if a selector is not supported.
+	 */
+	public void setExcludedSelectors(Collection<String> selectors) {
+		this.exclusionFilter = selectors.isEmpty() ? null : new SelectorFilter(selectors);
+	}
+
+	/**
+	 * Whether to throw a {@link ConversionLimitException} with the partial text if a {@link ConversionLimit} is
+	 * exceeded. Otherwise the text is truncated and the exceeded limit is reported by
+	 * {@link Inscriptis#getExceededLimit()}.
+	 *
+	 * @param failOnLimit if true, the conversion stops at the first exceeded limit and throws an exception.
+	 */
+	public void setFailOnLimit(boolean failOnLimit) {
+		this.failOnLimit = failOnLimit;
+	}
+
+	/**
+	 * Sets the maximum nesting depth of elements. Deeper elements are skipped together with their content.
+	 *
+	 * @param maxDepth the maximum depth.
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = requirePositive(maxDepth, "maxDepth");
+	}
+
+	/**
+	 * Sets the maximum number of nodes visited by a conversion, which bounds the work spent on a document. The
+	 * conversion stops once the limit is exceeded.
+	 *
+	 * @param maxNodes the maximum number of nodes.
+	 */
+	public void setMaxNodes(int maxNodes) {
+		this.maxNodes = requirePositive(maxNodes, "maxNodes");
+	}
+
+	/**
+	 * Sets the maximum number of characters of the text representation. The conversion stops once the text content
+	 * exceeds the limit and the text is truncated.
+	 *
+	 * @param maxOutputLength the maximum number of characters.
+	 */
+	public void setMaxOutputLength(int maxOutputLength) {
+		this.maxOutputLength = requirePositive(maxOutputLength, "maxOutputLength");
+	}
+
+	/**
+	 * Sets the maximum number of cells per table. Further cells are skipped together with their content.
+	 *
+	 * @param maxTableCells the maximum number of cells.
+	 */
+	public void setMaxTableCells(int maxTableCells) {
+		this.maxTableCells = requirePositive(maxTableCells, "maxTableCells");
+	}
+
+	/**
+	 * Sets the maximum number of rows per table. Further rows are skipped together with their content.
+	 *
+	 * @param maxTableRows the maximum number of rows.
+	 */
+	public void setMaxTableRows(int maxTableRows) {
+		this.maxTableRows = requirePositive(maxTableRows, "maxTableRows");
+	}
+
+	/**
+	 * Sets the {@link TagStatistics} that aggregate the conversion cost per tag. Only the sampled conversions measure
+	 * the time per element.
+	 *
+	 * @param tagStatistics the statistics or {@code null} to disable the statistics.
+	 */
+	public void setTagStatistics(TagStatistics tagStatistics) {
+		this.tagStatistics = tagStatistics;
+	}
+
+	/**
+	 * Sets the maximum wall-clock time of a conversion. The conversion checks the time regularly and stops once the
+	 * budget is exceeded; the text converted so far is not stored by the {@link ConversionCache} and the
+	 * {@link PersistentTextStore}.
+	 *
+	 * @param timeBudget the maximum time or {@code null} for no limit.
+	 */
+	public void setTimeBudget(Duration timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Converts only a preview with the given number of characters, e.g. for search snippets or language detection.
+	 * The traversal stops once the text written so far reaches the length; open tables and lists are closed and the
+	 * text is truncated to the length. The cost of a conversion is proportional to the size of the preview rather
+	 * than the size of the document.
+	 *
+	 * @param previewLength the maximum number of characters.
+	 */
+	public void setPreviewLength(int previewLength) {
+		this.previewLength = requirePositive(previewLength, "previewLength");
+	}
+
+	/**
+	 * Converts only a preview with the given number of lines. The traversal stops once the lines have been written;
+	 * open tables and lists are closed and the text is truncated to the number of lines.
+	 *
+	 * @param previewLines the maximum number of lines.
+	 */
+	public void setPreviewLines(int previewLines) {
+		this.previewLines = requirePositive(previewLines, "previewLines");
+	}
+
+	private static int requirePositive(int value, String name) {
+
+		if (value <= 0) {
+			throw new IllegalArgumentException(name + " must be positive: " + value);
+		}
+
+		return value;
+	}
+
 }
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+import org.w3c.dom.Document;
+
+/**
+ * A persistent store for text representations, which survives restarts of the JVM.
+ * <p>
+ * The store is a single memory-mapped file consisting of a header, an open-addressed index and an append-only data
+ * region. Texts are identified by a hash of the HTML content and a fingerprint of the {@link ParserConfig}, like in the
+ * {@link ConversionCache}; the length and a second, independent hash of the HTML content are compared as well, so that
+ * a collision of the hash does not return the text of another document. They are stored as UTF-16 and returned as read-only views of the mapped file without
+ * copying. The capacities are fixed when the file is created; once the index or the data region is full, further texts
+ * are not stored. Entries are never removed, delete the file to reset the store. A store written by a version of the
+ * library whose conversion produced different texts is reset when it is opened.
+ * <p>
+ * The store is thread-safe. The file is locked while the store is open, so that it is used by a single process only;
+ * a closed store throws an {@link IllegalStateException}.
+ * Changes are written to the file by the operating system; use {@link #force()} to write them synchronously.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * try (PersistentTextStore store = new PersistentTextStore(Paths.get("texts.store"), 1 &lt;&lt; 16, 256 * 1024 * 1024)) {
+ *     CharSequence text = store.getText(html, config, content -&gt; W3CDom.convert(Jsoup.parse(content)));
+ * }
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class PersistentTextStore implements Closeable {
+
+	private static final long MAGIC = 0x494E534352495054L; // "INSCRIPT"
+	private static final int VERSION = 2;
+
+	/**
+	 * The version of the text representations, which is incremented whenever a change of the conversion changes the
+	 * texts of documents, so that texts of older versions are not returned.
+	 */
+	private static final int TEXT_VERSION = 1;
+
+	/**
+	 * The header consists of the magic number, version, slot count, data capacity, end of the data, entry count and
+	 * text version.
+	 */
+	private static final int HEADER_SIZE = 64;
+	private static final int SLOT_COUNT_OFFSET = 12;
+	private static final int DATA_CAPACITY_OFFSET = 16;
+	private static final int DATA_END_OFFSET = 24;
+	private static final int ENTRY_COUNT_OFFSET = 32;
+	private static final int TEXT_VERSION_OFFSET = 36;
+
+	/**
+	 * A slot consists of the content hash, config fingerprint, offset + 1 of the text (0 for an empty slot), the
+	 * length of the text, the length of the HTML content and the secondary content hash.
+	 */
+	private static final int SLOT_SIZE = 40;
+	private static final int SLOT_FINGERPRINT_OFFSET = 8;
+	private static final int SLOT_OFFSET_OFFSET = 16;
+	private static final int SLOT_LENGTH_OFFSET = 24;
+	private static final int SLOT_INPUT_LENGTH_OFFSET = 28;
+	private static final int SLOT_SECONDARY_HASH_OFFSET = 32;
+
+	private final RandomAccessFile file;
+	private final FileLock lock;
+	private final MappedByteBuffer buffer;
+	private final int slotCount;
+	private final int dataCapacity;
+	private final int dataStart;
+	private boolean closed;
+
+	/**
+	 * Opens the store in the given file or creates it, if the file does not exist. The capacities of an existing store
+	 * are retained.
+	 *
+	 * @param path the file of the store.
+	 * @param maximumEntries the maximum number of texts stored.
+	 * @param dataCapacity the maximum number of characters stored.
+	 * @throws IOException if the file cannot be opened, is locked by another process or is not a valid store.
+	 */
+	public PersistentTextStore(Path path, int maximumEntries, int dataCapacity) throws IOException {
+
+		if (maximumEntries <= 0) {
+			throw new IllegalArgumentException("maximumEntries must be positive: " + maximumEntries);
+		}
+
+		if (dataCapacity <= 0) {
+			throw new IllegalArgumentException("dataCapacity must be positive: " + dataCapacity);
+		}
+
+		file = new RandomAccessFile(path.toFile(), "rw");
+		try {
+			lock = lock(file.getChannel(), path);
+
+			if (file.length() == 0) {
+				// keep the load factor of the index below 0.75
+				long slots = Long.highestOneBit(Math.max(1, maximumEntries * 4L / 3)) << 1;
+				long size = HEADER_SIZE + slots * SLOT_SIZE + 2L * dataCapacity;
+				if (size > Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("store exceeds 2 GB: " + size);
+				}
+
+				file.setLength(size);
+				buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+				buffer.putLong(0, MAGIC);
+				buffer.putInt(8, VERSION);
+				buffer.putInt(SLOT_COUNT_OFFSET, (int) slots);
+				buffer.putInt(DATA_CAPACITY_OFFSET, dataCapacity);
+				buffer.putInt(TEXT_VERSION_OFFSET, TEXT_VERSION);
+			} else {
+				if (file.length() < HEADER_SIZE || file.length() > Integer.MAX_VALUE) {
+					throw new IOException("Not a text store: " + path);
+				}
+
+				buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+				if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+					throw new IOException("Not a text store or unsupported version: " + path);
+				}
+
+				long size = (long) HEADER_SIZE + (long) buffer.getInt(SLOT_COUNT_OFFSET) * SLOT_SIZE + 2L * buffer.getInt(DATA_CAPACITY_OFFSET);
+				if (size != file.length()) {
+					throw new IOException("Truncated text store: " + path);
+				}
+
+				long dataEnd = buffer.getLong(DATA_END_OFFSET);
+				if (dataEnd < 0 || dataEnd > buffer.getInt(DATA_CAPACITY_OFFSET)) {
+					throw new IOException("Corrupt text store: " + path);
+				}
+
+				if (buffer.getInt(TEXT_VERSION_OFFSET) != TEXT_VERSION) {
+					clear(buffer);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+
+		slotCount = buffer.getInt(SLOT_COUNT_OFFSET);
+		this.dataCapacity = buffer.getInt(DATA_CAPACITY_OFFSET);
+		dataStart = HEADER_SIZE + slotCount * SLOT_SIZE;
+	}
+
+	/**
+	 * Removes all entries of the store and marks it with the current text version.
+	 */
+	private static void clear(MappedByteBuffer buffer) {
+
+		int indexEnd = HEADER_SIZE + buffer.getInt(SLOT_COUNT_OFFSET) * SLOT_SIZE;
+		for (int position = HEADER_SIZE; position < indexEnd; position += 8) {
+			buffer.putLong(position, 0);
+		}
+
+		buffer.putLong(DATA_END_OFFSET, 0);
+		buffer.putInt(ENTRY_COUNT_OFFSET, 0);
+		buffer.putInt(TEXT_VERSION_OFFSET, TEXT_VERSION);
+	}
+
+	private void ensureOpen() {
+
+		if (closed) {
+			throw new IllegalStateException("Text store is closed");
+		}
+	}
+
+	private static FileLock lock(FileChannel channel, Path path) throws IOException {
+
+		FileLock lock;
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			lock = null;
+		}
+
+		if (lock == null) {
+			throw new IOException("Text store is in use: " + path);
+		}
+
+		return lock;
+	}
+
+	/**
+	 * Closes the file. Views returned by the store remain valid until they are garbage collected. Closing a closed
+	 * store has no effect.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		try {
+			lock.release();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes all changes to the file.
+	 */
+	public synchronized void force() {
+
+		ensureOpen();
+		buffer.force();
+	}
+
+	/**
+	 * Returns the UTF-16 (big endian) encoded text representation of the given HTML content, if it is stored.
+	 *
+	 * @param html the HTML content.
+	 * @param config the ParserConfig configuration object used for the conversion.
+	 * @return a read-only view of the encoded text or {@code null}, if the text is not stored.
+	 */
+	public ByteBuffer getBytes(String html, ParserConfig config) {
+
+		ByteBuffer bytes = find(ContentHash.hash(html), ContentHash.secondaryHash(html), html.length(), config.getFingerprint());
+		return bytes != null ? bytes.asReadOnlyBuffer() : null;
+	}
+
+	/**
+	 * @return the number of characters that may still be stored.
+	 */
+	public synchronized int getRemainingCapacity() {
+
+		ensureOpen();
+		return dataCapacity - (int) buffer.getLong(DATA_END_OFFSET);
+	}
+
+	/**
+	 * @return the number of stored texts.
+	 */
+	public synchronized int getEntryCount() {
+
+		ensureOpen();
+		return buffer.getInt(ENTRY_COUNT_OFFSET);
+	}
+
+	/**
+	 * Returns the text representation of the given HTML content, if it is stored.
+	 *
+	 * @param html the HTML content.
+	 * @param config the ParserConfig configuration object used for the conversion.
+	 * @return a read-only view of the text or {@code null}, if the text is not stored.
+	 */
+	public CharBuffer getText(String html, ParserConfig config) {
+
+		ByteBuffer bytes = find(ContentHash.hash(html), ContentHash.secondaryHash(html), html.length(), config.getFingerprint());
+		return bytes != null ? bytes.asCharBuffer().asReadOnlyBuffer() : null;
+	}
+
+	/**
+	 * Returns the text representation of the given HTML content, either from the store or by parsing, converting and
+	 * storing it.
+	 *
+	 * @param html the HTML content.
+	 * @param config the ParserConfig configuration object used for the conversion.
+	 * @param parser the function used to parse the HTML content to a W3C document.
+	 * @return the text representation of the HTML content.
+	 */
+	public CharSequence getText(String html, ParserConfig config, Function<String, Document> parser) {
+
+		CharBuffer stored = getText(html, config);
+		if (stored != null) {
+			return stored;
+		}
+
+		Inscriptis inscriptis = new Inscriptis(parser.apply(html), config);
+		String text = inscriptis.getText();
+
+		// a text truncated by the time budget depends on the load of the machine
+		if (inscriptis.getExceededLimit() != ConversionLimit.TIME) {
+			put(html, config, text);
+		}
+
+		return text;
+	}
+
+	/**
+	 * Stores the text representation of the given HTML content. A text that is already stored is not replaced.
+	 *
+	 * @param html the HTML content.
+	 * @param config the ParserConfig configuration object used for the conversion.
+	 * @param text the text representation of the HTML content.
+	 * @return {@code true}, if the text is stored, or {@code false}, if the store is full.
+	 */
+	public boolean put(String html, ParserConfig config, CharSequence text) {
+		return put(ContentHash.hash(html), ContentHash.secondaryHash(html), html.length(), config.getFingerprint(), text);
+	}
+
+	synchronized ByteBuffer find(long hash, long secondaryHash, int inputLength, long fingerprint) {
+
+		ensureOpen();
+
+		int mask = slotCount - 1;
+		for (int i = (int) ContentHash.combine(hash, fingerprint) & mask;; i = (i + 1) & mask) {
+			int slot = HEADER_SIZE + i * SLOT_SIZE;
+
+			long offset = buffer.getLong(slot + SLOT_OFFSET_OFFSET);
+			if (offset == 0) {
+				return null;
+			}
+
+			if (buffer.getLong(slot) == hash &&
+				buffer.getLong(slot + SLOT_FINGERPRINT_OFFSET) == fingerprint &&
+				buffer.getInt(slot + SLOT_INPUT_LENGTH_OFFSET) == inputLength &&
+				buffer.getLong(slot + SLOT_SECONDARY_HASH_OFFSET) == secondaryHash) {
+
+				// a slot of a corrupt file that points outside of the written data is a miss
+				int length = buffer.getInt(slot + SLOT_LENGTH_OFFSET);
+				if (offset < 0 || length < 0 || offset - 1 + length > buffer.getLong(DATA_END_OFFSET)) {
+					return null;
+				}
+
+				int position = dataStart + 2 * (int) (offset - 1);
+				ByteBuffer bytes = buffer.duplicate();
+				bytes.limit(position + 2 * length);
+				bytes.position(position);
+				return bytes.slice();
+			}
+		}
+	}
+
+	synchronized boolean put(long hash, long secondaryHash, int inputLength, long fingerprint, CharSequence text) {
+
+		ensureOpen();
+
+		int entryCount = buffer.getInt(ENTRY_COUNT_OFFSET);
+		int dataEnd = (int) buffer.getLong(DATA_END_OFFSET);
+		if (entryCount >= slotCount * 3 / 4 || text.length() > dataCapacity - dataEnd) {
+			return false;
+		}
+
+		int mask = slotCount - 1;
+		int slot;
+		for (int i = (int) ContentHash.combine(hash, fingerprint) & mask;; i = (i + 1) & mask) {
+			slot = HEADER_SIZE + i * SLOT_SIZE;
+
+			if (buffer.getLong(slot + SLOT_OFFSET_OFFSET) == 0) {
+				break;
+			}
+
+			if (buffer.getLong(slot) == hash &&
+				buffer.getLong(slot + SLOT_FINGERPRINT_OFFSET) == fingerprint &&
+				buffer.getInt(slot + SLOT_INPUT_LENGTH_OFFSET) == inputLength &&
+				buffer.getLong(slot + SLOT_SECONDARY_HASH_OFFSET) == secondaryHash) {
+				return true;
+			}
+		}
+
+		// append the text before publishing it in the index, so that an interrupted write only wastes space
+		int position = dataStart + 2 * dataEnd;
+		for (int i = 0; i < text.length(); i++) {
+			buffer.putChar(position + 2 * i, text.charAt(i));
+		}
+
+		buffer.putLong(DATA_END_OFFSET, dataEnd + text.length());
+
+		buffer.putLong(slot, hash);
+		buffer.putLong(slot + SLOT_FINGERPRINT_OFFSET, fingerprint);
+		buffer.putInt(slot + SLOT_LENGTH_OFFSET, text.length());
+		buffer.putInt(slot + SLOT_INPUT_LENGTH_OFFSET, inputLength);
+		buffer.putLong(slot + SLOT_SECONDARY_HASH_OFFSET, secondaryHash);
+		buffer.putLong(slot + SLOT_OFFSET_OFFSET, dataEnd + 1L);
+
+		buffer.putInt(ENTRY_COUNT_OFFSET, entryCount + 1);
+
+		return true;
+	}
+}
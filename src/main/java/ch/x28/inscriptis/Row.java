@@ -28,30 +28,6 @@ class Row {
 
 	private final List<TableCell> columns = new ArrayList<>();
 
-	private static List<List<String>> zipLongest(List<List<String>> lists, String fillValue) {
-
-		// determine longest list
-		int maxListLength = 0;
-		for (List<String> list : lists) {
-			maxListLength = Math.max(maxListLength, list.size());
-		}
-
-		List<List<String>> resultLists = new ArrayList<>();
-
-		for (int listElementIndex = 0; listElementIndex < maxListLength; listElementIndex++) {
-			List<String> subList = new ArrayList<>();
-			for (List<String> list : lists) {
-				String element = list.size() > listElementIndex
-					? list.get(listElementIndex)
-					: fillValue;
-
-				subList.add(element);
-			}
-			resultLists.add(subList);
-		}
-		return resultLists;
-	}
-
 	/**
 	 * Computes the list of lines in the cell specified by the column_idx.
 	 *
@@ -72,23 +48,76 @@ class Row {
 	}
 
 	/**
-	 * @return A rendered string representation of the given row.
+	 * Appends the rendered lines of this row to the given text. Cells with fewer lines are filled with a blank.
+	 *
+	 * @param text the text to append to.
 	 */
-	public String getText() {
+	public void appendText(StringBuilder text) {
+		appendText(text, null, null);
+	}
 
-		List<List<String>> lines = new ArrayList<>();
+	/**
+	 * Appends the rendered lines of this row to the given text and records the source of the cell lines.
+	 *
+	 * @param text the text to append to.
+	 * @param sourceMapping the source mapping of the cell lines or {@code null}, if the source is not mapped.
+	 * @param sourceRuns records the source of the appended lines within the text.
+	 */
+	public void appendText(StringBuilder text, SourceMapping sourceMapping, SourceRuns sourceRuns) {
 
+		List<List<String>> lines = new ArrayList<>(columns.size());
+		int height = 0;
 		for (TableCell column : columns) {
-			lines.add(column.getCellLines());
+			List<String> cellLines = column.getCellLines();
+			lines.add(cellLines);
+			height = Math.max(height, cellLines.size());
 		}
 
-		List<List<String>> longestZip = zipLongest(lines, " ");
+		for (int lineIndex = 0; lineIndex < height; lineIndex++) {
+			if (lineIndex > 0) {
+				text.append('\n');
+			}
 
-		List<String> rowLines = new ArrayList<>();
-		for (List<String> list : longestZip) {
-			rowLines.add(String.join("  ", list));
+			for (int columnIndex = 0; columnIndex < lines.size(); columnIndex++) {
+				if (columnIndex > 0) {
+					text.append("  ");
+				}
+
+				List<String> cellLines = lines.get(columnIndex);
+				String cellLine = lineIndex < cellLines.size() ? cellLines.get(lineIndex) : " ";
+				if (sourceMapping != null) {
+					sourceRuns.addAll(sourceMapping.get(cellLine), text.length());
+				}
+				text.append(cellLine);
+			}
 		}
+	}
+
+	/**
+	 * @return the number of characters of the rendered row, once the widths and heights of the cells have been set.
+	 */
+	public int getLength() {
+
+		if (columns.isEmpty()) {
+			return 0;
+		}
+
+		int width = 2 * (columns.size() - 1);
+		for (TableCell column : columns) {
+			width += column.getWidth();
+		}
+
+		return columns.get(0).getHeight() * (width + 1) - 1;
+	}
+
+	/**
+	 * @return A rendered string representation of the given row.
+	 */
+	public String getText() {
+
+		StringBuilder text = new StringBuilder();
+		appendText(text);
 
-		return String.join("\n", rowLines);
+		return text.toString();
 	}
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Matches elements against simple selectors, which are used for excluding elements such as cookie banners,
+ * navigations and ads from the conversion.
+ * <p>
+ * The supported selectors are a tag ({@code nav}), an id ({@code #cookie-banner}), a class ({@code .ad}) and a role
+ * ({@code [role=banner]}). An element matches if it matches any of the selectors.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+final class SelectorFilter {
+
+	private final List<String> selectors;
+	private final Set<String> tags = new HashSet<>();
+	private final Set<String> ids = new HashSet<>();
+	private final Set<String> classes = new HashSet<>();
+	private final Set<String> roles = new HashSet<>();
+	private final long fingerprint;
+
+	/**
+	 * @param selectors the selectors.
+	 * @throws IllegalArgumentException if a selector is not supported.
+	 */
+	SelectorFilter(Collection<String> selectors) {
+
+		this.selectors = Collections.unmodifiableList(new ArrayList<>(selectors));
+
+		for (String selector : selectors) {
+			String trimmed = selector.trim();
+
+			if (trimmed.startsWith("#")) {
+				ids.add(requireName(trimmed.substring(1), selector));
+			} else if (trimmed.startsWith(".")) {
+				classes.add(requireName(trimmed.substring(1), selector));
+			} else if (trimmed.startsWith("[role=") && trimmed.endsWith("]")) {
+				String role = trimmed.substring("[role=".length(), trimmed.length() - 1);
+				if (role.length() >= 2 && (role.startsWith("\"") && role.endsWith("\"") || role.startsWith("'") && role.endsWith("'"))) {
+					role = role.substring(1, role.length() - 1);
+				}
+				roles.add(requireName(role, selector));
+			} else {
+				tags.add(requireName(trimmed, selector).toLowerCase(Locale.ROOT));
+			}
+		}
+
+		long hash = 0;
+		for (String selector : new TreeSet<>(this.selectors)) {
+			hash = ContentHash.combine(hash, selector.trim());
+		}
+		fingerprint = hash;
+	}
+
+	private static String requireName(String name, String selector) {
+
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (!Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != ':') {
+				throw new IllegalArgumentException("Unsupported selector: " + selector);
+			}
+		}
+
+		if (name.isEmpty()) {
+			throw new IllegalArgumentException("Unsupported selector: " + selector);
+		}
+
+		return name;
+	}
+
+	/**
+	 * @return whether the given whitespace separated list contains one of the given names.
+	 */
+	private static boolean containsAny(String list, Set<String> names) {
+
+		int length = list.length();
+		int start = 0;
+		while (start < length) {
+			while (start < length && Character.isWhitespace(list.charAt(start))) {
+				start++;
+			}
+
+			int end = start;
+			while (end < length && !Character.isWhitespace(list.charAt(end))) {
+				end++;
+			}
+
+			if (end > start && names.contains(list.substring(start, end))) {
+				return true;
+			}
+
+			start = end;
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return a hash of the selectors, which is stable across JVMs.
+	 */
+	long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return the selectors.
+	 */
+	List<String> getSelectors() {
+		return selectors;
+	}
+
+	/**
+	 * @param element the element.
+	 * @return whether the given element matches any of the selectors.
+	 */
+	boolean matches(Node element) {
+
+		if (tags.contains(element.getNodeName())) {
+			return true;
+		}
+
+		NamedNodeMap attributes = element.getAttributes();
+		if (attributes == null || attributes.getLength() == 0) {
+			return false;
+		}
+
+		return matchesId(attributes) ||
+			matches(attributes, "class", classes) ||
+			matches(attributes, "role", roles);
+	}
+
+	private static boolean matches(NamedNodeMap attributes, String name, Set<String> values) {
+
+		if (values.isEmpty()) {
+			return false;
+		}
+
+		Node attribute = attributes.getNamedItem(name);
+		return attribute != null && containsAny(attribute.getNodeValue(), values);
+	}
+
+	private boolean matchesId(NamedNodeMap attributes) {
+
+		if (ids.isEmpty()) {
+			return false;
+		}
+
+		// an id is a single token, unlike the whitespace separated lists of classes and roles
+		Node id = attributes.getNamedItem("id");
+		return id != null && ids.contains(id.getNodeValue());
+	}
+}
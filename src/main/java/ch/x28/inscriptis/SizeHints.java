@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+/**
+ * The expected sizes of the canvases, learned from previous conversions with the same {@link ParserConfig}, e.g. of
+ * the pages of a single site. The canvases are presized accordingly, so that they do not grow by repeated copying.
+ * <p>
+ * The hints are moving averages of the observed sizes. They are updated without synchronization, since a lost update
+ * only affects the capacities, not the text.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+final class SizeHints {
+
+	/**
+	 * The capacity used before any conversion has been observed, which equals the default of {@code ArrayList}.
+	 */
+	private static final int DEFAULT_CAPACITY = 10;
+	/**
+	 * The maximum hint, so that a single huge document does not cause large allocations for all further ones.
+	 */
+	private static final int MAX_CAPACITY = 1 << 16;
+
+	private volatile int rootLines = DEFAULT_CAPACITY;
+	private volatile int cellLines = DEFAULT_CAPACITY;
+
+	private static int average(int hint, long observed) {
+
+		// weight the last observation with 1/4
+		long average = (3L * hint + observed + 3) / 4;
+		return (int) Math.max(1, Math.min(MAX_CAPACITY, average));
+	}
+
+	/**
+	 * @return the expected number of lines of a table cell.
+	 */
+	int getCellLines() {
+		return cellLines;
+	}
+
+	/**
+	 * @return the expected number of lines of the root canvas.
+	 */
+	int getRootLines() {
+		return rootLines;
+	}
+
+	/**
+	 * Learns the sizes of a finished conversion.
+	 *
+	 * @param counters the counters of the conversion.
+	 */
+	void record(ConversionMetrics.Counters counters) {
+
+		rootLines = average(rootLines, counters.rootLineCount);
+		if (counters.cellCount > 0) {
+			cellLines = average(cellLines, (counters.cellLineCount + counters.cellCount - 1) / counters.cellCount);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import org.w3c.dom.Node;
+
+/**
+ * Maps the characters of a text representation to the text nodes of the source document they have been copied from,
+ * e.g. to highlight search hits in the original HTML. The map is recorded during the conversion, if enabled by
+ * {@link ParserConfig#setSourceMapping(boolean)}.
+ * <p>
+ * The map consists of runs in ascending order: a run maps a range of the text to a range of the same length in the
+ * value of a text node. Collapsed whitespace is mapped to its first character. Characters added by the rendering,
+ * e.g. list bullets, padding, link markers and the spaces between the content of adjacent elements, are not mapped.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * int run = sourceMap.find(hitOffset);
+ * if (run &gt;= 0) {
+ *     Node node = sourceMap.getNode(run);
+ *     int offset = sourceMap.getNodeOffset(run) + hitOffset - sourceMap.getTextStart(run);
+ * }
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public final class SourceMap {
+
+	private final int[] textStarts;
+	private final int[] lengths;
+	private final int[] nodeIndexes;
+	private final int[] nodeOffsets;
+	private final Node[] nodes;
+
+	SourceMap(SourceRuns runs, Node[] nodes) {
+
+		int size = runs.size();
+		textStarts = new int[size];
+		lengths = new int[size];
+		nodeIndexes = new int[size];
+		nodeOffsets = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			textStarts[i] = runs.getTextStart(i);
+			lengths[i] = runs.getLength(i);
+			nodeIndexes[i] = runs.getNode(i);
+			nodeOffsets[i] = runs.getNodeOffset(i);
+		}
+
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Returns the run that contains the given offset of the text.
+	 *
+	 * @param textOffset the offset of a character of the text.
+	 * @return the index of the run or -1, if the character has not been copied from the source document.
+	 */
+	public int find(int textOffset) {
+
+		int low = 0;
+		int high = textStarts.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (textStarts[mid] > textOffset) {
+				high = mid - 1;
+			} else if (textStarts[mid] + lengths[mid] <= textOffset) {
+				low = mid + 1;
+			} else {
+				return mid;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @param run the index of the run.
+	 * @return the text node the run has been copied from.
+	 */
+	public Node getNode(int run) {
+		return nodes[nodeIndexes[run]];
+	}
+
+	/**
+	 * @param run the index of the run.
+	 * @return the index of the text node in the order in which the text nodes have been rendered.
+	 */
+	int getNodeIndex(int run) {
+		return nodeIndexes[run];
+	}
+
+	/**
+	 * @param run the index of the run.
+	 * @return the offset of the run in the value of its text node.
+	 */
+	public int getNodeOffset(int run) {
+		return nodeOffsets[run];
+	}
+
+	/**
+	 * @param run the index of the run.
+	 * @return the offset after the last character of the run in the text.
+	 */
+	public int getTextEnd(int run) {
+		return textStarts[run] + lengths[run];
+	}
+
+	/**
+	 * @param run the index of the run.
+	 * @return the offset of the first character of the run in the text.
+	 */
+	public int getTextStart(int run) {
+		return textStarts[run];
+	}
+
+	/**
+	 * @return the number of runs.
+	 */
+	public int size() {
+		return textStarts.length;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Node;
+
+/**
+ * Collects the {@link SourceRuns} of the texts rendered by a single conversion. The runs are attached to the rendered
+ * strings by identity, so that the canvases remain lists of strings; the rendering steps that derive a string from
+ * another, e.g. splitting the lines of a table cell or aligning them, derive the runs as well.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+final class SourceMapping {
+
+	private final List<Node> nodes = new ArrayList<>();
+	private final Map<String, SourceRuns> runs = new IdentityHashMap<>();
+
+	/**
+	 * Registers a text node whose content is rendered.
+	 *
+	 * @param node the text node.
+	 * @return the index of the node.
+	 */
+	int addNode(Node node) {
+
+		nodes.add(node);
+		return nodes.size() - 1;
+	}
+
+	/**
+	 * @return the number of text nodes registered so far.
+	 */
+	int getNodeCount() {
+		return nodes.size();
+	}
+
+	/**
+	 * @param text a rendered text.
+	 * @return the runs of the given text or {@code null}, if it does not contain characters of the source document.
+	 */
+	SourceRuns get(String text) {
+		return runs.get(text);
+	}
+
+	/**
+	 * Attaches the given runs to the given text.
+	 *
+	 * @param text a rendered text.
+	 * @param textRuns the runs of the text.
+	 */
+	void put(String text, SourceRuns textRuns) {
+
+		if (textRuns != null && !textRuns.isEmpty()) {
+			runs.put(text, textRuns);
+		}
+	}
+
+	/**
+	 * Attaches the runs of a text to a copy, which has been shifted by the given number of characters.
+	 *
+	 * @param text the original text.
+	 * @param shifted the shifted copy, e.g. an aligned table cell line.
+	 * @param shift the number of characters inserted before the text.
+	 */
+	void shift(String text, String shifted, int shift) {
+
+		SourceRuns textRuns = runs.get(text);
+		if (textRuns != null && text != shifted) {
+			SourceRuns shiftedRuns = new SourceRuns();
+			shiftedRuns.addAll(textRuns, shift);
+			runs.put(shifted, shiftedRuns);
+		}
+	}
+
+	/**
+	 * Attaches the runs of a text to its lines.
+	 *
+	 * @param text the original text.
+	 * @param lines the lines of the text, which are separated by single line breaks.
+	 */
+	void split(String text, String[] lines) {
+
+		SourceRuns textRuns = runs.get(text);
+		if (textRuns == null) {
+			return;
+		}
+
+		int offset = 0;
+		for (String line : lines) {
+			put(line, textRuns.slice(offset, offset + line.length()));
+			offset += line.length() + 1;
+		}
+	}
+
+	/**
+	 * Creates the source map of the final text.
+	 *
+	 * @param textRuns the runs of the final text.
+	 * @param length the length of the final text, beyond which runs are dropped.
+	 * @return the source map.
+	 */
+	SourceMap toSourceMap(SourceRuns textRuns, int length) {
+		return new SourceMap(textRuns.slice(0, length), nodes.toArray(new Node[0]));
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.Arrays;
+
+/**
+ * Runs of characters of a rendered text that have been copied from text nodes of the source document. A run maps a
+ * range of the text to a range of the same length in a text node, which is identified by its index in the
+ * {@link SourceMapping}. Runs are added in ascending order of their text offsets.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+final class SourceRuns {
+
+	private int[] textStarts = new int[4];
+	private int[] lengths = new int[4];
+	private int[] nodes = new int[4];
+	private int[] nodeOffsets = new int[4];
+	private int size;
+
+	/**
+	 * Adds a run, which is merged with the last run if it continues it in the text and in the text node.
+	 *
+	 * @param textStart the offset of the run in the text.
+	 * @param length the number of characters.
+	 * @param node the index of the text node.
+	 * @param nodeOffset the offset of the run in the text node.
+	 */
+	void add(int textStart, int length, int node, int nodeOffset) {
+
+		if (length <= 0) {
+			return;
+		}
+
+		int last = size - 1;
+		if (last >= 0 && nodes[last] == node &&
+			textStarts[last] + lengths[last] == textStart &&
+			nodeOffsets[last] + lengths[last] == nodeOffset) {
+			lengths[last] += length;
+			return;
+		}
+
+		if (size == textStarts.length) {
+			textStarts = Arrays.copyOf(textStarts, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+			nodes = Arrays.copyOf(nodes, size * 2);
+			nodeOffsets = Arrays.copyOf(nodeOffsets, size * 2);
+		}
+
+		textStarts[size] = textStart;
+		lengths[size] = length;
+		nodes[size] = node;
+		nodeOffsets[size] = nodeOffset;
+		size++;
+	}
+
+	/**
+	 * Adds the given runs, e.g. of a line appended to a larger text.
+	 *
+	 * @param runs the runs to add or {@code null}.
+	 * @param shift the offset of the runs within this text.
+	 */
+	void addAll(SourceRuns runs, int shift) {
+
+		if (runs != null) {
+			for (int i = 0; i < runs.size; i++) {
+				add(runs.textStarts[i] + shift, runs.lengths[i], runs.nodes[i], runs.nodeOffsets[i]);
+			}
+		}
+	}
+
+	int getLength(int run) {
+		return lengths[run];
+	}
+
+	int getNode(int run) {
+		return nodes[run];
+	}
+
+	int getNodeOffset(int run) {
+		return nodeOffsets[run];
+	}
+
+	int getTextStart(int run) {
+		return textStarts[run];
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the runs within the given range of the text, e.g. of a single line.
+	 *
+	 * @param from the start of the range.
+	 * @param to the end of the range.
+	 * @return the runs clipped to the range and relative to its start.
+	 */
+	SourceRuns slice(int from, int to) {
+
+		SourceRuns slice = new SourceRuns();
+		for (int i = 0; i < size; i++) {
+			int start = Math.max(from, textStarts[i]);
+			int end = Math.min(to, textStarts[i] + lengths[i]);
+			if (start < end) {
+				slice.add(start - from, end - start, nodes[i], nodeOffsets[i] + start - textStarts[i]);
+			}
+		}
+
+		return slice;
+	}
+}
@@ -5,6 +5,22 @@ import java.util.List;
 
 class StringUtils {
 
+	/**
+	 * Counts the lines of a string, which are separated by line breaks.
+	 *
+	 * @param str the string to be processed.
+	 * @return the number of line breaks plus one.
+	 */
+	public static int countLines(String str) {
+
+		int lines = 1;
+		for (int i = str.indexOf('\n'); i >= 0; i = str.indexOf('\n', i + 1)) {
+			lines++;
+		}
+
+		return lines;
+	}
+
 	/**
 	 * Check if a string is null, has length zero or consists of whitespace characters only.
 	 *
@@ -183,6 +199,22 @@ class StringUtils {
 		return result.toArray(new String[0]);
 	}
 
+	/**
+	 * Returns the length to which a string is truncated without splitting a surrogate pair.
+	 *
+	 * @param str the string to be truncated.
+	 * @param length the maximum length.
+	 * @return the given length, or one less, if the character before the cut is the first half of a surrogate pair.
+	 */
+	public static int truncatedLength(CharSequence str, int length) {
+
+		if (length > 0 && length < str.length() && Character.isHighSurrogate(str.charAt(length - 1))) {
+			return length - 1;
+		}
+
+		return length;
+	}
+
 	/**
 	 * Removes any trailing whitespace characters.
 	 *
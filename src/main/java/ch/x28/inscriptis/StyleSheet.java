@@ -0,0 +1,428 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.w3c.dom.Node;
+
+/**
+ * The rules of the embedded style sheets ({@code <style>} elements) of a document.
+ * <p>
+ * Only the properties supported by {@link CssParse} are parsed. Selectors consist of compound selectors with a tag,
+ * ids and classes (e.g. {@code div.nav#main}) combined by descendant combinators (e.g. {@code .sidebar p}); rules with
+ * other selectors and the contents of at-rules such as {@code @media} are ignored. The rules are indexed by the id,
+ * class or tag of their rightmost compound selector, so that only the rules that can apply are matched against an
+ * element.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+final class StyleSheet {
+
+	/**
+	 * A compound selector, e.g. {@code div.nav#main}.
+	 */
+	private static class Compound {
+
+		private final String tag;
+		private final String id;
+		private final List<String> classes;
+
+		Compound(String tag, String id, List<String> classes) {
+			this.tag = tag;
+			this.id = id;
+			this.classes = classes;
+		}
+
+		boolean matches(Node element) {
+
+			if (tag != null && !tag.equals(element.getNodeName())) {
+				return false;
+			}
+
+			if (id != null && !id.equals(getAttribute(element, "id"))) {
+				return false;
+			}
+
+			if (!classes.isEmpty()) {
+				List<String> elementClasses = getClasses(element);
+				if (!elementClasses.containsAll(classes)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * A selector with the declarations of its rule.
+	 */
+	private static class Rule implements Comparable<Rule> {
+
+		private final Compound[] compounds;
+		private final String[] declarations;
+		private final int specificity;
+		private final int order;
+
+		Rule(Compound[] compounds, String[] declarations, int order) {
+
+			this.compounds = compounds;
+			this.declarations = declarations;
+			this.order = order;
+
+			int ids = 0;
+			int classes = 0;
+			int tags = 0;
+			for (Compound compound : compounds) {
+				ids += compound.id != null ? 1 : 0;
+				classes += compound.classes.size();
+				tags += compound.tag != null ? 1 : 0;
+			}
+			specificity = (ids << 20) | (classes << 10) | tags;
+		}
+
+		@Override
+		public int compareTo(Rule other) {
+			return specificity != other.specificity
+				? Integer.compare(specificity, other.specificity)
+				: Integer.compare(order, other.order);
+		}
+
+		/**
+		 * Matches the compound selectors from right to left; descendant combinators are matched by the closest
+		 * matching ancestor.
+		 */
+		boolean matches(Node element) {
+
+			if (!compounds[compounds.length - 1].matches(element)) {
+				return false;
+			}
+
+			Node ancestor = element.getParentNode();
+			for (int i = compounds.length - 2; i >= 0; i--) {
+				while (ancestor != null && (ancestor.getNodeType() != Node.ELEMENT_NODE || !compounds[i].matches(ancestor))) {
+					ancestor = ancestor.getParentNode();
+				}
+
+				if (ancestor == null) {
+					return false;
+				}
+
+				ancestor = ancestor.getParentNode();
+			}
+
+			return true;
+		}
+	}
+
+	private final Map<String, List<Rule>> idRules = new HashMap<>();
+	private final Map<String, List<Rule>> classRules = new HashMap<>();
+	private final Map<String, List<Rule>> tagRules = new HashMap<>();
+	private final long fingerprint;
+	private int ruleCount = 0;
+
+	/**
+	 * Parses the given style sheet.
+	 *
+	 * @param css the content of the {@code <style>} elements.
+	 */
+	StyleSheet(String css) {
+
+		fingerprint = ContentHash.hash(css);
+
+		String text = removeComments(css);
+		int position = 0;
+		while (position < text.length()) {
+			int open = text.indexOf('{', position);
+			if (open < 0) {
+				break;
+			}
+
+			String prelude = text.substring(position, open).trim();
+			if (prelude.startsWith("@") || prelude.contains(";")) {
+				// skip at-rules including their nested rules
+				position = skipBlock(text, open);
+				continue;
+			}
+
+			int close = text.indexOf('}', open);
+			if (close < 0) {
+				close = text.length();
+			}
+
+			addRule(prelude, text.substring(open + 1, close));
+			position = close + 1;
+		}
+	}
+
+	private static List<String> getClasses(Node element) {
+
+		String value = getAttribute(element, "class");
+		if (value == null) {
+			return Collections.emptyList();
+		}
+
+		List<String> classes = new ArrayList<>();
+		for (String name : value.trim().split("\\s+")) {
+			if (!name.isEmpty()) {
+				classes.add(name);
+			}
+		}
+
+		return classes;
+	}
+
+	private static String getAttribute(Node element, String name) {
+
+		if (element.getAttributes() == null) {
+			return null;
+		}
+
+		Node attribute = element.getAttributes().getNamedItem(name);
+		return attribute != null ? attribute.getNodeValue() : null;
+	}
+
+	/**
+	 * @return the compound selector or {@code null}, if it is not supported.
+	 */
+	private static Compound parseCompound(String selector) {
+
+		int position = 0;
+		while (position < selector.length() && isNameCharacter(selector.charAt(position))) {
+			position++;
+		}
+
+		String tag = position > 0 ? selector.substring(0, position).toLowerCase(Locale.ROOT) : null;
+		String id = null;
+		List<String> classes = new ArrayList<>();
+
+		while (position < selector.length()) {
+			char type = selector.charAt(position++);
+			int start = position;
+			while (position < selector.length() && isNameCharacter(selector.charAt(position))) {
+				position++;
+			}
+
+			if (position == start) {
+				return null;
+			}
+
+			String name = selector.substring(start, position);
+			if (type == '#' && id == null) {
+				id = name;
+			} else if (type == '.') {
+				classes.add(name);
+			} else {
+				return null;
+			}
+		}
+
+		return new Compound(tag, id, classes);
+	}
+
+	/**
+	 * @return the supported declarations as property and value pairs.
+	 */
+	private static String[] parseDeclarations(String block) {
+
+		List<String> declarations = new ArrayList<>();
+		for (String declaration : block.toLowerCase(Locale.ROOT).split(";")) {
+			String[] keyValuePair = StringUtils.split(declaration, ':', 1);
+			if (keyValuePair.length < 2) {
+				continue;
+			}
+
+			String key = keyValuePair[0].trim();
+			String value = keyValuePair[1].replace("!important", "").trim();
+			if (CssParse.isSupportedProperty(key)) {
+				declarations.add(CssParse.getPropertyName(key));
+				declarations.add(value);
+			}
+		}
+
+		return declarations.toArray(new String[0]);
+	}
+
+	private static boolean isNameCharacter(char c) {
+		return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+	}
+
+	private static String removeComments(String css) {
+
+		StringBuilder text = new StringBuilder(css.length());
+		int position = 0;
+		while (position < css.length()) {
+			int start = css.indexOf("/*", position);
+			if (start < 0) {
+				text.append(css, position, css.length());
+				break;
+			}
+
+			text.append(css, position, start).append(' ');
+			int end = css.indexOf("*/", start + 2);
+			position = end < 0 ? css.length() : end + 2;
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * @return the position after the block opened at the given position, including nested blocks.
+	 */
+	private static int skipBlock(String text, int open) {
+
+		int depth = 0;
+		for (int i = open; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '{') {
+				depth++;
+			} else if (c == '}' && --depth == 0) {
+				return i + 1;
+			}
+		}
+
+		return text.length();
+	}
+
+	/**
+	 * Applies the matching rules and the {@code style} attribute to the given HTML element. The rules are applied in
+	 * the order of their specificity, the {@code style} attribute takes precedence over all rules.
+	 *
+	 * @param element the element.
+	 * @param htmlElement the HtmlElement of the element.
+	 * @param styleAttribute the value of the {@code style} attribute or {@code null}.
+	 * @return an HtmlElement with the declarations applied or the given HtmlElement, if there are no declarations.
+	 */
+	HtmlElement apply(Node element, HtmlElement htmlElement, String styleAttribute) {
+
+		if (ruleCount == 0) {
+			return styleAttribute != null ? CssParse.getStyleAttribute(styleAttribute, htmlElement) : htmlElement;
+		}
+
+		List<Rule> candidates = new ArrayList<>();
+		addCandidates(tagRules, element.getNodeName(), candidates);
+
+		String id = getAttribute(element, "id");
+		if (id != null) {
+			addCandidates(idRules, id, candidates);
+		}
+
+		if (!classRules.isEmpty()) {
+			for (String name : getClasses(element)) {
+				addCandidates(classRules, name, candidates);
+			}
+		}
+
+		List<Rule> matches = new ArrayList<>(candidates.size());
+		for (Rule rule : candidates) {
+			if (!matches.contains(rule) && rule.matches(element)) {
+				matches.add(rule);
+			}
+		}
+
+		if (matches.isEmpty()) {
+			return styleAttribute != null ? CssParse.getStyleAttribute(styleAttribute, htmlElement) : htmlElement;
+		}
+
+		Collections.sort(matches);
+
+		// determine the cascaded value of every property before applying it, since a property such as display: none
+		// cannot be overridden once applied
+		Map<String, String> properties = new LinkedHashMap<>();
+		for (Rule rule : matches) {
+			for (int i = 0; i < rule.declarations.length; i += 2) {
+				properties.put(rule.declarations[i], rule.declarations[i + 1]);
+			}
+		}
+
+		if (styleAttribute != null) {
+			String[] declarations = parseDeclarations(styleAttribute);
+			for (int i = 0; i < declarations.length; i += 2) {
+				properties.put(declarations[i], declarations[i + 1]);
+			}
+		}
+
+		HtmlElement styledElement = htmlElement.clone();
+		for (Map.Entry<String, String> property : properties.entrySet()) {
+			CssParse.applyProperty(property.getKey(), property.getValue(), styledElement);
+		}
+
+		return styledElement;
+	}
+
+	/**
+	 * @return a hash of the style sheet, which is stable across JVMs.
+	 */
+	long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return the number of supported rules.
+	 */
+	int getRuleCount() {
+		return ruleCount;
+	}
+
+	private void addCandidates(Map<String, List<Rule>> rules, String key, List<Rule> candidates) {
+
+		List<Rule> bucket = rules.get(key);
+		if (bucket != null) {
+			candidates.addAll(bucket);
+		}
+	}
+
+	private void addRule(String selectors, String block) {
+
+		String[] declarations = parseDeclarations(block);
+		if (declarations.length == 0) {
+			return;
+		}
+
+		for (String selector : selectors.split(",")) {
+			String[] parts = selector.trim().split("\\s+");
+			Compound[] compounds = new Compound[parts.length];
+			for (int i = 0; i < parts.length && compounds != null; i++) {
+				compounds[i] = parseCompound(parts[i]);
+				if (compounds[i] == null || parts[i].isEmpty()) {
+					compounds = null;
+				}
+			}
+
+			if (compounds == null) {
+				continue;
+			}
+
+			Rule rule = new Rule(compounds, declarations, ruleCount++);
+			Compound rightmost = compounds[compounds.length - 1];
+			if (rightmost.id != null) {
+				idRules.computeIfAbsent(rightmost.id, key -> new ArrayList<>()).add(rule);
+			} else if (!rightmost.classes.isEmpty()) {
+				classRules.computeIfAbsent(rightmost.classes.get(0), key -> new ArrayList<>()).add(rule);
+			} else {
+				tagRules.computeIfAbsent(rightmost.tag, key -> new ArrayList<>()).add(rule);
+			}
+		}
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Caches the text rendered for HTML subtrees, so that subtrees shared by many documents (e.g. the navigation, header
+ * and footer of the pages of a site) are rendered only once.
+ * <p>
+ * Subtrees are identified by a hash of their structure, text and the attributes relevant for rendering. A cached
+ * fragment is only reused if the subtree is found under the same inherited {@link HtmlElement} and rendering state as
+ * the subtree it has been recorded for, so that the result is identical to rendering the subtree. Only subtrees
+ * outside of tables and lists are cached. The cache is thread-safe and may be shared by several
+ * {@link ParserConfig} objects.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * SubtreeCache subtreeCache = new SubtreeCache(10000);
+ * ParserConfig config = new ParserConfig();
+ * config.setSubtreeCache(subtreeCache);
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class SubtreeCache {
+
+	/**
+	 * The minimum number of nodes of a cached subtree; smaller subtrees are cheaper to render than to look up.
+	 */
+	static final int MIN_SUBTREE_SIZE = 16;
+
+	/**
+	 * The lines a subtree wrote to the root canvas and the rendering states before and after the subtree.
+	 */
+	static class Fragment {
+
+		private final Inscriptis.State startState;
+		private final List<String> lines;
+		private final Inscriptis.State endState;
+		/**
+		 * Whether the subtree contains a link, which replaces the target of an enclosing link.
+		 */
+		private final boolean linkContained;
+
+		Fragment(Inscriptis.State startState, List<String> lines, Inscriptis.State endState, boolean linkContained) {
+			this.startState = startState;
+			this.lines = Collections.unmodifiableList(lines);
+			this.endState = endState;
+			this.linkContained = linkContained;
+		}
+
+		Inscriptis.State getEndState() {
+			return endState;
+		}
+
+		List<String> getLines() {
+			return lines;
+		}
+
+		Inscriptis.State getStartState() {
+			return startState;
+		}
+
+		boolean isLinkContained() {
+			return linkContained;
+		}
+	}
+
+	/**
+	 * Identifies a subtree by two independent hashes and its number of nodes, like the keys of the
+	 * {@link ConversionCache}, so that a collision of one hash does not replay the text of another subtree.
+	 */
+	static final class Key {
+
+		private final long hash;
+		private final long secondaryHash;
+		private final long size;
+
+		Key(long hash, long secondaryHash, long size) {
+			this.hash = hash;
+			this.secondaryHash = secondaryHash;
+			this.size = size;
+		}
+
+		/**
+		 * @return the key of the subtree rendered in the context identified by the given fingerprints.
+		 */
+		Key combine(long stateFingerprint, long elementFingerprint, long configFingerprint) {
+			return new Key(
+				combine(hash, stateFingerprint, elementFingerprint, configFingerprint),
+				combine(secondaryHash, stateFingerprint, elementFingerprint, configFingerprint),
+				size);
+		}
+
+		private static long combine(long hash, long stateFingerprint, long elementFingerprint, long configFingerprint) {
+			return ContentHash.combine(ContentHash.combine(ContentHash.combine(hash, stateFingerprint), elementFingerprint), configFingerprint);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key) obj;
+			return hash == other.hash && secondaryHash == other.secondaryHash && size == other.size;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(hash);
+		}
+	}
+
+	private final Map<Key, Fragment> fragments;
+	private long hitCount;
+	private long missCount;
+
+	/**
+	 * Creates a cache holding up to the given number of fragments. The least recently used fragments are evicted
+	 * first.
+	 *
+	 * @param maximumSize the maximum number of cached fragments.
+	 */
+	public SubtreeCache(int maximumSize) {
+
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+		}
+
+		fragments = new LinkedHashMap<Key, Fragment>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Fragment> eldest) {
+				return size() > maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * Computes the hashes of all subtrees with at least {@link #MIN_SUBTREE_SIZE} nodes.
+	 *
+	 * @param root the root of the HTML tree.
+	 * @param config the ParserConfig configuration object, which determines the relevant attributes.
+	 * @return the keys of the element nodes that are roots of large enough subtrees.
+	 */
+	static Map<Node, Key> hashSubtrees(Node root, ParserConfig config) {
+
+		Map<Node, Key> hashes = new IdentityHashMap<>();
+
+		// the hash, secondary hash and size of the subtrees that are currently traversed
+		Deque<long[]> open = new ArrayDeque<>();
+		open.push(new long[] { 0, 0, 0 });
+
+		Node node = root;
+		boolean entering = true;
+		while (node != null) {
+			short nodeType = node.getNodeType();
+			if (entering) {
+				if (nodeType == Node.ELEMENT_NODE) {
+					open.push(new long[] { hashStartTag(node, config, false), hashStartTag(node, config, true), 1 });
+
+					if (node.getFirstChild() != null) {
+						node = node.getFirstChild();
+						continue;
+					}
+				} else if (nodeType == Node.DOCUMENT_NODE && node.getFirstChild() != null) {
+					node = node.getFirstChild();
+					continue;
+				} else if (nodeType == Node.TEXT_NODE) {
+					long[] parent = open.peek();
+					parent[0] = ContentHash.combine(parent[0], node.getNodeValue());
+					parent[1] = ContentHash.combineSecondary(parent[1], node.getNodeValue());
+					parent[2]++;
+				}
+			}
+
+			if (nodeType == Node.ELEMENT_NODE) {
+				long[] subtree = open.pop();
+				if (subtree[2] >= MIN_SUBTREE_SIZE) {
+					hashes.put(node, new Key(subtree[0], subtree[1], subtree[2]));
+				}
+
+				long[] parent = open.peek();
+				parent[0] = ContentHash.combine(parent[0], subtree[0]);
+				parent[1] = ContentHash.combine(parent[1], subtree[1]);
+				parent[2] += subtree[2];
+			}
+
+			if (node == root) {
+				node = null;
+			} else if (node.getNextSibling() != null) {
+				node = node.getNextSibling();
+				entering = true;
+			} else {
+				node = node.getParentNode();
+				entering = false;
+			}
+		}
+
+		return hashes;
+	}
+
+	private static long hashAttribute(long hash, NamedNodeMap attributes, String name, boolean secondary) {
+
+		Node attribute = attributes.getNamedItem(name);
+		return hashString(hash, attribute != null ? attribute.getNodeValue() : null, secondary);
+	}
+
+	/**
+	 * @param secondary whether the secondary hash is computed, which hashes the strings independently.
+	 */
+	private static long hashStartTag(Node node, ParserConfig config, boolean secondary) {
+
+		long hash = hashString(0, node.getNodeName(), secondary);
+
+		NamedNodeMap attributes = node.getAttributes();
+		hash = hashAttribute(hash, attributes, "style", secondary);
+
+		if (config.isDisplayLinks() || config.isDisplayAnchors()) {
+			hash = hashAttribute(hash, attributes, "href", secondary);
+			hash = hashAttribute(hash, attributes, "name", secondary);
+		}
+
+		if (config.isDisplayImages()) {
+			hash = hashAttribute(hash, attributes, "alt", secondary);
+			hash = hashAttribute(hash, attributes, "title", secondary);
+		}
+
+		// the attributes matched by the excluded selectors decide whether descendants are rendered at all
+		if (config.getExclusionFilter() != null) {
+			hash = hashAttribute(hash, attributes, "id", secondary);
+			hash = hashAttribute(hash, attributes, "class", secondary);
+			hash = hashAttribute(hash, attributes, "role", secondary);
+		}
+
+		return hash;
+	}
+
+	private static long hashString(long hash, String str, boolean secondary) {
+		return secondary ? ContentHash.combineSecondary(hash, str) : ContentHash.combine(hash, str);
+	}
+
+	/**
+	 * @return the number of subtrees whose rendered text has been reused.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of subtrees that have been rendered, since no matching fragment has been cached.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of cached fragments.
+	 */
+	public synchronized int getSize() {
+		return fragments.size();
+	}
+
+	/**
+	 * Removes all fragments. The statistics are retained.
+	 */
+	public synchronized void invalidateAll() {
+		fragments.clear();
+	}
+
+	/**
+	 * @param key the key of the subtree.
+	 * @param startState the rendering state before the subtree.
+	 * @return the matching fragment or {@code null}.
+	 */
+	synchronized Fragment get(Key key, Inscriptis.State startState) {
+
+		Fragment fragment = fragments.get(key);
+		if (fragment != null && fragment.getStartState().matches(startState)) {
+			hitCount++;
+			return fragment;
+		}
+
+		missCount++;
+		return null;
+	}
+
+	/**
+	 * @param key the key of the subtree.
+	 * @param fragment the text rendered for the subtree.
+	 */
+	synchronized void put(Key key, Fragment fragment) {
+		fragments.put(key, fragment);
+	}
+}
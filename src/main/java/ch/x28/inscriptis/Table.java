@@ -30,6 +30,21 @@ class Table {
 
 	private final List<Row> rows = new ArrayList<>();
 	private boolean tdOpen = false;
+	private int cellCount = 0;
+	private final SourceMapping sourceMapping;
+
+	public Table() {
+		this(null);
+	}
+
+	/**
+	 * Create a new table, whose text is mapped to the source document.
+	 *
+	 * @param sourceMapping the source mapping or {@code null}, if the source is not mapped.
+	 */
+	public Table(SourceMapping sourceMapping) {
+		this.sourceMapping = sourceMapping;
+	}
 
 	/**
 	 * Adds a new left aligned TableCell to the table's last row. If no row exists yet, a new row is created.
@@ -48,7 +63,8 @@ class Table {
 		}
 
 		Row last = rows.get(rows.size() - 1);
-		last.getColumns().add(new TableCell(canvas, alignment, null, null));
+		last.getColumns().add(new TableCell(canvas, alignment, null, null, sourceMapping));
+		cellCount++;
 	}
 
 	/**
@@ -102,19 +118,61 @@ class Table {
 		}
 	}
 
+	/**
+	 * @return the number of cells of all rows.
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * @return the number of rows.
+	 */
+	public int getRowCount() {
+		return rows.size();
+	}
+
 	/**
 	 * Get a rendered string representation of this table.
 	 */
 	public String getText() {
 
+		Object event = FlightRecording.beginTableLayout();
+
 		computeColumnWidthAnHeight();
 
-		List<String> rowContents = new ArrayList<>();
+		// the widths and heights of the cells determine the length of the text
+		int length = 0;
 		for (Row row : rows) {
-			rowContents.add(row.getText());
+			length += row.getLength() + 1;
+		}
+
+		StringBuilder builder = new StringBuilder(length);
+		SourceRuns sourceRuns = sourceMapping != null ? new SourceRuns() : null;
+		for (int i = 0; i < rows.size(); i++) {
+			if (i > 0) {
+				builder.append('\n');
+			}
+			rows.get(i).appendText(builder, sourceMapping, sourceRuns);
+		}
+
+		String text = builder.toString();
+		if (sourceMapping != null) {
+			sourceMapping.put(text, sourceRuns);
+		}
+
+		if (event != null) {
+			int columns = 0;
+			int cells = 0;
+			for (Row row : rows) {
+				columns = Math.max(columns, row.getColumns().size());
+				cells += row.getColumns().size();
+			}
+
+			FlightRecording.commitTableLayout(event, rows.size(), columns, cells, text.length());
 		}
 
-		return String.join("\n", rowContents);
+		return text;
 	}
 
 	public boolean isTdOpen() {
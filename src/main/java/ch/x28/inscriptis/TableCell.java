@@ -34,15 +34,31 @@ class TableCell {
 	private HorizontalAlignment horizontalAlignment;
 	private Integer width;
 	private Integer height;
+	/**
+	 * The number of leading canvas entries that have already been split into lines.
+	 */
+	private int splitLines = 0;
+	/**
+	 * Derives the source of the split and aligned lines, if the source is mapped.
+	 */
+	private final SourceMapping sourceMapping;
 
 	/**
 	 * Create a new table cell with the given properties
 	 */
 	public TableCell(List<String> canvas, HorizontalAlignment horizontalAlignment, Integer width, Integer height) {
+		this(canvas, horizontalAlignment, width, height, null);
+	}
+
+	/**
+	 * Create a new table cell with the given properties, whose lines are mapped to the source document.
+	 */
+	public TableCell(List<String> canvas, HorizontalAlignment horizontalAlignment, Integer width, Integer height, SourceMapping sourceMapping) {
 		this.canvas = canvas;
 		this.horizontalAlignment = horizontalAlignment;
 		this.width = width;
 		this.height = height;
+		this.sourceMapping = sourceMapping;
 	}
 
 	public List<String> getCanvas() {
@@ -54,14 +70,23 @@ class TableCell {
 	 */
 	public List<String> getCellLines() {
 
-		List<String> lines = new ArrayList<>();
-		for (String str : this.canvas) {
-			String[] split = str.split("\n");
-			lines.addAll(Arrays.asList(split));
+		// split the canvas entries added since the last call, the others already are single lines
+		if (splitLines < this.canvas.size()) {
+			List<String> split = new ArrayList<>(this.canvas.subList(0, splitLines));
+			for (String str : this.canvas.subList(splitLines, this.canvas.size())) {
+				String[] strLines = str.split("\n");
+				if (sourceMapping != null) {
+					sourceMapping.split(str, strLines);
+				}
+				split.addAll(Arrays.asList(strLines));
+			}
+
+			this.canvas.clear();
+			this.canvas.addAll(split);
+			splitLines = this.canvas.size();
 		}
 
-		this.canvas.clear();
-		this.canvas.addAll(lines);
+		List<String> lines = new ArrayList<>(this.canvas);
 
 		if (this.height != null) {
 			for (int i = 0; i < this.height - this.canvas.size(); i++) {
@@ -95,6 +120,7 @@ class TableCell {
 	 */
 	public void setCanvas(List<String> canvas) {
 		this.canvas = canvas;
+		this.splitLines = 0;
 	}
 
 	/**
@@ -122,15 +148,28 @@ class TableCell {
 
 	private String alignString(String str) {
 
+		String aligned;
+		int shift;
 		switch (horizontalAlignment) {
-			case CENTER:
-				return StringUtils.padCenter(str, width);
 			case LEFT:
-				return StringUtils.padRight(str, width);
+				aligned = StringUtils.padRight(str, width);
+				shift = 0;
+				break;
 			case RIGHT:
-				return StringUtils.padLeft(str, width);
+				aligned = StringUtils.padLeft(str, width);
+				shift = aligned.length() - str.length();
+				break;
+			case CENTER:
 			default:
-				return StringUtils.padCenter(str, width);
+				aligned = StringUtils.padCenter(str, width);
+				shift = (aligned.length() - str.length()) / 2;
+				break;
 		}
+
+		if (sourceMapping != null) {
+			sourceMapping.shift(str, aligned, shift);
+		}
+
+		return aligned;
 	}
 }
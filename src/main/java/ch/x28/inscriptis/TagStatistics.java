@@ -0,0 +1,293 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the conversion cost per tag and per {@link CssProfile} entry across many conversions, e.g. to find the
+ * constructs that drive the conversion cost of a corpus and to tune custom profiles.
+ * <p>
+ * A sample of the conversions is recorded. For every element the number of occurrences, the number of occurrences
+ * with a style attribute, the time spent on the element excluding its child elements and the characters of its text
+ * content are aggregated. Tags that are not contained in the {@link CssProfile} are aggregated under the profile entry
+ * {@value #DEFAULT_ENTRY}. The statistics are thread-safe and may be shared by several {@link ParserConfig} objects.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * TagStatistics tagStatistics = new TagStatistics(100); // record every 100th conversion
+ * ParserConfig config = new ParserConfig();
+ * config.setTagStatistics(tagStatistics);
+ * ...
+ * tagStatistics.getTagCosts().forEach((tag, cost) -&gt; System.out.println(tag + ": " + cost));
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class TagStatistics {
+
+	/**
+	 * The profile entry of tags that are not contained in the {@link CssProfile}.
+	 */
+	public static final String DEFAULT_ENTRY = "*";
+
+	/**
+	 * The aggregated cost of a tag or profile entry.
+	 */
+	public static final class TagCost {
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder styledCount = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder outputLength = new LongAdder();
+
+		private void add(long[] values) {
+			count.add(values[COUNT]);
+			styledCount.add(values[STYLED_COUNT]);
+			nanos.add(values[NANOS]);
+			outputLength.add(values[OUTPUT_LENGTH]);
+		}
+
+		/**
+		 * @return the number of elements.
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+
+		/**
+		 * @return the time in nanoseconds spent on the elements, excluding their child elements.
+		 */
+		public long getNanos() {
+			return nanos.sum();
+		}
+
+		/**
+		 * @return the number of characters of the text content of the elements, excluding their child elements.
+		 */
+		public long getOutputLength() {
+			return outputLength.sum();
+		}
+
+		/**
+		 * @return the number of elements with a style attribute.
+		 */
+		public long getStyledCount() {
+			return styledCount.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "TagCost [count=" + getCount() + ", styledCount=" + getStyledCount() + ", nanos=" + getNanos()
+				+ ", outputLength=" + getOutputLength() + "]";
+		}
+	}
+
+	/**
+	 * Records the cost of the elements of a single conversion, which is added to the statistics once the conversion
+	 * has finished. A recorder is used by a single thread only.
+	 */
+	static final class Recorder {
+
+		private final TagStatistics statistics;
+		private final CssProfile css;
+		/**
+		 * Whether the recorder continues a recorded conversion, which is counted as a sample already.
+		 */
+		private final boolean forked;
+		private final Map<String, long[]> tags = new HashMap<>();
+		private final Map<String, long[]> entries = new HashMap<>();
+
+		/**
+		 * The values of the tag and the profile entry of the open elements.
+		 */
+		private final Deque<long[][]> openElements = new ArrayDeque<>();
+		private long lastNanos;
+
+		private Recorder(TagStatistics statistics, CssProfile css, boolean forked) {
+			this.statistics = statistics;
+			this.css = css;
+			this.forked = forked;
+		}
+
+		/**
+		 * Adds the text content of the current element.
+		 *
+		 * @param length the number of characters.
+		 */
+		void addOutput(int length) {
+
+			long[][] element = openElements.peek();
+			if (element != null) {
+				element[0][OUTPUT_LENGTH] += length;
+				element[1][OUTPUT_LENGTH] += length;
+			}
+		}
+
+		/**
+		 * Adds the recorded cost to the statistics.
+		 */
+		void commit() {
+
+			tags.forEach((tag, values) -> statistics.tagCosts.computeIfAbsent(tag, key -> new TagCost()).add(values));
+			entries.forEach((entry, values) -> statistics.profileCosts.computeIfAbsent(entry, key -> new TagCost()).add(values));
+			if (!forked) {
+				statistics.sampleCount.increment();
+			}
+		}
+
+		/**
+		 * Records the end of the current element.
+		 */
+		void endElement() {
+
+			chargeTime();
+			openElements.pop();
+		}
+
+		/**
+		 * Records the start of an element.
+		 *
+		 * @param tag the tag of the element.
+		 * @param styled whether the element has a style attribute.
+		 */
+		void startElement(String tag, boolean styled) {
+
+			chargeTime();
+
+			String entry = css.get(tag) != null ? tag : DEFAULT_ENTRY;
+			long[][] element = { tags.computeIfAbsent(tag, key -> new long[4]), entries.computeIfAbsent(entry, key -> new long[4]) };
+
+			for (long[] values : element) {
+				values[COUNT]++;
+				if (styled) {
+					values[STYLED_COUNT]++;
+				}
+			}
+
+			openElements.push(element);
+		}
+
+		/**
+		 * Charges the time since the last event to the current element.
+		 */
+		private void chargeTime() {
+
+			long now = System.nanoTime();
+
+			long[][] element = openElements.peek();
+			if (element != null) {
+				element[0][NANOS] += now - lastNanos;
+				element[1][NANOS] += now - lastNanos;
+			}
+
+			lastNanos = now;
+		}
+	}
+
+	private static final int COUNT = 0;
+	private static final int STYLED_COUNT = 1;
+	private static final int NANOS = 2;
+	private static final int OUTPUT_LENGTH = 3;
+
+	private final int samplingInterval;
+	private final Map<String, TagCost> tagCosts = new ConcurrentHashMap<>();
+	private final Map<String, TagCost> profileCosts = new ConcurrentHashMap<>();
+	private final LongAdder sampleCount = new LongAdder();
+
+	/**
+	 * Creates statistics that record every conversion.
+	 */
+	public TagStatistics() {
+		this(1);
+	}
+
+	/**
+	 * Creates statistics that record a random sample of the conversions.
+	 *
+	 * @param samplingInterval the average number of conversions per recorded conversion.
+	 */
+	public TagStatistics(int samplingInterval) {
+
+		if (samplingInterval <= 0) {
+			throw new IllegalArgumentException("samplingInterval must be positive: " + samplingInterval);
+		}
+
+		this.samplingInterval = samplingInterval;
+	}
+
+	/**
+	 * @return the aggregated cost per {@link CssProfile} entry.
+	 */
+	public Map<String, TagCost> getProfileCosts() {
+		return Collections.unmodifiableMap(profileCosts);
+	}
+
+	/**
+	 * @return the number of recorded conversions.
+	 */
+	public long getSampleCount() {
+		return sampleCount.sum();
+	}
+
+	/**
+	 * @return the aggregated cost per tag.
+	 */
+	public Map<String, TagCost> getTagCosts() {
+		return Collections.unmodifiableMap(tagCosts);
+	}
+
+	/**
+	 * Removes all aggregated costs.
+	 */
+	public void reset() {
+		tagCosts.clear();
+		profileCosts.clear();
+		sampleCount.reset();
+	}
+
+	/**
+	 * @param css the CSS profile used by the conversion.
+	 * @return a recorder for the next conversion, if it is part of the sample, otherwise {@code null}.
+	 */
+	Recorder sample(CssProfile css) {
+
+		if (samplingInterval > 1 && ThreadLocalRandom.current().nextInt(samplingInterval) != 0) {
+			return null;
+		}
+
+		return new Recorder(this, css, false);
+	}
+
+	/**
+	 * @param css the CSS profile used by the conversion.
+	 * @return a recorder for a conversion that continues a recorded conversion, e.g. in another thread.
+	 */
+	Recorder fork(CssProfile css) {
+		return new Recorder(this, css, true);
+	}
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.w3c.dom.Document;
+
+/**
+ * The Utf8Sink encodes the text representation of W3C documents to UTF-8 while they are converted. Every line is
+ * encoded as soon as it has been written to the root canvas, so the text never exists as a whole, neither as a
+ * {@code String} nor as a copy in another encoding.
+ * <p>
+ * The bytes are either appended to a growable direct {@link ByteBuffer}, which is reused for further documents after
+ * {@link #clear()}, or written to an {@link OutputStream}. The bytes equal the UTF-8 encoding of
+ * {@link Inscriptis#getText()}, including the truncation by {@link ConversionLimit}s and previews.
+ * <p>
+ * <b>Example</b>
+ *
+ * <pre>
+ * <code>
+ * Utf8Sink sink = new Utf8Sink();
+ * sink.write(document, config);
+ * ByteBuffer bytes = sink.getBuffer();
+ * </code>
+ * </pre>
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public final class Utf8Sink {
+
+	private static final int DEFAULT_CAPACITY = 8192;
+
+	private final OutputStream out;
+	private ByteBuffer buffer;
+
+	/**
+	 * The whitespace that is only written if further content follows, since trailing whitespace is stripped, followed
+	 * by the first half of a surrogate pair, which is only written with its second half.
+	 */
+	private final StringBuilder pendingWhitespace = new StringBuilder();
+	private char highSurrogate;
+	/**
+	 * The number of characters of the current text and of its line breaks, including the pending whitespace.
+	 */
+	private long length;
+	private int lineBreaks;
+	/**
+	 * Whether the remaining characters of the current text are truncated.
+	 */
+	private boolean truncated;
+	private long byteCount;
+
+	/**
+	 * Creates a sink that appends the bytes to a direct {@link ByteBuffer} with a capacity of 8 KB, which grows as
+	 * needed.
+	 */
+	public Utf8Sink() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a sink that appends the bytes to a direct {@link ByteBuffer}, which grows as needed.
+	 *
+	 * @param initialCapacity the initial capacity of the buffer in bytes.
+	 */
+	public Utf8Sink(int initialCapacity) {
+
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+		}
+
+		out = null;
+		buffer = ByteBuffer.allocateDirect(initialCapacity);
+	}
+
+	/**
+	 * Creates a sink that writes the bytes to the given stream. The stream is neither flushed nor closed.
+	 *
+	 * @param out the stream receiving the bytes.
+	 */
+	public Utf8Sink(OutputStream out) {
+
+		if (out == null) {
+			throw new NullPointerException("out must not be null");
+		}
+
+		this.out = out;
+		buffer = ByteBuffer.allocate(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Removes the bytes from the buffer, so that the sink can be reused. The capacity is retained.
+	 */
+	public void clear() {
+		buffer.clear();
+	}
+
+	/**
+	 * Returns the bytes appended since the sink has been created or cleared.
+	 *
+	 * @return a read-only view of the bytes.
+	 * @throws IllegalStateException if the sink writes to a stream.
+	 */
+	public ByteBuffer getBuffer() {
+
+		if (out != null) {
+			throw new IllegalStateException("the sink writes to a stream");
+		}
+
+		ByteBuffer bytes = buffer.duplicate();
+		bytes.flip();
+
+		return bytes.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Converts the given W3C document by using the default {@link ParserConfig} with {@link CssProfile#RELAXED} and
+	 * writes its text representation.
+	 *
+	 * @param document the W3C document to convert.
+	 * @return the number of bytes written.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public long write(Document document) throws IOException {
+		return write(document, new ParserConfig());
+	}
+
+	/**
+	 * Converts the given W3C document by using the specified {@link ParserConfig} and writes its text representation.
+	 * If {@link ParserConfig#isFailOnLimit()} is set and a limit is exceeded, the text written so far is kept and the
+	 * {@link ConversionLimitException} carries the remaining text.
+	 *
+	 * @param document the W3C document to convert.
+	 * @param config the ParserConfig configuration object.
+	 * @return the number of bytes written.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public long write(Document document, ParserConfig config) throws IOException {
+
+		pendingWhitespace.setLength(0);
+		highSurrogate = 0;
+		length = 0;
+		lineBreaks = 0;
+		truncated = false;
+		byteCount = 0;
+
+		Inscriptis inscriptis = new Inscriptis(config);
+		inscriptis.beginTraversal(document);
+
+		boolean converted = false;
+		boolean firstLine = true;
+		while (!converted) {
+			if (!inscriptis.advance()) {
+				inscriptis.finish();
+				converted = true;
+			}
+
+			for (String line : inscriptis.takeRootLines()) {
+				if (!firstLine) {
+					append('\n', config);
+				}
+				firstLine = false;
+
+				for (int i = 0; i < line.length() && !truncated; i++) {
+					append(line.charAt(i), config);
+				}
+			}
+		}
+
+		if (out != null && buffer.position() > 0) {
+			out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+			buffer.clear();
+		}
+
+		return byteCount;
+	}
+
+	/**
+	 * Appends the next character of the text, provided that it is within the configured limits.
+	 */
+	private void append(char c, ParserConfig config) throws IOException {
+
+		if (truncated) {
+			return;
+		}
+
+		boolean whitespace = Character.isWhitespace(c);
+
+		if (config.isPreview() && (length >= config.getPreviewLength() || c == '\n' && ++lineBreaks == config.getPreviewLines())) {
+			// the trailing whitespace of a preview is stripped
+			truncated = true;
+			return;
+		}
+
+		if (length >= config.getMaxOutputLength()) {
+			// whitespace before the limit is only written if the text is continued after the limit and not stripped
+			// from the end of a preview
+			if (config.isPreview()) {
+				truncated = true;
+			} else if (!whitespace) {
+				// a surrogate pair split by the limit is dropped
+				int pending = pendingWhitespace.length();
+				if (pending > 0 && Character.isHighSurrogate(pendingWhitespace.charAt(pending - 1))) {
+					pendingWhitespace.setLength(pending - 1);
+				}
+				writePendingWhitespace();
+				truncated = true;
+			}
+			return;
+		}
+
+		length++;
+		if (whitespace || Character.isHighSurrogate(c)) {
+			pendingWhitespace.append(c);
+		} else {
+			writePendingWhitespace();
+			encode(c);
+		}
+	}
+
+	private void encode(char c) throws IOException {
+
+		if (highSurrogate != 0) {
+			char high = highSurrogate;
+			highSurrogate = 0;
+
+			if (Character.isLowSurrogate(c)) {
+				int codePoint = Character.toCodePoint(high, c);
+				ensureRemaining(4);
+				buffer.put((byte) (0xF0 | codePoint >> 18));
+				buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint & 0x3F));
+				byteCount += 4;
+				return;
+			}
+
+			encode('?');
+		}
+
+		if (c < 0x80) {
+			ensureRemaining(1);
+			buffer.put((byte) c);
+			byteCount++;
+		} else if (c < 0x800) {
+			ensureRemaining(2);
+			buffer.put((byte) (0xC0 | c >> 6));
+			buffer.put((byte) (0x80 | c & 0x3F));
+			byteCount += 2;
+		} else if (Character.isHighSurrogate(c)) {
+			highSurrogate = c;
+		} else if (Character.isLowSurrogate(c)) {
+			encode('?');
+		} else {
+			ensureRemaining(3);
+			buffer.put((byte) (0xE0 | c >> 12));
+			buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+			buffer.put((byte) (0x80 | c & 0x3F));
+			byteCount += 3;
+		}
+	}
+
+	/**
+	 * Makes room for the given number of bytes by writing the buffer to the stream or by growing the buffer.
+	 */
+	private void ensureRemaining(int bytes) throws IOException {
+
+		if (buffer.remaining() >= bytes) {
+			return;
+		}
+
+		if (out != null) {
+			out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+			buffer.clear();
+			return;
+		}
+
+		ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+	}
+
+	private void writePendingWhitespace() throws IOException {
+
+		for (int i = 0; i < pendingWhitespace.length(); i++) {
+			encode(pendingWhitespace.charAt(i));
+		}
+
+		pendingWhitespace.setLength(0);
+	}
+}
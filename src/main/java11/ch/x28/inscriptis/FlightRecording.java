@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emits Java Flight Recorder events for conversions, table layouts and slow style parsing.
+ * <p>
+ * This is the Java 11 version of the class, which is used from the multi-release JAR. Disabled events are neither
+ * allocated nor timed.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+class FlightRecording {
+
+	@Name("ch.x28.inscriptis.Conversion")
+	@Label("HTML Conversion")
+	@Description("The conversion of an HTML document to text")
+	@Category("Inscriptis")
+	@StackTrace(false)
+	static class ConversionEvent extends Event {
+
+		@Label("Text Length")
+		@Description("The number of characters of the text nodes of the document")
+		long textLength;
+
+		@Label("Node Count")
+		int nodeCount;
+
+		@Label("Maximum Depth")
+		int maxDepth;
+
+		@Label("Table Count")
+		int tableCount;
+
+		@Label("Cell Count")
+		int cellCount;
+
+		@Label("Output Length")
+		@Description("The number of characters of the text representation")
+		long outputLength;
+	}
+
+	@Name("ch.x28.inscriptis.StyleParse")
+	@Label("Style Parsing")
+	@Description("The parsing of a style attribute that took longer than the threshold")
+	@Category("Inscriptis")
+	@Threshold("1 ms")
+	static class StyleParseEvent extends Event {
+
+		@Label("Style Attribute")
+		String styleAttribute;
+
+		@Label("Length")
+		int length;
+	}
+
+	@Name("ch.x28.inscriptis.TableLayout")
+	@Label("Table Layout")
+	@Description("The layout of a table")
+	@Category("Inscriptis")
+	@StackTrace(false)
+	static class TableLayoutEvent extends Event {
+
+		@Label("Rows")
+		int rows;
+
+		@Label("Columns")
+		int columns;
+
+		@Label("Cells")
+		int cells;
+
+		@Label("Text Length")
+		int textLength;
+	}
+
+	/**
+	 * The maximum length of the style attributes recorded.
+	 */
+	private static final int MAX_STYLE_LENGTH = 256;
+
+	private static final EventType CONVERSION = EventType.getEventType(ConversionEvent.class);
+	private static final EventType STYLE_PARSE = EventType.getEventType(StyleParseEvent.class);
+	private static final EventType TABLE_LAYOUT = EventType.getEventType(TableLayoutEvent.class);
+
+	static Object beginConversion() {
+
+		if (!CONVERSION.isEnabled()) {
+			return null;
+		}
+
+		ConversionEvent event = new ConversionEvent();
+		event.begin();
+		return event;
+	}
+
+	static Object beginStyleParse() {
+
+		if (!STYLE_PARSE.isEnabled()) {
+			return null;
+		}
+
+		StyleParseEvent event = new StyleParseEvent();
+		event.begin();
+		return event;
+	}
+
+	static Object beginTableLayout() {
+
+		if (!TABLE_LAYOUT.isEnabled()) {
+			return null;
+		}
+
+		TableLayoutEvent event = new TableLayoutEvent();
+		event.begin();
+		return event;
+	}
+
+	static void commitConversion(Object event, ConversionMetrics.Counters counters) {
+
+		if (event == null) {
+			return;
+		}
+
+		ConversionEvent conversionEvent = (ConversionEvent) event;
+		conversionEvent.end();
+		if (conversionEvent.shouldCommit()) {
+			conversionEvent.textLength = counters.textLength;
+			conversionEvent.nodeCount = counters.nodeCount;
+			conversionEvent.maxDepth = counters.maxDepth;
+			conversionEvent.tableCount = counters.tableCount;
+			conversionEvent.cellCount = counters.cellCount;
+			conversionEvent.outputLength = Math.max(0, counters.outputLength - 1);
+			conversionEvent.commit();
+		}
+	}
+
+	static void commitStyleParse(Object event, String styleAttribute) {
+
+		if (event == null) {
+			return;
+		}
+
+		StyleParseEvent styleParseEvent = (StyleParseEvent) event;
+		styleParseEvent.end();
+		if (styleParseEvent.shouldCommit()) {
+			styleParseEvent.styleAttribute = styleAttribute.length() > MAX_STYLE_LENGTH
+				? styleAttribute.substring(0, MAX_STYLE_LENGTH)
+				: styleAttribute;
+			styleParseEvent.length = styleAttribute.length();
+			styleParseEvent.commit();
+		}
+	}
+
+	static void commitTableLayout(Object event, int rows, int columns, int cells, int textLength) {
+
+		if (event == null) {
+			return;
+		}
+
+		TableLayoutEvent tableLayoutEvent = (TableLayoutEvent) event;
+		tableLayoutEvent.end();
+		if (tableLayoutEvent.shouldCommit()) {
+			tableLayoutEvent.rows = rows;
+			tableLayoutEvent.columns = columns;
+			tableLayoutEvent.cells = cells;
+			tableLayoutEvent.textLength = textLength;
+			tableLayoutEvent.commit();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class ConversionCacheTest {
+
+	private final AtomicInteger parseCount = new AtomicInteger();
+	private final Function<String, Document> parser = html -> {
+		parseCount.incrementAndGet();
+		return W3CDom.convert(Jsoup.parse(html));
+	};
+
+	@Test
+	public void testConfigFingerprint() {
+
+		// given
+		ConversionCache cache = new ConversionCache(1024 * 1024);
+		String html = "<body><a href=\"target\">link</a></body>";
+
+		ParserConfig links = new ParserConfig();
+		links.setDisplayLinks(true);
+
+		// when
+		String text = cache.getText(html, new ParserConfig(), parser);
+		String textWithLinks = cache.getText(html, links, parser);
+		String strictText = cache.getText(html, new ParserConfig(CssProfile.STRICT), parser);
+
+		// then
+		assertThat(text).isEqualTo("link");
+		assertThat(textWithLinks).isEqualTo("[link](target)");
+		assertThat(strictText).isEqualTo("link");
+		assertThat(cache.getHitCount()).isEqualTo(0);
+		assertThat(parseCount).hasValue(3);
+	}
+
+	@Test
+	public void testAdmission() {
+
+		// given
+		ConversionCache cache = new ConversionCache(1024);
+		ParserConfig config = new ParserConfig();
+		String frequent = "<body>" + StringUtils.repeat("a", 300) + "</body>";
+
+		cache.getText(frequent, config, parser);
+		cache.getText(frequent, config, parser);
+
+		// when
+		for (int i = 0; i < 10; i++) {
+			cache.getText("<body>" + StringUtils.repeat("b", 300) + i + "</body>", config, parser);
+		}
+
+		// then
+		parseCount.set(0);
+		cache.getText(frequent, config, parser);
+		assertThat(parseCount).as("frequently requested entry has been evicted").hasValue(0);
+		assertThat(cache.getWeight()).isLessThanOrEqualTo(1024);
+	}
+
+	@Test
+	public void testEviction() {
+
+		// given
+		ConversionCache cache = new ConversionCache(2048);
+		ParserConfig config = new ParserConfig();
+
+		// when
+		for (int i = 0; i < 10; i++) {
+			cache.getText("<body>" + StringUtils.repeat("b", 300) + i + "</body>", config, parser);
+		}
+
+		// then
+		assertThat(cache.getEntryCount()).isEqualTo(2);
+		assertThat(cache.getEvictionCount()).isEqualTo(8);
+		assertThat(cache.getWeight()).isLessThanOrEqualTo(2048);
+
+		parseCount.set(0);
+		cache.getText("<body>" + StringUtils.repeat("b", 300) + 9 + "</body>", config, parser);
+		assertThat(parseCount).as("most recently used entry has been evicted").hasValue(0);
+	}
+
+	@Test
+	public void testHit() {
+
+		// given
+		ConversionCache cache = new ConversionCache(1024 * 1024);
+		String html = "<body><p>first</p><p>second</p></body>";
+
+		// when
+		String first = cache.getText(html, new ParserConfig(), parser);
+		String second = cache.getText(new String(html), new ParserConfig(), parser);
+
+		// then
+		assertThat(first).isEqualTo("first\n\n\nsecond");
+		assertThat(second).isEqualTo(first);
+		assertThat(parseCount).hasValue(1);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitRate()).isEqualTo(0.5);
+		assertThat(cache.getBytesSaved()).isEqualTo(2L * html.length());
+	}
+}
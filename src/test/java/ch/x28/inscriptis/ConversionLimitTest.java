@@ -0,0 +1,280 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class ConversionLimitTest {
+
+	private static Inscriptis convert(String html, ParserConfig config) {
+		return new Inscriptis(W3CDom.convert(Jsoup.parse(html)), config);
+	}
+
+	private static String repeat(String html, int count) {
+
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			result.append(html);
+		}
+
+		return result.toString();
+	}
+
+	@Test
+	public void testDepth() {
+
+		// given
+		String html = "<html><body>first<div>second<div>third<div>fourth</div></div></div>last</body></html>";
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setMaxDepth(4); // html, body, div, div
+
+		// when
+		Inscriptis inscriptis = convert(html, config);
+
+		// then
+		assertThat(inscriptis.getText()).isEqualTo("first\nsecond\nthird\nlast");
+		assertThat(inscriptis.getExceededLimit()).isEqualTo(ConversionLimit.DEPTH);
+	}
+
+	@Test
+	public void testFailOnLimit() {
+
+		// given
+		String html = "<html><body><p>first</p><table><tr><td>a</td><td>b</td></tr></table><p>"
+			+ repeat("long text ", 100) + "</p><p>last</p></body></html>";
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setMaxOutputLength(40);
+		config.setFailOnLimit(true);
+
+		// when
+		// then
+		assertThatThrownBy(() -> convert(html, config))
+			.isInstanceOfSatisfying(ConversionLimitException.class, e -> {
+				assertThat(e.getLimit()).isEqualTo(ConversionLimit.OUTPUT_LENGTH);
+				assertThat(e.getPartialText()).startsWith("first\n\na  b\n\nlong text").hasSizeLessThanOrEqualTo(40);
+			});
+	}
+
+	@Test
+	public void testNodes() {
+
+		// given
+		String html = "<html><body>" + repeat("<p>paragraph</p>", 1000) + "</body></html>";
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setMaxNodes(100);
+
+		// when
+		Inscriptis inscriptis = convert(html, config);
+
+		// then
+		// the document, html, head and body nodes followed by an element and a text node per paragraph
+		assertThat(inscriptis.getText().split("paragraph", -1)).hasSize(48 + 1);
+		assertThat(inscriptis.getExceededLimit()).isEqualTo(ConversionLimit.NODES);
+	}
+
+	@Test
+	public void testNoLimitExceeded() {
+
+		// given
+		String html = "<html><body><p>first</p><table><tr><td>a</td><td>b</td></tr></table></body></html>";
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setMaxDepth(10);
+		config.setMaxOutputLength(100);
+		config.setMaxTableCells(2);
+		config.setMaxTableRows(1);
+		config.setTimeBudget(Duration.ofMinutes(1));
+		config.setFailOnLimit(true);
+
+		// when
+		Inscriptis inscriptis = convert(html, config);
+
+		// then
+		assertThat(inscriptis.getText()).isEqualTo(convert(html, new ParserConfig(CssProfile.STRICT)).getText());
+		assertThat(inscriptis.getExceededLimit()).isNull();
+	}
+
+	@Test
+	public void testOutputLength() {
+
+		// given
+		String html = "<html><body><pre>" + repeat("0123456789\n", 1000) + "</pre><p>last</p></body></html>";
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setMaxOutputLength(25);
+
+		// when
+		Inscriptis inscriptis = convert(html, config);
+
+		// then
+		assertThat(inscriptis.getText()).isEqualTo("0123456789\n0123456789\n012");
+		assertThat(inscriptis.getExceededLimit()).isEqualTo(ConversionLimit.OUTPUT_LENGTH);
+	}
+
+	@Test
+	public void testPreview() {
+
+		// given
+		String html = "<html><body><h1>Title</h1><ul><li>first<li>second<ul><li>nested" + repeat("<li>item", 1000) + "</ul></ul>"
+			+ repeat("<p>paragraph</p>", 1000) + "</body></html>";
+		String text = convert(html, new ParserConfig(CssProfile.STRICT)).getText();
+
+		List<ConversionMetrics> metrics = new ArrayList<>();
+		ParserConfig length = new ParserConfig(CssProfile.STRICT);
+		length.setPreviewLength(40);
+		length.setConversionListener(metrics::add);
+
+		ParserConfig lines = new ParserConfig(CssProfile.STRICT);
+		lines.setPreviewLines(4);
+
+		// when
+		String lengthPreview = convert(html, length).getText();
+		String linesPreview = convert(html, lines).getText();
+
+		// then
+		assertThat(lengthPreview).isEqualTo(StringUtils.stripTrailing(text.substring(0, 40)));
+		assertThat(metrics.get(0).getNodeCount()).isLessThan(50);
+		assertThat(linesPreview).isEqualTo("Title\n\n  * first\n  * second");
+	}
+
+	@Test
+	public void testPreviewTable() {
+
+		// given
+		String html = "<html><body><table>" + repeat("<tr><td>cell</td><td>cell</td></tr>", 1000) + "</table>"
+			+ "<p>last</p></body></html>";
+
+		List<ConversionMetrics> metrics = new ArrayList<>();
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setPreviewLength(20);
+		config.setConversionListener(metrics::add);
+
+		// when
+		String text = convert(html, config).getText();
+
+		// then
+		assertThat(text).isEqualTo("cell  cell\ncell  cel");
+		assertThat(metrics.get(0).getTableCount()).isEqualTo(1);
+		assertThat(metrics.get(0).getCellCount()).isLessThan(10);
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+
+		// given
+		ConversionLimitException exception = new ConversionLimitException(ConversionLimit.OUTPUT_LENGTH, "partial text");
+
+		// when
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(exception);
+		}
+
+		ConversionLimitException deserialized;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized = (ConversionLimitException) in.readObject();
+		}
+
+		// then
+		assertThat(deserialized.getLimit()).isEqualTo(ConversionLimit.OUTPUT_LENGTH);
+		assertThat(deserialized.getPartialText()).as("partial text is not serialized").isNull();
+	}
+
+	@Test
+	public void testSurrogatePairAtLimit() {
+
+		// given
+		String html = "<html><body><p>ab\uD83D\uDE00</p><pre>\uD83D\uDE00cd</pre></body></html>";
+
+		ParserConfig length = new ParserConfig(CssProfile.STRICT);
+		length.setMaxOutputLength(3);
+		ParserConfig preview = new ParserConfig(CssProfile.STRICT);
+		preview.setPreviewLength(7);
+
+		// when
+		Inscriptis lengthInscriptis = convert(html, length);
+		Inscriptis previewInscriptis = convert(html, preview);
+
+		// then
+		assertThat(lengthInscriptis.getText()).isEqualTo("ab");
+		assertThat(lengthInscriptis.getExceededLimit()).isEqualTo(ConversionLimit.OUTPUT_LENGTH);
+		assertThat(previewInscriptis.getText()).isEqualTo("ab\uD83D\uDE00");
+	}
+
+	@Test
+	public void testTableCellsAndRows() {
+
+		// given
+		String html = "<html><body><table>"
+			+ "<tr><td>1</td><td>2</td><td>3</td></tr>"
+			+ "<tr><td>4</td><td>5</td><td>6</td></tr>"
+			+ "<tr><td>7</td><td>8</td><td>9</td></tr>"
+			+ "</table>last</body></html>";
+
+		ParserConfig cells = new ParserConfig(CssProfile.STRICT);
+		cells.setMaxTableCells(5);
+
+		ParserConfig rows = new ParserConfig(CssProfile.STRICT);
+		rows.setMaxTableRows(2);
+
+		// when
+		Inscriptis cellsLimited = convert(html, cells);
+		Inscriptis rowsLimited = convert(html, rows);
+
+		// then
+		assertThat(cellsLimited.getText()).isEqualTo("1  2  3\n4  5\n\nlast"); // the third row is empty
+		assertThat(cellsLimited.getExceededLimit()).isEqualTo(ConversionLimit.TABLE_CELLS);
+		assertThat(rowsLimited.getText()).isEqualTo("1  2  3\n4  5  6\nlast");
+		assertThat(rowsLimited.getExceededLimit()).isEqualTo(ConversionLimit.TABLE_ROWS);
+	}
+
+	@Test
+	public void testTimeBudget() {
+
+		// given
+		String html = "<html><body><table><tr><td>" + repeat("<p>paragraph</p>", 1000) + "</td></tr></table></body></html>";
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setTimeBudget(Duration.ZERO);
+
+		// when
+		Inscriptis inscriptis = convert(html, config);
+
+		// then
+		assertThat(inscriptis.getText()).isEmpty();
+		assertThat(inscriptis.getExceededLimit()).isEqualTo(ConversionLimit.TIME);
+	}
+}
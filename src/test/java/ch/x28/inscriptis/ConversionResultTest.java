@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class ConversionResultTest {
+
+	private static void assertLines(ConversionResult result, String description) {
+
+		String text = result.getText();
+		String[] lines = text.isEmpty() ? new String[0] : text.split("\n", -1);
+
+		ConversionResult.LineView view = result.newLineView();
+
+		assertThat(result.lineCount()).as(description).isEqualTo(lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			assertThat(result.line(i).toString()).as(description + " line " + i).isEqualTo(lines[i]);
+			assertThat(view.moveTo(i, i + 1).toString()).as(description + " line " + i).isEqualTo(lines[i]);
+			assertThat(text.substring(result.lineStart(i), result.lineEnd(i))).isEqualTo(lines[i]);
+		}
+
+		if (lines.length > 0) {
+			assertThat(result.range(0, lines.length).toString()).as(description).isEqualTo(text);
+		}
+	}
+
+	@Test
+	public void testEmptyText() {
+
+		// given
+		Document document = HtmlParser.parse("<p> </p>");
+
+		// when
+		ConversionResult result = Inscriptis.convert(document);
+
+		// then
+		assertThat(result.lineCount()).isZero();
+		assertThat(result.range(0, 0)).hasToString("");
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> result.line(0));
+	}
+
+	@Test
+	public void testHtmlSnippets() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+
+		Set<Path> htmlFiles;
+		try (Stream<Path> stream = Files.walk(path)) {
+			htmlFiles = stream
+				.filter(file -> file.getFileName().toString().endsWith(".html"))
+				.collect(Collectors.toSet());
+		}
+
+		for (Path htmlFile : htmlFiles) {
+			Document document = HtmlParser.parse(htmlFile);
+
+			// when
+			ConversionResult result = Inscriptis.convert(document, new ParserConfig(CssProfile.STRICT));
+
+			// then
+			assertLines(result, htmlFile.getFileName().toString());
+		}
+	}
+
+	@Test
+	public void testLineView() {
+
+		// given
+		Document document = HtmlParser.parse("<p>eins</p><p>zwei</p><table><tr><td>a<br>b</td><td>c</td></tr></table>");
+		ConversionResult result = Inscriptis.convert(document, new ParserConfig(CssProfile.STRICT));
+
+		// when
+		ConversionResult.LineView view = result.newLineView();
+
+		// then
+		assertThat(view).hasToString("");
+		assertThat(view.moveTo(3, 6)).isSameAs(view).hasToString("zwei\n\na  c");
+		assertThat(view.start()).isEqualTo(7);
+		assertThat(view.end()).isEqualTo(17);
+		assertThat(view.length()).isEqualTo(10);
+		assertThat(view.charAt(6)).isEqualTo('a');
+		assertThat(view.subSequence(6, 10)).hasToString("a  c");
+		assertThat(view.moveTo(6, 7)).hasToString("b");
+		assertThat(view.moveTo(2, 2)).hasToString("");
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> view.charAt(0));
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> view.moveTo(5, 8));
+	}
+
+	@Test
+	public void testRange() {
+
+		// given
+		Document document = HtmlParser.parse("<p>eins</p><p>zwei</p><table><tr><td>a<br>b</td><td>c</td></tr></table>");
+
+		// when
+		ConversionResult result = Inscriptis.convert(document, new ParserConfig(CssProfile.STRICT));
+
+		// then
+		assertThat(result.getText()).isEqualTo("eins\n\n\nzwei\n\na  c\nb");
+		assertThat(result.range(3, 6)).hasToString("zwei\n\na  c");
+		assertThat(result.line(6)).hasToString("b");
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> result.range(5, 8));
+	}
+
+	@Test
+	public void testTruncatedText() {
+
+		// given
+		Document document = HtmlParser.parse("<h1>Titel</h1><ul><li>eins<li>zwei<li>drei</ul><pre>a\n\n  b</pre><p>Ende</p>");
+
+		for (int limit = 1; limit < 50; limit++) {
+			ParserConfig outputConfig = new ParserConfig();
+			outputConfig.setMaxOutputLength(limit);
+			ParserConfig previewConfig = new ParserConfig();
+			previewConfig.setPreviewLines(limit % 10 + 1);
+			previewConfig.setPreviewLength(limit);
+
+			// when
+			ConversionResult outputResult = Inscriptis.convert(document, outputConfig);
+			ConversionResult previewResult = Inscriptis.convert(document, previewConfig);
+
+			// then
+			assertLines(outputResult, "output length " + limit);
+			assertLines(previewResult, "preview " + limit);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class DocumentMetadataTest {
+
+	private static final String HTML = "<html><head><title> The  title </title><style>h1 { color: red }</style></head><body>"
+		+ "<h1>Main <em>heading</em></h1><p>Intro with <a href=\"/first\">a   link</a>.</p>"
+		+ "<h2 style=\"display: none\">hidden</h2>"
+		+ "<table><tr><td>cell</td><td><h3>In <a href=\"/second\">table</a></h3></td></tr></table>"
+		+ "<a name=\"anchor\">no link</a><h4> </h4><h2>Last</h2></body></html>";
+
+	private static ConversionResult convert(ParserConfig config) {
+		return Inscriptis.convert(W3CDom.convert(Jsoup.parse(HTML)), config);
+	}
+
+	@Test
+	public void testDisabled() {
+		assertThat(convert(new ParserConfig()).getMetadata()).isNull();
+	}
+
+	@Test
+	public void testLayoutModel() {
+
+		// given
+		ParserConfig config = new ParserConfig();
+		config.setCollectMetadata(true);
+		config.setDisplayLinks(true);
+
+		// when
+		ConversionResult result = LayoutModel.record(W3CDom.convert(Jsoup.parse(HTML)), new ParserConfig()).render(config);
+
+		// then
+		DocumentMetadata metadata = result.getMetadata();
+		assertThat(metadata.getTitle()).isEqualTo(" The  title ");
+		assertThat(metadata.getHeadings()).hasSize(4);
+		assertThat(metadata.getLinks()).hasSize(2);
+
+		String text = result.getText();
+		DocumentMetadata.Link link = metadata.getLinks().get(0);
+		assertThat(text.substring(link.getTextStart(), link.getTextEnd())).isEqualTo("a link");
+	}
+
+	@Test
+	public void testMetadata() {
+
+		// given
+		ParserConfig config = new ParserConfig();
+		config.setCollectMetadata(true);
+
+		// when
+		ConversionResult result = convert(config);
+
+		// then
+		String text = result.getText();
+		DocumentMetadata metadata = result.getMetadata();
+		assertThat(result.getSourceMap()).isNull();
+		assertThat(metadata.getTitle()).isEqualTo(" The  title ");
+
+		List<DocumentMetadata.Heading> headings = metadata.getHeadings();
+		assertThat(headings).extracting(DocumentMetadata.Heading::getLevel).containsExactly(1, 3, 4, 2);
+		assertThat(headings).extracting(DocumentMetadata.Heading::getText).containsExactly("Main heading", "In table", "", "Last");
+		for (DocumentMetadata.Heading heading : headings) {
+			if (heading.getText().isEmpty()) {
+				// not rendered
+				assertThat(heading.getTextStart()).isEqualTo(-1);
+				assertThat(heading.getTextEnd()).isEqualTo(-1);
+			} else {
+				assertThat(text.substring(heading.getTextStart(), heading.getTextEnd())).isEqualTo(heading.getText());
+			}
+		}
+
+		List<DocumentMetadata.Link> links = metadata.getLinks();
+		assertThat(links).extracting(DocumentMetadata.Link::getHref).containsExactly("/first", "/second");
+		assertThat(links).extracting(DocumentMetadata.Link::getText).containsExactly("a link", "table");
+		for (DocumentMetadata.Link link : links) {
+			assertThat(text.substring(link.getTextStart(), link.getTextEnd())).isEqualTo(link.getText());
+		}
+	}
+
+	@Test
+	public void testTargets() {
+
+		// given
+		ParserConfig config = new ParserConfig();
+		config.setCollectMetadata(true);
+
+		// when
+		List<ConversionResult> results = Inscriptis.convert(W3CDom.convert(Jsoup.parse(HTML)), Arrays.asList(new ParserConfig(), config));
+
+		// then
+		assertThat(results.get(0).getMetadata()).isNull();
+		assertThat(results.get(1).getMetadata().getTitle()).isEqualTo(" The  title ");
+	}
+
+	@Test
+	public void testTruncatedText() {
+
+		// given
+		ParserConfig config = new ParserConfig();
+		config.setCollectMetadata(true);
+		config.setMaxOutputLength(20);
+
+		// when
+		ConversionResult result = convert(config);
+
+		// then the elements after the limit are not visited
+		List<DocumentMetadata.Heading> headings = result.getMetadata().getHeadings();
+		assertThat(result.getExceededLimit()).isEqualTo(ConversionLimit.OUTPUT_LENGTH);
+		assertThat(headings).hasSize(1);
+		assertThat(headings.get(0).getTextStart()).isZero();
+		assertThat(headings.get(0).getTextEnd()).isEqualTo(12);
+		assertThat(result.getMetadata().getLinks()).isEmpty();
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class HtmlParserTest {
+
+	private static String getText(Document document) {
+		return new Inscriptis(document, new ParserConfig(CssProfile.STRICT)).getText();
+	}
+
+	@Test
+	public void testChunkBoundaries() {
+
+		// given
+		String html = "<!DOCTYPE html><!-- a comment --><p title='a &gt; b'>Hallo&nbsp;Welt &amp; mehr</p>" +
+			"<script>if (a </b) {}</script><pre>  x\n  y</pre><table><tr><td>1<td>2</table>";
+
+		// when
+		HtmlParser parser = new HtmlParser();
+		for (int i = 0; i < html.length(); i++) {
+			parser.feed(html.substring(i, i + 1));
+		}
+
+		// then
+		assertThat(getText(parser.finish())).isEqualTo(getText(HtmlParser.parse(html)));
+	}
+
+	@Test
+	public void testCharsetFallback() throws IOException {
+
+		// given
+		byte[] bytes = "<p>Grüße</p>".getBytes(StandardCharsets.ISO_8859_1);
+
+		// when
+		Document document = HtmlParser.parse(new ByteArrayInputStream(bytes), StandardCharsets.ISO_8859_1);
+
+		// then
+		assertThat(getText(document)).isEqualTo("Grüße");
+	}
+
+	@Test
+	public void testCharsetFromByteOrderMark() throws IOException {
+
+		// given
+		byte[] html = "<p>Äpfel</p>".getBytes(StandardCharsets.UTF_16LE);
+		byte[] bytes = new byte[html.length + 2];
+		bytes[0] = (byte) 0xFF;
+		bytes[1] = (byte) 0xFE;
+		System.arraycopy(html, 0, bytes, 2, html.length);
+
+		// when
+		Document document = HtmlParser.parse(new ByteArrayInputStream(bytes), StandardCharsets.ISO_8859_1);
+
+		// then
+		assertThat(getText(document)).isEqualTo("Äpfel");
+	}
+
+	@Test
+	public void testCharsetFromMeta() throws IOException {
+
+		// given
+		String html = "<html><head><!-- <meta charset=\"utf-8\"> -->" +
+			"<meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1252\"></head>" +
+			"<body><p>„Zitat“</p></body></html>";
+		byte[] bytes = html.getBytes(Charset.forName("windows-1252"));
+
+		// when
+		Document document = HtmlParser.parse(ByteBuffer.wrap(bytes));
+
+		// then
+		assertThat(getText(document)).isEqualTo("„Zitat“");
+	}
+
+	@Test
+	public void testHtmlSnippets() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+
+		Set<Path> textFiles;
+		try (Stream<Path> stream = Files.walk(path)) {
+			textFiles = stream
+				.filter(file -> !Files.isDirectory(file))
+				.filter(file -> file.getFileName().toString().endsWith(".txt"))
+				.collect(Collectors.toSet());
+		}
+
+		for (Path textFile : textFiles) {
+			String text = new String(Files.readAllBytes(textFile), StandardCharsets.UTF_8);
+
+			// when
+			Document document = HtmlParser.parse(Paths.get(textFile.toString().replace(".txt", ".html")));
+			String result = new Inscriptis(document, new ParserConfig(CssProfile.STRICT)).getText();
+
+			// then
+			assertThat(result)
+				.as(textFile.getFileName().toString())
+				.isEqualTo(StringUtils.stripTrailing(text));
+		}
+	}
+
+	@Test
+	public void testImpliedEndTags() {
+
+		// given
+		String html = "<ul><li>eins<li>zwei</ul><p>erster<p>zweiter<div>dritter</div>";
+
+		// when
+		Document document = HtmlParser.parse(html);
+
+		// then
+		assertThat(getText(document)).isEqualTo("  * eins\n  * zwei\n\nerster\n\n\nzweiter\n\ndritter");
+		assertThat(document.getElementsByTagName("li").item(0).getTextContent()).isEqualTo("eins");
+	}
+
+	@Test
+	public void testImpliedTableStructure() {
+
+		// given
+		String html = "<table>Fremd<td>a</td><td>b<tr><th>c<td>d</table>";
+
+		// when
+		Document document = HtmlParser.parse(html);
+
+		// then
+		assertThat(document.getElementsByTagName("tbody").getLength()).isEqualTo(1);
+		assertThat(document.getElementsByTagName("tr").getLength()).isEqualTo(2);
+		assertThat(document.getElementsByTagName("tr").item(0).getChildNodes().getLength()).isEqualTo(2);
+	}
+
+	@Test
+	public void testParsePath(@TempDir Path directory) throws IOException {
+
+		// given
+		Path file = directory.resolve("page.html");
+		Files.write(file, "﻿<h1>Überschrift</h1><p>Text".getBytes(StandardCharsets.UTF_8));
+
+		// when
+		Document document = HtmlParser.parse(file, StandardCharsets.ISO_8859_1);
+
+		// then
+		assertThat(getText(document)).isEqualTo("Überschrift\n\n\nText");
+	}
+
+	@Test
+	public void testStrayParagraphEndTag() {
+
+		// given
+		String html = "<div><p>unclosed<div>block</div></p>tail";
+
+		// when
+		Document document = HtmlParser.parse(html);
+
+		// then
+		assertThat(document.getElementsByTagName("p").getLength()).isEqualTo(2);
+		assertThat(getText(document))
+			.isEqualTo("unclosed\n\nblock\n\ntail")
+			.isEqualTo(getText(W3CDom.convert(Jsoup.parse(html))));
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class IncrementalConversionTest {
+
+	private static String convert(String html, int chunkSize, ParserConfig config) {
+
+		IncrementalConversion conversion = new IncrementalConversion(config);
+		for (int start = 0; start < html.length(); start += chunkSize) {
+			conversion.feed(html.substring(start, Math.min(html.length(), start + chunkSize)));
+		}
+
+		return conversion.finish();
+	}
+
+	@Test
+	public void testConversionBeforeFinish() {
+
+		// given
+		IncrementalConversion conversion = new IncrementalConversion();
+
+		// when
+		conversion.feed("<html><head><title>Titel</title></head><body><p>eins</p><table><tr><td>a</td><td>b");
+		int nodeCount = conversion.getNodeCount();
+		conversion.feed("</td></tr></table><p>zwei</p>");
+		String text = conversion.finish();
+
+		// then
+		assertThat(nodeCount).isGreaterThan(5);
+		assertThat(text).isEqualTo(new Inscriptis(HtmlParser.parse("<p>eins</p><table><tr><td>a</td><td>b</td></tr></table><p>zwei</p>")).getText());
+	}
+
+	@Test
+	public void testFeedAfterFinish() {
+
+		// given
+		IncrementalConversion conversion = new IncrementalConversion();
+		conversion.feed("<p>Hallo</p>");
+
+		// when
+		String text = conversion.finish();
+
+		// then
+		assertThat(text).isEqualTo("Hallo");
+		assertThat(conversion.finish()).isEqualTo(text);
+		assertThatIllegalStateException().isThrownBy(() -> conversion.feed("<p>Welt</p>"));
+	}
+
+	@Test
+	public void testHtmlSnippets() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+
+		Set<Path> textFiles;
+		try (Stream<Path> stream = Files.walk(path)) {
+			textFiles = stream
+				.filter(file -> !Files.isDirectory(file))
+				.filter(file -> file.getFileName().toString().endsWith(".txt"))
+				.collect(Collectors.toSet());
+		}
+
+		for (Path textFile : textFiles) {
+			String text = new String(Files.readAllBytes(textFile), StandardCharsets.UTF_8);
+			String html = new String(Files.readAllBytes(Paths.get(textFile.toString().replace(".txt", ".html"))), StandardCharsets.UTF_8);
+
+			for (int chunkSize : new int[] { 1, 7, 64 }) {
+				// when
+				String result = convert(html, chunkSize, new ParserConfig(CssProfile.STRICT));
+
+				// then
+				assertThat(result)
+					.as(textFile.getFileName().toString() + " in chunks of " + chunkSize)
+					.isEqualTo(StringUtils.stripTrailing(text));
+			}
+		}
+	}
+
+	@Test
+	public void testPreviewIgnoresFurtherChunks() {
+
+		// given
+		ParserConfig config = new ParserConfig();
+		config.setPreviewLines(1);
+		IncrementalConversion conversion = new IncrementalConversion(config);
+
+		// when
+		conversion.feed("<p>erste Zeile</p><p>zweite Zeile</p>");
+		int nodeCount = conversion.getNodeCount();
+		conversion.feed("<p>dritte Zeile</p>");
+
+		// then
+		assertThat(conversion.finish()).isEqualTo("erste Zeile");
+		assertThat(conversion.getNodeCount()).isEqualTo(nodeCount);
+	}
+}
@@ -16,19 +16,28 @@
 package ch.x28.inscriptis;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.jsoup.Jsoup;
 import org.jsoup.helper.W3CDom;
+import org.jsoup.nodes.Entities;
 import org.junit.jupiter.api.Test;
 import org.w3c.dom.Document;
 
@@ -38,6 +47,41 @@ import org.w3c.dom.Document;
  */
 public class InscriptisTest {
 
+	/**
+	 * Measures the bytes allocated by the current thread for converting the given document. The conversion is repeated
+	 * to warm up the JIT compiler and the minimum is returned, which is not affected by allocations of other code.
+	 *
+	 * @param document the document to be converted.
+	 * @param config the ParserConfig configuration object.
+	 * @return the allocated bytes or -1, if the JVM does not support measuring thread allocations.
+	 */
+	private static long getAllocatedBytes(Document document, ParserConfig config) {
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		if (!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+			return -1;
+		}
+
+		for (int i = 0; i < 200; i++) {
+			new Inscriptis(document, config).getText();
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long minimum = Long.MAX_VALUE;
+		for (int i = 0; i < 20; i++) {
+			long start = allocationBean.getThreadAllocatedBytes(threadId);
+			new Inscriptis(document, config).getText();
+			minimum = Math.min(minimum, allocationBean.getThreadAllocatedBytes(threadId) - start);
+		}
+
+		return minimum;
+	}
+
 	/**
 	 * Converts an HTML string to text, optionally including and deduplicating image captions, displaying link targets
 	 * and using either the standard or extended indentation strategy.
@@ -72,6 +116,45 @@ public class InscriptisTest {
 
 	}
 
+	/**
+	 * Ensures that the allocations of a conversion stay within a budget, so that a regression, e.g. string
+	 * concatenation or regular expressions in the hot paths, fails the build. The budgets are ratios to the allocations
+	 * of converting the same text as plain paragraphs in the same run, since the absolute allocations depend on the JVM.
+	 * They are about 1.2 times the ratios measured when they were set; lower them after an improvement.
+	 */
+	@Test
+	public void testAllocationBudget() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+
+		Map<String, Double> budgets = new LinkedHashMap<>();
+		budgets.put("wikipedia-table.html", 6.5);
+		budgets.put("table-in-table.html", 8.0);
+
+		for (Map.Entry<String, Double> budget : budgets.entrySet()) {
+			String html = new String(Files.readAllBytes(path.resolve(budget.getKey())), StandardCharsets.UTF_8);
+			Document document = W3CDom.convert(Jsoup.parse("<html><body>" + html + "</body></html>"));
+
+			StringBuilder paragraphs = new StringBuilder("<html><body>");
+			for (String line : new Inscriptis(document, config).getText().split("\n")) {
+				paragraphs.append("<p>").append(Entities.escape(line)).append("</p>");
+			}
+			Document baseline = W3CDom.convert(Jsoup.parse(paragraphs.append("</body></html>").toString()));
+
+			// when
+			long allocatedBytes = getAllocatedBytes(document, config);
+			long baselineBytes = getAllocatedBytes(baseline, config);
+			assumeTrue(allocatedBytes >= 0 && baselineBytes > 0, "thread allocation measurement is not supported");
+
+			// then
+			assertThat((double) allocatedBytes / baselineBytes)
+				.as(budget.getKey())
+				.isLessThanOrEqualTo(budget.getValue());
+		}
+	}
+
 	@Test
 	public void testBr() {
 
@@ -93,6 +176,102 @@ public class InscriptisTest {
 		assertThat(getText("<html><body>first</body></html>")).isEqualTo("first");
 	}
 
+	@Test
+	public void testConversionListener() {
+
+		// given
+		String html = "<html><body><div style=\"margin-top: 1em\">first</div>"
+			+ "<table><tr><td>a</td><td style=\"padding-left: 2em\">b</td></tr><tr><td>c</td><td>d</td></tr></table>"
+			+ "last</body></html>";
+
+		List<ConversionMetrics> metrics = new ArrayList<>();
+		ParserConfig config = new ParserConfig();
+		config.setConversionListener(metrics::add);
+
+		// when
+		String text = getText(html, config);
+
+		// then
+		assertThat(metrics).hasSize(1);
+		assertThat(metrics.get(0).getOutputLength()).isEqualTo(text.length());
+		assertThat(metrics.get(0).getTableCount()).isEqualTo(1);
+		assertThat(metrics.get(0).getCellCount()).isEqualTo(4);
+		assertThat(metrics.get(0).getStyleAttributeCount()).isEqualTo(2);
+		assertThat(metrics.get(0).getMaxDepth()).isEqualTo(6); // html, body, table, tbody, tr, td
+		assertThat(metrics.get(0).getNodeCount()).isEqualTo(19); // including the document, head and tbody nodes
+		assertThat(metrics.get(0).getLineCount()).isGreaterThanOrEqualTo(text.split("\n").length);
+		assertThat(metrics.get(0).getTraversalNanos()).isPositive();
+		assertThat(metrics.get(0).getTableLayoutNanos()).isPositive();
+	}
+
+	@Test
+	public void testConversionResult() {
+
+		// given
+		Document document = W3CDom.convert(Jsoup.parse("<p>first</p><p>second</p><p>third</p>"));
+		ParserConfig config = new ParserConfig();
+		config.setMaxOutputLength(3);
+
+		// when
+		Inscriptis inscriptis = new Inscriptis(document, config);
+		ConversionResult result = Inscriptis.convert(document, config);
+
+		// then
+		assertThat(result.getText()).isEqualTo("fir");
+		assertThat(result.getExceededLimit()).isEqualTo(ConversionLimit.OUTPUT_LENGTH);
+		assertThat(inscriptis.getText()).isSameAs(inscriptis.getText()).isEqualTo(result.getText());
+		assertThat(inscriptis.getResult()).isSameAs(inscriptis.getResult());
+	}
+
+	@Test
+	public void testConversionTargets() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+
+		StringBuilder html = new StringBuilder("<html><body>");
+		try (Stream<Path> stream = Files.walk(path)) {
+			for (Path htmlFile : stream.filter(file -> file.toString().endsWith(".html")).sorted().collect(Collectors.toList())) {
+				html.append(new String(Files.readAllBytes(htmlFile), StandardCharsets.UTF_8))
+					.append("\n<img alt=\"caption\"> <a href=\"target\" name=\"anchor\">link</a> <img alt=\"caption\">\n");
+			}
+		}
+		html.append("</body></html>");
+		Document document = W3CDom.convert(Jsoup.parse(html.toString()));
+
+		ParserConfig plain = new ParserConfig(CssProfile.STRICT);
+		ParserConfig links = new ParserConfig(CssProfile.STRICT);
+		links.setDisplayLinks(true);
+		ParserConfig images = new ParserConfig(CssProfile.STRICT);
+		images.setDisplayImages(true);
+		images.setDeduplicateCaptions(true);
+		images.setDisplayAnchors(true);
+
+		// when
+		List<ConversionResult> results = Inscriptis.convert(document, Arrays.asList(plain, links, images));
+
+		// then
+		assertThat(results).hasSize(3);
+		assertThat(results.get(0).getText()).isEqualTo(Inscriptis.convert(document, plain).getText());
+		assertThat(results.get(1).getText()).isEqualTo(Inscriptis.convert(document, links).getText()).contains("[link](target)");
+		assertThat(results.get(2).getText()).isEqualTo(Inscriptis.convert(document, images).getText()).contains("[caption]");
+	}
+
+	@Test
+	public void testConversionTargetsIncompatible() {
+
+		// given
+		Document document = W3CDom.convert(Jsoup.parse("<p>first</p>"));
+		ParserConfig limited = new ParserConfig();
+		limited.setMaxNodes(10);
+
+		// when / then
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> Inscriptis.convert(document, Arrays.asList(new ParserConfig(), new ParserConfig(CssProfile.STRICT))));
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> Inscriptis.convert(document, Arrays.asList(new ParserConfig(), limited)));
+	}
+
 	@Test
 	public void testDisplayAnchors() {
 
@@ -218,6 +397,37 @@ public class InscriptisTest {
 		assertThat(getText("<body>Thomas <ul><li> a  <div>Anton</div>Maria</ul></body>", config)).isEqualTo("Thomas\n  * a\n    Anton\n    Maria");
 	}
 
+	@Test
+	public void testEmbeddedStyleSheets() {
+
+		// given
+		String html = "<html><head><style>"
+			+ ".hidden, #sidebar { display: none }\n"
+			+ ".content p { margin-top: 2em }\n"
+			+ "span.block { display: block }"
+			+ "</style></head><body>"
+			+ "<div id=\"sidebar\">Menu</div>"
+			+ "<div class=\"content\">first<p>second</p><span class=\"hidden\">hidden</span><span class=\"block\">third</span></div>"
+			+ "<p class=\"hidden\" style=\"display: block\">last</p>"
+			+ "</body></html>";
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setEmbeddedStyleSheets(true);
+
+		// when
+		String text = getText(html, config);
+
+		// then
+		String inlineStyles = "<html><body>"
+			+ "<div style=\"display: none\">Menu</div>"
+			+ "<div>first<p style=\"margin-top: 2em\">second</p><span style=\"display: none\">hidden</span><span style=\"display: block\">third</span></div>"
+			+ "<p style=\"display: block\">last</p>"
+			+ "</body></html>";
+
+		assertThat(text).isEqualTo(getText(inlineStyles, new ParserConfig(CssProfile.STRICT)));
+		assertThat(text).doesNotContain("Menu", "hidden");
+	}
+
 	@Test
 	public void testEmptyAndCorrupt() {
 
@@ -230,6 +440,28 @@ public class InscriptisTest {
 		assertThat(getText("<<<")).isEqualTo("<<<"); // not equal to python version
 	}
 
+	@Test
+	public void testExcludedSelectors() {
+
+		// given
+		String html = "<html><body><nav><a href=\"/\">Home</a></nav>"
+			+ "<div id=\"cookies\"><p>Accept cookies</p></div>"
+			+ "<p>first</p>"
+			+ "<div class=\"sidebar ad\">Buy now</div>"
+			+ "<div role=\"banner\">Banner</div>"
+			+ "<p>last</p></body></html>";
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setExcludedSelectors(Arrays.asList("nav", "#cookies", ".ad", "[role=banner]"));
+
+		// when
+		String text = getText(html, config);
+
+		// then
+		assertThat(text).isEqualTo(getText("<html><body><p>first</p><p>last</p></body></html>", new ParserConfig(CssProfile.STRICT)));
+		assertThat(config.getFingerprint()).isNotEqualTo(new ParserConfig(CssProfile.STRICT).getFingerprint());
+	}
+
 	@Test
 	public void testForgottenTdCloseTagOneLine() {
 
@@ -252,6 +484,27 @@ public class InscriptisTest {
 		assertThat(getText(html)).isEqualTo("hallo\n1  2\n3  4\necho");
 	}
 
+	@Test
+	public void testHiddenSubtree() {
+
+		// given
+		String html = "<html><body>first<div style=\"display: none\"><img alt=\"caption\"><br><a href=\"target\">link</a>"
+			+ "<table><tr><td>cell</td></tr></table></div>last</body></html>";
+
+		List<ConversionMetrics> metrics = new ArrayList<>();
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setDisplayImages(true);
+		config.setDisplayLinks(true);
+		config.setConversionListener(metrics::add);
+
+		// when
+		String text = getText(html, config);
+
+		// then
+		assertThat(text).isEqualTo("firstlast");
+		assertThat(metrics.get(0).getTableCount()).isZero();
+	}
+
 	@Test
 	public void testHtmlSnippets() throws IOException, URISyntaxException {
 
@@ -326,6 +579,44 @@ public class InscriptisTest {
 		assertThat(getText(html)).isEqualTo("first\nsecond");
 	}
 
+	@Test
+	public void testParallelConversion() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+
+		StringBuilder html = new StringBuilder("<html><body>");
+		try (Stream<Path> stream = Files.walk(path)) {
+			for (Path htmlFile : stream.filter(file -> file.toString().endsWith(".html")).sorted().collect(Collectors.toList())) {
+				String snippet = new String(Files.readAllBytes(htmlFile), StandardCharsets.UTF_8);
+				html.append(snippet)
+					.append("\n<img alt=\"caption\"> <a href=\"target\">link</a> text\n")
+					.append(snippet);
+			}
+		}
+		html.append("</body></html>");
+
+		for (CssProfile css : new CssProfile[] { CssProfile.STRICT, CssProfile.RELAXED }) {
+			ParserConfig sequential = new ParserConfig(css);
+			sequential.setDisplayImages(true);
+			sequential.setDeduplicateCaptions(true);
+			sequential.setDisplayLinks(true);
+
+			ParserConfig parallel = new ParserConfig(css);
+			parallel.setDisplayImages(true);
+			parallel.setDeduplicateCaptions(true);
+			parallel.setDisplayLinks(true);
+			parallel.setParallel(true);
+
+			// when
+			String expected = getText(html.toString(), sequential);
+			String result = getText(html.toString(), parallel);
+
+			// then
+			assertThat(result).isEqualTo(expected);
+		}
+	}
+
 	/**
 	 * Ensures that two successive <code>&lt;a&gt;text&lt;/a&gt;</code> contain a space between each other, if there is
 	 * a linebreak or space between the tags.
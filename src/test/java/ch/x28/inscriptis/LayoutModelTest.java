@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class LayoutModelTest {
+
+	private static Document loadSnippets() throws IOException, URISyntaxException {
+
+		Path path = Paths.get(LayoutModelTest.class.getClassLoader().getResource("snippets").toURI());
+
+		StringBuilder html = new StringBuilder("<html><body>");
+		try (Stream<Path> stream = Files.walk(path)) {
+			for (Path htmlFile : stream.filter(file -> file.toString().endsWith(".html")).sorted().collect(Collectors.toList())) {
+				html.append(new String(Files.readAllBytes(htmlFile), StandardCharsets.UTF_8))
+					.append("\n<img alt=\"caption\"> <a href=\"target\" name=\"anchor\">link</a> <img title=\"caption\">\n");
+			}
+		}
+		html.append("</body></html>");
+
+		return W3CDom.convert(Jsoup.parse(html.toString()));
+	}
+
+	@Test
+	public void testCorruptModel() throws IOException {
+
+		// given
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LayoutModel.record(W3CDom.convert(Jsoup.parse("<p>first <a href=\"target\">link</a></p>")), new ParserConfig())
+			.writeTo(out);
+		byte[] bytes = out.toByteArray();
+
+		ByteArrayOutputStream huge = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(huge);
+		data.write(bytes, 0, 16);
+		data.writeInt(Integer.MAX_VALUE);
+		data.writeInt(Integer.MAX_VALUE);
+
+		// when
+		// then
+		for (int length = 0; length < bytes.length; length++) {
+			byte[] truncated = Arrays.copyOf(bytes, length);
+			assertThatExceptionOfType(IOException.class)
+				.as("truncated at %d", length)
+				.isThrownBy(() -> LayoutModel.readFrom(new ByteArrayInputStream(truncated)));
+		}
+
+		// the model is either read or rejected, but corrupt indexes do not escape as runtime exceptions
+		for (int position = 16; position < bytes.length; position++) {
+			byte[] corrupt = bytes.clone();
+			corrupt[position] = 0x7F;
+			try {
+				LayoutModel.readFrom(new ByteArrayInputStream(corrupt));
+			} catch (IOException e) {
+				// rejected
+			}
+		}
+
+		assertThatExceptionOfType(IOException.class)
+			.isThrownBy(() -> LayoutModel.readFrom(new ByteArrayInputStream(huge.toByteArray())));
+	}
+
+	@Test
+	public void testIncompatibleConfig() {
+
+		// given
+		Document document = W3CDom.convert(Jsoup.parse("<p>first</p>"));
+		LayoutModel model = LayoutModel.record(document, new ParserConfig());
+
+		ParserConfig limited = new ParserConfig();
+		limited.setMaxNodes(10);
+
+		ParserConfig excluded = new ParserConfig();
+		excluded.setExcludedSelectors(Collections.singletonList("nav"));
+
+		// when / then
+		assertThatIllegalArgumentException().isThrownBy(() -> model.render(new ParserConfig(CssProfile.STRICT)));
+		assertThatIllegalArgumentException().isThrownBy(() -> model.render(excluded));
+		assertThatIllegalArgumentException().isThrownBy(() -> model.render(limited));
+		assertThatIllegalArgumentException().isThrownBy(() -> LayoutModel.record(document, limited));
+	}
+
+	@Test
+	public void testRender() throws IOException, URISyntaxException {
+
+		// given
+		Document document = loadSnippets();
+
+		for (CssProfile css : new CssProfile[] { CssProfile.STRICT, CssProfile.RELAXED }) {
+			ParserConfig links = new ParserConfig(css);
+			links.setDisplayLinks(true);
+			ParserConfig images = new ParserConfig(css);
+			images.setDisplayImages(true);
+			images.setDeduplicateCaptions(true);
+			images.setDisplayAnchors(true);
+
+			// when
+			LayoutModel model = LayoutModel.record(document, new ParserConfig(css));
+
+			// then
+			for (ParserConfig config : new ParserConfig[] { new ParserConfig(css), links, images }) {
+				assertThat(model.render(config).getText()).isEqualTo(Inscriptis.convert(document, config).getText());
+			}
+		}
+	}
+
+	@Test
+	public void testSerialization() throws IOException, URISyntaxException {
+
+		// given
+		Document document = loadSnippets();
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setDisplayLinks(true);
+		config.setDisplayImages(true);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LayoutModel.record(document, new ParserConfig(CssProfile.STRICT)).writeTo(out);
+
+		// when
+		LayoutModel model = LayoutModel.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+		// then
+		assertThat(model.render(config).getText()).isEqualTo(Inscriptis.convert(document, config).getText());
+		assertThatExceptionOfType(IOException.class)
+			.isThrownBy(() -> LayoutModel.readFrom(new ByteArrayInputStream(new byte[16])));
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class LinePublisherTest {
+
+	/**
+	 * Collects the published lines and requests them one by one.
+	 */
+	private static class CollectingSubscriber implements LinePublisher.Subscriber {
+
+		private final List<CharSequence> lines = new ArrayList<>();
+		private LinePublisher.Subscription subscription;
+		private Throwable error;
+		private boolean completed;
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onNext(CharSequence line) {
+			lines.add(line);
+		}
+
+		@Override
+		public void onSubscribe(LinePublisher.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		String getText() {
+			return lines.stream().collect(Collectors.joining("\n"));
+		}
+	}
+
+	private static Document parse(String html) {
+		return W3CDom.convert(Jsoup.parse(html));
+	}
+
+	@Test
+	public void testBackpressure() {
+
+		// given
+		Document document = parse("<html><body><p>first</p><p>second</p><p>third</p></body></html>");
+		CollectingSubscriber subscriber = new CollectingSubscriber();
+
+		// when
+		new LinePublisher(document).subscribe(subscriber);
+
+		// then
+		assertThat(subscriber.lines).isEmpty();
+
+		subscriber.subscription.request(1);
+		assertThat(subscriber.lines).containsExactly("first\n");
+		assertThat(subscriber.completed).isFalse();
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertThat(subscriber.getText()).isEqualTo(new Inscriptis(document).getText());
+		assertThat(subscriber.completed).isTrue();
+		assertThat(subscriber.error).isNull();
+	}
+
+	@Test
+	public void testCancel() {
+
+		// given
+		Document document = parse("<html><body><p>first</p><p>second</p></body></html>");
+		CollectingSubscriber subscriber = new CollectingSubscriber();
+		new LinePublisher(document).subscribe(subscriber);
+
+		// when
+		subscriber.subscription.request(1);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(1);
+
+		// then
+		assertThat(subscriber.lines).hasSize(1);
+		assertThat(subscriber.completed).isFalse();
+	}
+
+	@Test
+	public void testInvalidRequest() {
+
+		// given
+		Document document = parse("<html><body>first</body></html>");
+		CollectingSubscriber subscriber = new CollectingSubscriber();
+		new LinePublisher(document).subscribe(subscriber);
+
+		// when
+		subscriber.subscription.request(0);
+
+		// then
+		assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+		assertThat(subscriber.lines).isEmpty();
+	}
+
+	@Test
+	public void testLimits() {
+
+		// given
+		StringBuilder html = new StringBuilder("<html><body><h1>Title</h1>");
+		for (int i = 0; i < 20; i++) {
+			html.append("<p>paragraph ").append(i).append(" with some \uD83D\uDE00 text</p><ul><li>first</li><li>second</li></ul>");
+		}
+		Document document = parse(html.append("<pre>a  \n\n  b</pre></body></html>").toString());
+
+		for (int limit = 1; limit < 200; limit++) {
+			ParserConfig length = new ParserConfig(CssProfile.STRICT);
+			length.setMaxOutputLength(limit);
+
+			ParserConfig previewLength = new ParserConfig(CssProfile.STRICT);
+			previewLength.setPreviewLength(limit);
+
+			ParserConfig previewLines = new ParserConfig(CssProfile.STRICT);
+			previewLines.setPreviewLines(limit);
+
+			for (ParserConfig config : Arrays.asList(length, previewLength, previewLines)) {
+
+				// when
+				CollectingSubscriber subscriber = new CollectingSubscriber();
+				new LinePublisher(document, config).subscribe(subscriber);
+				subscriber.subscription.request(Long.MAX_VALUE);
+
+				// then
+				assertThat(subscriber.getText())
+					.as("limit %d", limit)
+					.isEqualTo(new Inscriptis(document, config).getText());
+				assertThat(subscriber.completed).isTrue();
+			}
+		}
+	}
+
+	@Test
+	public void testHtmlSnippets() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+
+		List<Path> htmlFiles;
+		try (Stream<Path> stream = Files.walk(path)) {
+			htmlFiles = stream
+				.filter(file -> file.getFileName().toString().endsWith(".html"))
+				.collect(Collectors.toList());
+		}
+
+		for (Path htmlFile : htmlFiles) {
+			String html = new String(Files.readAllBytes(htmlFile), StandardCharsets.UTF_8);
+			Document document = parse("<html><body>" + html + "</body></html>");
+			ParserConfig config = new ParserConfig(CssProfile.STRICT);
+
+			// when
+			CollectingSubscriber subscriber = new CollectingSubscriber();
+			new LinePublisher(document, config).subscribe(subscriber);
+			while (!subscriber.completed) {
+				subscriber.subscription.request(1);
+			}
+
+			// then
+			assertThat(subscriber.getText())
+				.as(htmlFile.getFileName().toString())
+				.isEqualTo(new Inscriptis(document, config).getText());
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class ParallelConversionTest {
+
+	@Test
+	public void testDeferredDocument() throws Exception {
+
+		// given
+		StringBuilder html = new StringBuilder("<html><body>");
+		for (int i = 0; i < 100; i++) {
+			html.append("<p>paragraph ").append(i).append("</p>");
+		}
+		html.append("</body></html>");
+
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		Document deferred = factory.newDocumentBuilder()
+			.parse(new ByteArrayInputStream(html.toString().getBytes(StandardCharsets.UTF_8)));
+
+		ParserConfig config = new ParserConfig();
+		config.setParallel(true);
+
+		// when
+		String text = Inscriptis.convert(deferred, config).getText();
+
+		// then
+		assertThat(ParallelConversion.isConcurrentlyReadable(deferred)).isFalse();
+		assertThat(ParallelConversion.isConcurrentlyReadable(W3CDom.convert(Jsoup.parse(html.toString())))).isTrue();
+		assertThat(ParallelConversion.isConcurrentlyReadable(HtmlParser.parse(html))).isTrue();
+		assertThat(text).isEqualTo(Inscriptis.convert(deferred, new ParserConfig()).getText());
+	}
+}
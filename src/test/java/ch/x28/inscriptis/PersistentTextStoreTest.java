@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class PersistentTextStoreTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final AtomicInteger parseCount = new AtomicInteger();
+	private final Function<String, Document> parser = html -> {
+		parseCount.incrementAndGet();
+		return W3CDom.convert(Jsoup.parse(html));
+	};
+
+	@Test
+	public void testCapacity() throws IOException {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+		ParserConfig config = new ParserConfig();
+
+		try (PersistentTextStore store = new PersistentTextStore(path, 1, 10)) {
+
+			// when
+			boolean first = store.put("<p>first</p>", config, "first");
+			boolean second = store.put("<p>second</p>", config, "second");
+
+			// then
+			assertThat(first).isTrue();
+			assertThat(second).as("text stored beyond the capacity").isFalse();
+			assertThat(store.getEntryCount()).isEqualTo(1);
+			assertThat(store.getRemainingCapacity()).isEqualTo(5);
+			assertThat((Object) store.getText("<p>second</p>", config)).isNull();
+		}
+	}
+
+	@Test
+	public void testClosed() throws IOException {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+		PersistentTextStore store = new PersistentTextStore(path, 10, 100);
+		store.put("<p>first</p>", new ParserConfig(), "first");
+
+		// when
+		store.close();
+		store.close();
+
+		// then
+		assertThatIllegalStateException().isThrownBy(() -> store.getText("<p>first</p>", new ParserConfig()));
+		assertThatIllegalStateException().isThrownBy(() -> store.put("<p>second</p>", new ParserConfig(), "second"));
+		assertThatIllegalStateException().isThrownBy(store::getEntryCount);
+	}
+
+	@Test
+	public void testCorruptSlot() throws IOException {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+		String html = "<p>first</p>";
+
+		try (PersistentTextStore store = new PersistentTextStore(path, 10, 100)) {
+			store.put(html, new ParserConfig(), "first");
+		}
+
+		// a torn write left a slot pointing beyond the written data
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			file.seek(12);
+			int slotCount = file.readInt();
+			for (int i = 0; i < slotCount; i++) {
+				file.seek(64 + i * 40 + 24);
+				file.writeInt(Integer.MAX_VALUE);
+			}
+		}
+
+		// when
+		try (PersistentTextStore store = new PersistentTextStore(path, 10, 100)) {
+
+			// then
+			assertThat((Object) store.getText(html, new ParserConfig())).isNull();
+			assertThat(store.getText(html, new ParserConfig(), parser).toString()).isEqualTo("first");
+		}
+	}
+
+	@Test
+	public void testHashCollision() throws IOException {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+
+		try (PersistentTextStore store = new PersistentTextStore(path, 10, 100)) {
+			store.put(42, 1, 10, 7, "first");
+
+			// when
+			ByteBuffer colliding = store.find(42, 2, 10, 7);
+			boolean stored = store.put(42, 2, 10, 7, "second");
+
+			// then
+			assertThat(colliding).as("text of another document with the same hash").isNull();
+			assertThat(stored).isTrue();
+			assertThat(StandardCharsets.UTF_16BE.decode(store.find(42, 1, 10, 7)).toString()).isEqualTo("first");
+			assertThat(StandardCharsets.UTF_16BE.decode(store.find(42, 2, 10, 7)).toString()).isEqualTo("second");
+		}
+	}
+
+	@Test
+	public void testInvalidFile() throws IOException {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+		Files.write(path, "no store".getBytes(StandardCharsets.UTF_8));
+
+		// when
+		// then
+		assertThatThrownBy(() -> new PersistentTextStore(path, 10, 100)).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void testMaximumEntries() {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+
+		// when
+		// then
+		assertThatThrownBy(() -> new PersistentTextStore(path, Integer.MAX_VALUE, 100)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testLock() throws IOException {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+
+		try (PersistentTextStore store = new PersistentTextStore(path, 10, 100)) {
+
+			// when
+			// then
+			assertThatThrownBy(() -> new PersistentTextStore(path, 10, 100)).isInstanceOf(IOException.class);
+		}
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+		String html = "<body><p>first</p><p>second</p></body>";
+
+		ParserConfig links = new ParserConfig();
+		links.setDisplayLinks(true);
+
+		try (PersistentTextStore store = new PersistentTextStore(path, 100, 1000)) {
+			store.getText(html, new ParserConfig(), parser);
+			store.force();
+		}
+
+		// when
+		try (PersistentTextStore store = new PersistentTextStore(path, 10, 10)) {
+			CharSequence text = store.getText(html, new ParserConfig(), parser);
+			ByteBuffer bytes = store.getBytes(html, new ParserConfig());
+
+			// then
+			assertThat(text.toString()).isEqualTo("first\n\n\nsecond");
+			assertThat(StandardCharsets.UTF_16BE.decode(bytes).toString()).isEqualTo("first\n\n\nsecond");
+			assertThat(bytes.isReadOnly()).isTrue();
+			assertThat(parseCount).hasValue(1);
+			assertThat((Object) store.getText(html, links)).isNull();
+			assertThat(store.getRemainingCapacity()).isEqualTo(1000 - text.length());
+		}
+	}
+
+	@Test
+	public void testTextVersion() throws IOException {
+
+		// given
+		Path path = tempDir.resolve("texts.store");
+		String html = "<p>first</p>";
+
+		try (PersistentTextStore store = new PersistentTextStore(path, 10, 100)) {
+			store.getText(html, new ParserConfig(), parser);
+		}
+
+		// a store written by a version with another text version
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			file.seek(36);
+			file.writeInt(0);
+		}
+
+		// when
+		try (PersistentTextStore store = new PersistentTextStore(path, 10, 100)) {
+
+			// then
+			assertThat(store.getEntryCount()).isZero();
+			assertThat(store.getRemainingCapacity()).isEqualTo(100);
+			assertThat((Object) store.getText(html, new ParserConfig())).isNull();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class SelectorFilterTest {
+
+	@Test
+	public void testFingerprint() {
+
+		// given
+		SelectorFilter filter = new SelectorFilter(Arrays.asList("nav", ".ad"));
+
+		// when
+		// then
+		assertThat(filter.getFingerprint()).isEqualTo(new SelectorFilter(Arrays.asList(".ad", "nav")).getFingerprint());
+		assertThat(filter.getFingerprint()).isNotEqualTo(new SelectorFilter(Arrays.asList("nav", ".ads")).getFingerprint());
+	}
+
+	@Test
+	public void testMatches() {
+
+		// given
+		Document document = W3CDom.convert(Jsoup.parse("<body>"
+			+ "<nav>0</nav>"
+			+ "<div id=\"cookie-banner\">1</div>"
+			+ "<div class=\"teaser  ad\">2</div>"
+			+ "<div role=\"banner\">3</div>"
+			+ "<div id=\"content\" class=\"adventure\" role=\"main\">4</div>"
+			+ "<div id=\"cookie-banner footer\">5</div>"
+			+ "</body>"));
+
+		SelectorFilter filter = new SelectorFilter(Arrays.asList("NAV", "#cookie-banner", ".ad", "[role=\"banner\"]"));
+
+		// when
+		// then
+		for (int i = 0; i < 4; i++) {
+			assertThat(filter.matches(document.getElementsByTagName("body").item(0).getChildNodes().item(i))).isTrue();
+		}
+		assertThat(filter.matches(document.getElementsByTagName("body").item(0).getChildNodes().item(4))).isFalse();
+		assertThat(filter.matches(document.getElementsByTagName("body").item(0).getChildNodes().item(5))).isFalse();
+	}
+
+	@Test
+	public void testUnsupportedSelector() {
+
+		// given
+		// when
+		// then
+		assertThatIllegalArgumentException().isThrownBy(() -> new SelectorFilter(Arrays.asList("div > p")));
+		assertThatIllegalArgumentException().isThrownBy(() -> new SelectorFilter(Arrays.asList("#")));
+	}
+}
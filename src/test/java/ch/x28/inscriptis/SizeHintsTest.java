@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class SizeHintsTest {
+
+	@Test
+	public void testLearnFromConversions() {
+
+		// given
+		ParserConfig config = new ParserConfig();
+		StringBuilder html = new StringBuilder("<table><tr><td>a<br>b<br>c</td><td>d</td></tr></table>");
+		for (int i = 0; i < 200; i++) {
+			html.append("<p>Absatz ").append(i).append("</p>");
+		}
+
+		// when
+		for (int i = 0; i < 20; i++) {
+			new Inscriptis(HtmlParser.parse(html), config);
+		}
+
+		// then
+		assertThat(config.getSizeHints().getRootLines()).isBetween(190, 260);
+		assertThat(config.getSizeHints().getCellLines()).isBetween(2, 9);
+	}
+
+	@Test
+	public void testLimitOutliers() {
+
+		// given
+		SizeHints hints = new SizeHints();
+		ConversionMetrics.Counters counters = new ConversionMetrics.Counters();
+		counters.rootLineCount = Integer.MAX_VALUE;
+
+		// when
+		for (int i = 0; i < 100; i++) {
+			hints.record(counters);
+		}
+
+		// then
+		assertThat(hints.getRootLines()).isEqualTo(1 << 16);
+		assertThat(hints.getCellLines()).isEqualTo(10);
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class SourceMapTest {
+
+	private static void assertRuns(ConversionResult result, String description) {
+
+		String text = result.getText();
+		SourceMap sourceMap = result.getSourceMap();
+
+		int previousEnd = 0;
+		for (int run = 0; run < sourceMap.size(); run++) {
+			int start = sourceMap.getTextStart(run);
+			int end = sourceMap.getTextEnd(run);
+			assertThat(start).as(description).isGreaterThanOrEqualTo(previousEnd);
+			assertThat(end).as(description).isLessThanOrEqualTo(text.length());
+
+			Node node = sourceMap.getNode(run);
+			int offset = sourceMap.getNodeOffset(run);
+			assertThat(node.getNodeType()).isEqualTo(Node.TEXT_NODE);
+			assertThat(text.substring(start, end)).as(description + " run " + run)
+				.isEqualTo(node.getNodeValue().substring(offset, offset + end - start));
+
+			previousEnd = end;
+		}
+	}
+
+	private static ConversionResult convert(String html) {
+
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setSourceMapping(true);
+
+		return Inscriptis.convert(HtmlParser.parse(html), config);
+	}
+
+	private static String sourceOf(ConversionResult result, String word) {
+
+		SourceMap sourceMap = result.getSourceMap();
+		int run = sourceMap.find(result.getText().indexOf(word));
+
+		return run >= 0 ? sourceMap.getNode(run).getNodeValue() : null;
+	}
+
+	@Test
+	public void testDisabled() {
+
+		// given
+		Document document = HtmlParser.parse("<p>first</p>");
+
+		// when
+		ConversionResult result = Inscriptis.convert(document);
+
+		// then
+		assertThat(result.getSourceMap()).isNull();
+	}
+
+	@Test
+	public void testHtmlSnippets() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+
+		Set<Path> htmlFiles;
+		try (Stream<Path> stream = Files.walk(path)) {
+			htmlFiles = stream
+				.filter(file -> file.getFileName().toString().endsWith(".html"))
+				.collect(Collectors.toSet());
+		}
+
+		for (Path htmlFile : htmlFiles) {
+			// when
+			ConversionResult result = convert(new String(Files.readAllBytes(htmlFile), "UTF-8"));
+
+			// then
+			assertRuns(result, htmlFile.getFileName().toString());
+			assertThat(result.getSourceMap().size()).as(htmlFile.getFileName().toString()).isPositive();
+		}
+	}
+
+	@Test
+	public void testInlineElements() {
+
+		// when
+		ConversionResult result = convert("<p>Hello   <b>big</b>\n world</p><p>next</p>");
+
+		// then
+		assertThat(result.getText()).isEqualTo("Hello big world\n\n\nnext");
+		assertRuns(result, "inline");
+		assertThat(result.getSourceMap().size()).isEqualTo(4);
+		assertThat(sourceOf(result, "Hello")).isEqualTo("Hello   ");
+		assertThat(sourceOf(result, "big")).isEqualTo("big");
+		assertThat(sourceOf(result, "world")).isEqualTo("\n world");
+		assertThat(sourceOf(result, "next")).isEqualTo("next");
+
+		// collapsed whitespace is mapped to its first character
+		assertThat(result.getSourceMap().find(5)).isZero();
+		assertThat(result.getSourceMap().getTextEnd(0)).isEqualTo(6);
+		assertThat(result.getSourceMap().find(result.getText().length())).isEqualTo(-1);
+	}
+
+	@Test
+	public void testMaxOutputLength() {
+
+		// given
+		ParserConfig config = new ParserConfig(CssProfile.STRICT);
+		config.setSourceMapping(true);
+		config.setMaxOutputLength(7);
+
+		// when
+		ConversionResult result = Inscriptis.convert(HtmlParser.parse("<p>first second</p>"), config);
+
+		// then
+		assertThat(result.getText()).isEqualTo("first s");
+		assertRuns(result, "truncated");
+		assertThat(result.getSourceMap().getTextEnd(result.getSourceMap().size() - 1)).isEqualTo(7);
+	}
+
+	@Test
+	public void testPre() {
+
+		// when
+		ConversionResult result = convert("<ul><li><pre>line 1\n  line 2</pre></li></ul>");
+
+		// then
+		assertRuns(result, "pre");
+		assertThat(sourceOf(result, "line 2")).isEqualTo("line 1\n  line 2");
+
+		SourceMap sourceMap = result.getSourceMap();
+		int run = sourceMap.find(result.getText().indexOf("line 2"));
+		assertThat(sourceMap.getNodeOffset(run) + result.getText().indexOf("line 2") - sourceMap.getTextStart(run))
+			.isEqualTo(9);
+	}
+
+	@Test
+	public void testTable() {
+
+		// when
+		ConversionResult result = convert("<table><tr><td>a</td><td align=\"right\">bb</td></tr>"
+			+ "<tr><td>longer cell</td><td>c<br>d</td></tr></table>");
+
+		// then
+		assertRuns(result, "table");
+		assertThat(sourceOf(result, "longer")).isEqualTo("longer cell");
+		assertThat(sourceOf(result, "bb")).isEqualTo("bb");
+		assertThat(sourceOf(result, "d")).isEqualTo("d");
+	}
+}
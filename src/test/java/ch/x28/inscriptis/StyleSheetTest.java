@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import ch.x28.inscriptis.HtmlProperties.Display;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class StyleSheetTest {
+
+	private static Node getElementById(Document document, String id) {
+
+		NodeList elements = document.getElementsByTagName("*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			if (id.equals(((Element) elements.item(i)).getAttribute("id"))) {
+				return elements.item(i);
+			}
+		}
+
+		return null;
+	}
+
+	@Test
+	public void testParse() {
+
+		// given
+		String css = "/* comment { display: none } */\n"
+			+ "@import url(\"print.css\");\n"
+			+ "@media print { .nav { display: none } }\n"
+			+ "body { font-family: sans-serif }\n"
+			+ "div.nav, #main .ad { display: none !important; color: red }\n"
+			+ "a:hover, ul > li, [hidden] { display: none }\n"
+			+ "pre { white-space: pre }";
+
+		// when
+		StyleSheet styleSheet = new StyleSheet(css);
+
+		// then
+		assertThat(styleSheet.getRuleCount()).isEqualTo(3); // div.nav, #main .ad and pre
+	}
+
+	@Test
+	public void testSpecificity() {
+
+		// given
+		Document document = W3CDom.convert(Jsoup.parse("<body><div id=\"main\">"
+			+ "<p id=\"first\" class=\"note\">first</p>"
+			+ "<span id=\"second\" class=\"note\">second</span>"
+			+ "</div><p id=\"third\" class=\"note\">third</p></body>"));
+
+		StyleSheet styleSheet = new StyleSheet("#main .note { display: block } .note { display: none } p { display: inline }");
+		HtmlElement element = new HtmlElement("p", Display.INLINE);
+
+		// when
+		// then
+		assertThat(styleSheet.apply(getElementById(document, "first"), element, null).getDisplay()).isEqualTo(Display.BLOCK);
+		assertThat(styleSheet.apply(getElementById(document, "second"), element, null).getDisplay()).isEqualTo(Display.BLOCK);
+		assertThat(styleSheet.apply(getElementById(document, "third"), element, null).getDisplay()).isEqualTo(Display.NONE);
+		assertThat(styleSheet.apply(getElementById(document, "third"), element, "display: block").getDisplay()).isEqualTo(Display.BLOCK);
+		assertThat(styleSheet.apply(document.getElementsByTagName("body").item(0), element, null)).isSameAs(element);
+	}
+}
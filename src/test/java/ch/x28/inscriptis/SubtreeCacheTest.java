@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class SubtreeCacheTest {
+
+	private static final String NAVIGATION;
+
+	static {
+		StringBuilder navigation = new StringBuilder("<div class=\"nav\"><ul>");
+		for (int i = 0; i < 10; i++) {
+			navigation.append("<li><a href=\"/page").append(i).append("\">Page ").append(i).append("</a></li>");
+		}
+		NAVIGATION = navigation.append("</ul></div>").toString();
+	}
+
+	private static String getText(String html, ParserConfig config) {
+		return new Inscriptis(W3CDom.convert(Jsoup.parse(html)), config).getText();
+	}
+
+	private static String page(String content) {
+		return "<html><body><h1>Site</h1>" + NAVIGATION + "<p>" + content + "</p>" + NAVIGATION + "</body></html>";
+	}
+
+	@Test
+	public void testSharedSubtree() {
+
+		// given
+		SubtreeCache subtreeCache = new SubtreeCache(100);
+		ParserConfig config = new ParserConfig();
+		config.setDisplayLinks(true);
+		config.setSubtreeCache(subtreeCache);
+
+		ParserConfig uncached = new ParserConfig();
+		uncached.setDisplayLinks(true);
+
+		// when
+		String first = getText(page("first"), config);
+		long hitCount = subtreeCache.getHitCount();
+		String second = getText(page("second"), config);
+
+		// then
+		assertThat(first).isEqualTo(getText(page("first"), uncached));
+		assertThat(second).isEqualTo(getText(page("second"), uncached));
+		assertThat(subtreeCache.getHitCount()).isGreaterThan(hitCount);
+	}
+
+	@Test
+	public void testConfigChange() {
+
+		// given
+		SubtreeCache subtreeCache = new SubtreeCache(100);
+
+		ParserConfig links = new ParserConfig();
+		links.setDisplayLinks(true);
+		links.setSubtreeCache(subtreeCache);
+
+		ParserConfig config = new ParserConfig();
+		config.setSubtreeCache(subtreeCache);
+
+		// when
+		getText(page("first"), links);
+		String text = getText(page("first"), config);
+
+		// then
+		assertThat(text).isEqualTo(getText(page("first"), new ParserConfig()));
+	}
+
+	@Test
+	public void testExcludedSelectors() {
+
+		// given
+		SubtreeCache subtreeCache = new SubtreeCache(100);
+		ParserConfig config = new ParserConfig();
+		config.setExcludedSelectors(Collections.singletonList(".ad"));
+		config.setSubtreeCache(subtreeCache);
+
+		ParserConfig uncached = new ParserConfig();
+		uncached.setExcludedSelectors(Collections.singletonList(".ad"));
+
+		String excluded = page("first").replace("<ul>", "<div class=\"ad\">AD TEXT</div><ul>");
+		String included = page("first").replace("<ul>", "<div class=\"content\">AD TEXT</div><ul>");
+
+		// when
+		String first = getText(excluded, config);
+		String second = getText(included, config);
+
+		// then
+		assertThat(first).isEqualTo(getText(excluded, uncached)).doesNotContain("AD TEXT");
+		assertThat(second).isEqualTo(getText(included, uncached)).contains("AD TEXT");
+	}
+
+	@Test
+	public void testEnclosingLink() {
+
+		// given
+		SubtreeCache subtreeCache = new SubtreeCache(100);
+		ParserConfig config = new ParserConfig();
+		config.setDisplayLinks(true);
+		config.setSubtreeCache(subtreeCache);
+
+		ParserConfig uncached = new ParserConfig();
+		uncached.setDisplayLinks(true);
+
+		StringBuilder spans = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			spans.append("<span>").append(i).append("</span>");
+		}
+		String first = "<a href=\"first\"><div>" + spans + "</div></a>";
+		String second = "<a href=\"second\"><div>" + spans + "</div></a>";
+
+		// when
+		getText(first, config);
+		long hitCount = subtreeCache.getHitCount();
+		String text = getText(second, config);
+
+		// then
+		assertThat(subtreeCache.getHitCount()).isGreaterThan(hitCount);
+		assertThat(text).isEqualTo(getText(second, uncached)).endsWith("](second)");
+	}
+
+	@Test
+	public void testSnippets() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+		SubtreeCache subtreeCache = new SubtreeCache(1000);
+
+		ParserConfig uncached = new ParserConfig();
+		uncached.setDisplayImages(true);
+		uncached.setDeduplicateCaptions(true);
+
+		ParserConfig config = new ParserConfig();
+		config.setDisplayImages(true);
+		config.setDeduplicateCaptions(true);
+		config.setSubtreeCache(subtreeCache);
+
+		try (Stream<Path> stream = Files.walk(path)) {
+			for (Path htmlFile : stream.filter(file -> file.toString().endsWith(".html")).sorted().collect(Collectors.toList())) {
+				String snippet = new String(Files.readAllBytes(htmlFile), StandardCharsets.UTF_8);
+				String html = "<html><body>" + snippet + NAVIGATION + snippet + "</body></html>";
+
+				// when
+				String expected = getText(html, uncached);
+				String first = getText(html, config);
+				String second = getText(html, config);
+
+				// then
+				assertThat(first).as(htmlFile.toString()).isEqualTo(expected);
+				assertThat(second).as(htmlFile.toString()).isEqualTo(expected);
+			}
+		}
+
+		assertThat(subtreeCache.getHitCount()).isGreaterThan(0);
+	}
+}
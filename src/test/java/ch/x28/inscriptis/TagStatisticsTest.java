@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.stream.IntStream;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class TagStatisticsTest {
+
+	private static final String HTML = "<html><body>"
+		+ "<table><tr><td>first</td><td>second</td></tr></table>"
+		+ "<pre>preformatted</pre>"
+		+ "<span style=\"display: block\">styled</span><span>plain</span>"
+		+ "<custom>unknown</custom>"
+		+ "</body></html>";
+
+	@Test
+	public void testConcurrentConversions() {
+
+		// given
+		TagStatistics tagStatistics = new TagStatistics();
+		ParserConfig config = new ParserConfig();
+		config.setTagStatistics(tagStatistics);
+
+		// when
+		IntStream.range(0, 100).parallel().forEach(i -> {
+			Document document = W3CDom.convert(Jsoup.parse(HTML));
+			new Inscriptis(document, config).getText();
+		});
+
+		// then
+		assertThat(tagStatistics.getSampleCount()).isEqualTo(100);
+		assertThat(tagStatistics.getTagCosts().get("td").getCount()).isEqualTo(200);
+		assertThat(tagStatistics.getTagCosts().get("span").getStyledCount()).isEqualTo(100);
+	}
+
+	@Test
+	public void testCosts() {
+
+		// given
+		TagStatistics tagStatistics = new TagStatistics();
+		ParserConfig config = new ParserConfig();
+		config.setTagStatistics(tagStatistics);
+
+		// when
+		new Inscriptis(W3CDom.convert(Jsoup.parse(HTML)), config).getText();
+
+		// then
+		assertThat(tagStatistics.getSampleCount()).isEqualTo(1);
+		assertThat(tagStatistics.getTagCosts().get("td").getCount()).isEqualTo(2);
+		assertThat(tagStatistics.getTagCosts().get("td").getOutputLength()).isEqualTo("firstsecond".length());
+		assertThat(tagStatistics.getTagCosts().get("pre").getOutputLength()).isEqualTo("preformatted".length());
+		assertThat(tagStatistics.getTagCosts().get("span").getCount()).isEqualTo(2);
+		assertThat(tagStatistics.getTagCosts().get("span").getStyledCount()).isEqualTo(1);
+		assertThat(tagStatistics.getTagCosts().get("table").getNanos()).isPositive();
+
+		assertThat(tagStatistics.getProfileCosts()).containsKeys("body", "pre", "span", TagStatistics.DEFAULT_ENTRY);
+		assertThat(tagStatistics.getProfileCosts()).doesNotContainKey("custom");
+		assertThat(tagStatistics.getProfileCosts().get(TagStatistics.DEFAULT_ENTRY).getCount()).isEqualTo(7); // html, table, tbody, tr, td, td, custom
+	}
+
+	@Test
+	public void testParallelConversion() {
+
+		// given
+		StringBuilder html = new StringBuilder("<html><body>");
+		for (int i = 0; i < 64; i++) {
+			// the deduplicated captions let the speculative conversion of the chunks fail
+			html.append("<p><img alt=\"caption\">paragraph</p>");
+		}
+		html.append("</body></html>");
+
+		TagStatistics tagStatistics = new TagStatistics();
+		ParserConfig config = new ParserConfig();
+		config.setDisplayImages(true);
+		config.setDeduplicateCaptions(true);
+		config.setParallel(true);
+		config.setTagStatistics(tagStatistics);
+
+		// when
+		new Inscriptis(W3CDom.convert(Jsoup.parse(html.toString())), config).getText();
+
+		// then the chunks that are converted again are counted once
+		assertThat(tagStatistics.getSampleCount()).isEqualTo(1);
+		assertThat(tagStatistics.getTagCosts().get("p").getCount()).isEqualTo(64);
+		assertThat(tagStatistics.getTagCosts().get("img").getCount()).isEqualTo(64);
+	}
+
+	@Test
+	public void testSampling() {
+
+		// given
+		TagStatistics tagStatistics = new TagStatistics(10);
+		ParserConfig config = new ParserConfig();
+		config.setTagStatistics(tagStatistics);
+		Document document = W3CDom.convert(Jsoup.parse(HTML));
+
+		// when
+		for (int i = 0; i < 1000; i++) {
+			new Inscriptis(document, config).getText();
+		}
+
+		// then
+		assertThat(tagStatistics.getSampleCount()).isBetween(30L, 300L);
+		assertThat(tagStatistics.getTagCosts().get("td").getCount()).isEqualTo(2 * tagStatistics.getSampleCount());
+	}
+}
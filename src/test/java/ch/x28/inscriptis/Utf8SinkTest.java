@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+/**
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class Utf8SinkTest {
+
+	private static byte[] toArray(ByteBuffer buffer) {
+
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+
+		return bytes;
+	}
+
+	@Test
+	public void testClear() throws IOException {
+
+		// given
+		Utf8Sink sink = new Utf8Sink(4);
+		sink.write(HtmlParser.parse("<p>Ein längerer Absatz</p>"));
+
+		// when
+		sink.clear();
+		long bytes = sink.write(HtmlParser.parse("<p>Grüße 😀</p>"));
+
+		// then
+		assertThat(bytes).isEqualTo(12);
+		assertThat(new String(toArray(sink.getBuffer()), StandardCharsets.UTF_8)).isEqualTo("Grüße 😀");
+	}
+
+	@Test
+	public void testHtmlSnippets() throws IOException, URISyntaxException {
+
+		// given
+		Path path = Paths.get(getClass().getClassLoader().getResource("snippets").toURI());
+
+		Set<Path> htmlFiles;
+		try (Stream<Path> stream = Files.walk(path)) {
+			htmlFiles = stream
+				.filter(file -> file.getFileName().toString().endsWith(".html"))
+				.collect(Collectors.toSet());
+		}
+
+		for (Path htmlFile : htmlFiles) {
+			Document document = HtmlParser.parse(htmlFile);
+			ParserConfig config = new ParserConfig(CssProfile.STRICT);
+			byte[] expected = new Inscriptis(document, config).getText().getBytes(StandardCharsets.UTF_8);
+
+			// when
+			Utf8Sink bufferSink = new Utf8Sink(16);
+			bufferSink.write(document, config);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			new Utf8Sink(out).write(document, config);
+
+			// then
+			assertThat(toArray(bufferSink.getBuffer())).as(htmlFile.getFileName().toString()).isEqualTo(expected);
+			assertThat(out.toByteArray()).as(htmlFile.getFileName().toString()).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	public void testLimits() throws IOException {
+
+		// given
+		Document document = HtmlParser.parse("<h1>Überschrift</h1><p>erster   Absatz</p><ul><li>eins<li>zwei</ul><p>Schluss \uD83D\uDE00\uD83D\uDE00</p>");
+
+		for (int limit = 1; limit < 60; limit++) {
+			ParserConfig outputConfig = new ParserConfig();
+			outputConfig.setMaxOutputLength(limit);
+			ParserConfig lengthConfig = new ParserConfig();
+			lengthConfig.setPreviewLength(limit);
+			ParserConfig linesConfig = new ParserConfig();
+			linesConfig.setPreviewLines(limit % 12 + 1);
+			linesConfig.setMaxOutputLength(limit);
+
+			for (ParserConfig config : new ParserConfig[] { outputConfig, lengthConfig, linesConfig }) {
+				String expected = new Inscriptis(document, config).getText();
+
+				// when
+				Utf8Sink sink = new Utf8Sink();
+				sink.write(document, config);
+
+				// then
+				assertThat(new String(toArray(sink.getBuffer()), StandardCharsets.UTF_8)).as("limit " + limit).isEqualTo(expected);
+			}
+		}
+	}
+
+	@Test
+	public void testStreamSinkHasNoBuffer() {
+
+		// given
+		Utf8Sink sink = new Utf8Sink(new ByteArrayOutputStream());
+
+		// when
+		// then
+		assertThatIllegalStateException().isThrownBy(sink::getBuffer);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.x28.inscriptis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Runs against the multi-release JAR, since the Java 11 version of {@link FlightRecording} is only loaded from it.
+ *
+ * @author Sascha Wolski
+ * @author Matthias Hewelt
+ */
+public class FlightRecordingIT {
+
+	@Test
+	public void testEvents() throws IOException {
+
+		// given
+		Path file = Files.createTempFile("inscriptis", ".jfr");
+		List<RecordedEvent> events;
+
+		try (Recording recording = new Recording()) {
+			recording.enable("ch.x28.inscriptis.Conversion");
+			recording.enable("ch.x28.inscriptis.TableLayout");
+			recording.enable("ch.x28.inscriptis.StyleParse").withoutThreshold();
+			recording.start();
+
+			// when
+			Inscriptis.convert(HtmlParser.parse("<p style=\"margin-top: 1em\">first</p>"
+				+ "<table><tr><td>a</td><td>b</td></tr></table>"));
+
+			recording.stop();
+			recording.dump(file);
+			events = RecordingFile.readAllEvents(file);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+
+		// then
+		List<String> names = events.stream()
+			.map(event -> event.getEventType().getName())
+			.collect(Collectors.toList());
+		assertThat(names).contains("ch.x28.inscriptis.Conversion", "ch.x28.inscriptis.TableLayout", "ch.x28.inscriptis.StyleParse");
+
+		RecordedEvent conversion = events.stream()
+			.filter(event -> event.getEventType().getName().equals("ch.x28.inscriptis.Conversion"))
+			.findFirst()
+			.get();
+		assertThat(conversion.getInt("tableCount")).isEqualTo(1);
+	}
+}